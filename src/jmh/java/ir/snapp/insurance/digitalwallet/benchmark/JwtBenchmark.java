@@ -0,0 +1,89 @@
+package ir.snapp.insurance.digitalwallet.benchmark;
+
+import ir.snapp.insurance.digitalwallet.config.jwt.JwtProperties;
+import ir.snapp.insurance.digitalwallet.repository.UserRepository;
+import ir.snapp.insurance.digitalwallet.service.auth.AuthenticatedUser;
+import ir.snapp.insurance.digitalwallet.util.JwtUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks issuing and verifying tokens with {@link JwtUtils}.
+ * <p>
+ * {@code verifyCached} measures a request carrying a token verified recently; {@code verifyUncached} rotates
+ * through more tokens than the cache holds, so every call parses and checks the signature. Token versions are read
+ * from an in-memory stand-in for the database, so the uncached case leaves out the round trip.
+ * </p>
+ *
+ * @author Alireza Khodadoust
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final int TOKENS = 1024;
+
+    private AuthenticatedUser user;
+    private JwtUtils jwtUtils;
+    private JwtUtils uncachedJwtUtils;
+    private String token;
+    private String[] tokens;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        user = new AuthenticatedUser(42, "benchmark-user", 0);
+        jwtUtils = new JwtUtils(properties(10_000), userRepository());
+        uncachedJwtUtils = new JwtUtils(properties(1), userRepository());
+        token = jwtUtils.generateToken(user);
+        tokens = new String[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            tokens[i] = uncachedJwtUtils.generateToken(new AuthenticatedUser(i + 1, "user-" + i, 0));
+        }
+    }
+
+    @Benchmark
+    public String generate() {
+        return jwtUtils.generateToken(user);
+    }
+
+    @Benchmark
+    public AuthenticatedUser verifyCached() {
+        return jwtUtils.verify(token);
+    }
+
+    @Benchmark
+    public AuthenticatedUser verifyUncached() {
+        next = (next + 1) % TOKENS;
+        return uncachedJwtUtils.verify(tokens[next]);
+    }
+
+    /**
+     * Answers every user's token version with 0.
+     */
+    private static UserRepository userRepository() {
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("findTokenVersionById")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return Optional.of(0);
+                });
+    }
+
+    private static JwtProperties properties(int verifiedCacheSize) {
+        JwtProperties properties = new JwtProperties();
+        properties.setSecret("a_very_very_long_sample_jwt_secret_key_for_benchmarks");
+        properties.setExpiration(Duration.ofDays(1));
+        properties.setVerifiedCacheSize(verifiedCacheSize);
+        return properties;
+    }
+}
@@ -0,0 +1,66 @@
+package ir.snapp.insurance.digitalwallet.benchmark;
+
+import ir.snapp.insurance.digitalwallet.controller.wallet.dto.TransactionDto;
+import ir.snapp.insurance.digitalwallet.controller.wallet.dto.WalletDto;
+import ir.snapp.insurance.digitalwallet.enums.Currency;
+import ir.snapp.insurance.digitalwallet.enums.TransactionType;
+import ir.snapp.insurance.digitalwallet.model.Transaction;
+import ir.snapp.insurance.digitalwallet.model.User;
+import ir.snapp.insurance.digitalwallet.model.Wallet;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks mapping entities to the DTOs returned by the wallet APIs.
+ *
+ * @author Alireza Khodadoust
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    private Wallet wallet;
+    private Transaction transaction;
+
+    @Setup
+    public void setUp() {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("benchmark-user");
+
+        wallet = new Wallet();
+        wallet.setId(10L);
+        wallet.setName("main");
+        wallet.setCurrency(Currency.IRR);
+        wallet.setBalance(1_000_000);
+        wallet.setUser(user);
+
+        Wallet target = new Wallet();
+        target.setId(11L);
+
+        transaction = new Transaction();
+        transaction.setId(UUID.randomUUID());
+        transaction.setType(TransactionType.TRANSFER);
+        transaction.setAmount(5_000);
+        transaction.setFromWallet(wallet);
+        transaction.setToWallet(target);
+        transaction.setCreatedAt(LocalDateTime.now());
+    }
+
+    @Benchmark
+    public WalletDto walletDtoFromEntity() {
+        return WalletDto.fromEntity(wallet);
+    }
+
+    @Benchmark
+    public TransactionDto transactionDtoFromEntity() {
+        return TransactionDto.fromEntity(transaction);
+    }
+}
@@ -0,0 +1,65 @@
+package ir.snapp.insurance.digitalwallet.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ir.snapp.insurance.digitalwallet.controller.wallet.dto.TransactionCursor;
+import ir.snapp.insurance.digitalwallet.controller.wallet.dto.TransactionDto;
+import ir.snapp.insurance.digitalwallet.enums.TransactionType;
+import ir.snapp.insurance.digitalwallet.util.Paginated;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Benchmarks serializing a page of transaction history to JSON, with the mapper configured like the
+ * application's.
+ *
+ * @author Alireza Khodadoust
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"20", "100"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private Paginated<TransactionDto> offsetPage;
+    private Paginated<TransactionDto> cursorPage;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .build();
+
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        List<TransactionDto> transactions = IntStream.rangeClosed(0, size)
+                .mapToObj(i -> new TransactionDto(UUID.randomUUID(), TransactionType.TRANSFER.name(), 1_000L + i,
+                        10L, 11L, start.plusSeconds(i)))
+                .toList();
+        offsetPage = new Paginated<>(0, size, 10_000L, transactions.subList(0, size));
+        cursorPage = Paginated.ofCursor(size, transactions, true,
+                transaction -> TransactionCursor.after(transaction).encode());
+    }
+
+    @Benchmark
+    public byte[] offsetPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(offsetPage);
+    }
+
+    @Benchmark
+    public byte[] cursorPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(cursorPage);
+    }
+}
@@ -0,0 +1,86 @@
+package ir.snapp.insurance.digitalwallet.benchmark;
+
+import ir.snapp.insurance.digitalwallet.DigitalWalletApplication;
+import ir.snapp.insurance.digitalwallet.controller.auth.dto.SignupRequest;
+import ir.snapp.insurance.digitalwallet.controller.wallet.dto.TransactionDto;
+import ir.snapp.insurance.digitalwallet.controller.wallet.dto.TransactionFilterCriteria;
+import ir.snapp.insurance.digitalwallet.controller.wallet.dto.WalletCreationRequest;
+import ir.snapp.insurance.digitalwallet.service.auth.AuthService;
+import ir.snapp.insurance.digitalwallet.service.wallet.WalletService;
+import ir.snapp.insurance.digitalwallet.util.Paginated;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the wallet service against a local PostgreSQL, through the full Spring context.
+ * <p>
+ * Runs with the {@code dev} profile unless {@code -Dbenchmark.profile} says otherwise; the database must be
+ * reachable with that profile's settings. Each run signs up a fresh user with two wallets.
+ * </p>
+ *
+ * @author Alireza Khodadoust
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WalletServiceBenchmark {
+
+    private static final long INITIAL_BALANCE = 1_000_000_000_000L;
+
+    private ConfigurableApplicationContext context;
+    private WalletService walletService;
+    private String username;
+    private Long fromWalletId;
+    private Long toWalletId;
+    private TransactionFilterCriteria firstPage;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(DigitalWalletApplication.class)
+                .profiles(System.getProperty("benchmark.profile", "dev"))
+                .properties("server.port=0", "logging.level.ir.snapp.insurance.digitalwallet=warn")
+                .run();
+        walletService = context.getBean(WalletService.class);
+
+        username = "benchmark-" + System.currentTimeMillis();
+        context.getBean(AuthService.class).signup(new SignupRequest(username, "Benchmark@1"));
+        fromWalletId = createWallet("from");
+        toWalletId = createWallet("to");
+        walletService.deposit(username, fromWalletId, INITIAL_BALANCE);
+
+        firstPage = new TransactionFilterCriteria();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void deposit() {
+        walletService.deposit(username, toWalletId, 1);
+    }
+
+    @Benchmark
+    public void transfer() {
+        walletService.transfer(username, fromWalletId, toWalletId, 1);
+    }
+
+    @Benchmark
+    public Paginated<TransactionDto> filterTransactions() {
+        return walletService.filterTransactions(username, fromWalletId, firstPage);
+    }
+
+    private Long createWallet(String name) {
+        WalletCreationRequest request = new WalletCreationRequest();
+        request.setName(name);
+        request.setCurrency("IRR");
+        return walletService.createWallet(username, request).id();
+    }
+}
@@ -0,0 +1,386 @@
+package ir.snapp.insurance.digitalwallet.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test driving contended wallet workloads through the HTTP API of a running application.
+ * <p>
+ * Each scenario runs a fixed number of closed-loop workers for a warmup and a measured period, and reports
+ * throughput, latency percentiles and outcomes per operation. {@code 409 concurrent.modification} responses are
+ * the optimistic-lock and serialization failures left after the server's retries. Connection pool wait times are
+ * read from the {@code hikaricp.connections.acquire} metric before and after the measured period.
+ * </p>
+ * <p>
+ * Options are given as {@code --name=value}; see {@link Options}. Every run signs up fresh users, so runs do not
+ * interfere with each other.
+ * </p>
+ *
+ * @author Alireza Khodadoust
+ */
+public final class LoadTest {
+
+    private static final String PASSWORD = "LoadTest@1";
+    private static final long SEED_BALANCE = 1_000_000_000_000L;
+    private static final int HISTORY_PAGE_SIZE = 50;
+
+    private final Options options;
+    private final WalletClient client;
+    private final String runId = "lt" + Long.toString(System.currentTimeMillis(), 36);
+
+    private String ownerToken;
+    private long hotWalletId;
+    private long[][] pairs;
+    private long historyWalletId;
+    private String[] loginUsers;
+
+    private LoadTest(Options options) {
+        this.options = options;
+        this.client = new WalletClient(URI.create(options.baseUrl()), URI.create(options.managementUrl()),
+                Duration.ofSeconds(30));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadTest(Options.parse(args)).run();
+    }
+
+    private void run() throws Exception {
+        log("Preparing fixtures for run " + runId);
+        prepare();
+
+        List<Map<String, Object>> report = new ArrayList<>();
+        for (String name : options.scenarios()) {
+            log("Running " + name + ": " + options.concurrency() + " workers, " + options.warmup().toSeconds()
+                    + "s warmup, " + options.duration().toSeconds() + "s measured");
+            report.add(runScenario(name, scenario(name)));
+        }
+
+        Path reportFile = Path.of(options.report());
+        Files.createDirectories(reportFile.toAbsolutePath().getParent());
+        new ObjectMapper().findAndRegisterModules()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+                .writeValue(reportFile.toFile(), Map.of("runId", runId, "options", options, "scenarios", report));
+        log("Report written to " + reportFile);
+    }
+
+    private void prepare() throws Exception {
+        String owner = runId + "-owner";
+        client.signup(owner, PASSWORD).orThrow("Signup");
+        ownerToken = client.login(owner, PASSWORD).orThrow("Login").json().path("token").asText();
+
+        hotWalletId = createWallet("hot");
+        pairs = new long[options.pairs()][];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = new long[]{createWallet("pair-" + i + "-a"), createWallet("pair-" + i + "-b")};
+            for (long walletId : pairs[i]) {
+                client.deposit(ownerToken, walletId, SEED_BALANCE).orThrow("Seed deposit");
+            }
+        }
+
+        historyWalletId = createWallet("history");
+        client.deposit(ownerToken, historyWalletId, SEED_BALANCE).orThrow("Seed deposit");
+        parallel(options.historySize(), i -> client.deposit(ownerToken, historyWalletId, 1).orThrow("Seed deposit"));
+
+        loginUsers = new String[options.loginUsers()];
+        parallel(loginUsers.length, i -> {
+            loginUsers[i] = runId + "-login-" + i;
+            client.signup(loginUsers[i], PASSWORD).orThrow("Signup");
+        });
+    }
+
+    private long createWallet(String name) throws IOException, InterruptedException {
+        return client.createWallet(ownerToken, name).orThrow("Wallet creation").json().path("id").asLong();
+    }
+
+    /**
+     * Returns the operations of the scenario with their weights.
+     */
+    private Map<Operation, Integer> scenario(String name) {
+        String[] cursors = new String[options.concurrency()];
+        Operation deposit = new Operation("deposit", worker -> client.deposit(ownerToken, hotWalletId, 1));
+        Operation transfer = new Operation("transfer", worker -> {
+            // Workers on the same pair alternate directions, so transfers cross each other's locks.
+            long[] pair = pairs[worker / 2 % pairs.length];
+            boolean forward = worker % 2 == 0;
+            return client.transfer(ownerToken, pair[forward ? 0 : 1], pair[forward ? 1 : 0], 1);
+        });
+        Operation history = new Operation("history-page", worker -> {
+            WalletClient.Response response = client.transactions(
+                    ownerToken, historyWalletId, HISTORY_PAGE_SIZE, cursors[worker]);
+            JsonNode nextCursor = response.isSuccessful() ? response.json().path("nextCursor") : null;
+            cursors[worker] = nextCursor != null && nextCursor.isTextual() ? nextCursor.asText() : null;
+            return response;
+        });
+        Operation login = new Operation("login", worker ->
+                client.login(loginUsers[ThreadLocalRandom.current().nextInt(loginUsers.length)], PASSWORD));
+
+        Map<Operation, Integer> operations = new LinkedHashMap<>();
+        switch (name) {
+            case "hot-deposit" -> operations.put(deposit, 1);
+            case "transfer-cycle" -> operations.put(transfer, 1);
+            case "history" -> operations.put(history, 1);
+            case "login" -> operations.put(login, 1);
+            case "mixed" -> {
+                operations.put(deposit, 40);
+                operations.put(transfer, 30);
+                operations.put(history, 20);
+                operations.put(login, 10);
+            }
+            default -> throw new IllegalArgumentException("Unknown scenario: " + name);
+        }
+        return operations;
+    }
+
+    private Map<String, Object> runScenario(String name, Map<Operation, Integer> operations) throws Exception {
+        List<Operation> pick = new ArrayList<>();
+        operations.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                pick.add(operation);
+            }
+        });
+        Map<Operation, OperationStats> stats = new LinkedHashMap<>();
+        operations.keySet().forEach(operation -> stats.put(operation, new OperationStats(operation.name())));
+
+        long measureStart = System.nanoTime() + options.warmup().toNanos();
+        long end = measureStart + options.duration().toNanos();
+        PoolSnapshot before;
+        PoolSnapshot after;
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int worker = 0; worker < options.concurrency(); worker++) {
+                int id = worker;
+                workers.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < end) {
+                        Operation operation = pick.get(random.nextInt(pick.size()));
+                        long start = System.nanoTime();
+                        String outcome;
+                        try {
+                            outcome = operation.call().call(id).outcome();
+                        } catch (IOException e) {
+                            outcome = "io " + e.getClass().getSimpleName();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        if (start >= measureStart) {
+                            stats.get(operation).record(System.nanoTime() - start, outcome);
+                        }
+                    }
+                });
+            }
+            Thread.sleep(Duration.ofNanos(Math.max(0, measureStart - System.nanoTime())));
+            before = PoolSnapshot.read(client, ownerToken);
+            Thread.sleep(Duration.ofNanos(Math.max(0, end - System.nanoTime())));
+            after = PoolSnapshot.read(client, ownerToken);
+        }
+
+        double seconds = options.duration().toNanos() / 1e9;
+        print(name, stats.values(), seconds, before, after);
+
+        List<Map<String, Object>> operationReports = new ArrayList<>();
+        for (OperationStats operation : stats.values()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("operation", operation.name());
+            entry.put("requests", operation.count());
+            entry.put("throughput", operation.count() / seconds);
+            entry.put("p50Ms", operation.percentileMillis(50));
+            entry.put("p99Ms", operation.percentileMillis(99));
+            entry.put("p999Ms", operation.percentileMillis(99.9));
+            entry.put("maxMs", operation.maxMillis());
+            entry.put("conflicts", operation.outcomeCount(OperationStats.CONFLICT));
+            entry.put("outcomes", operation.outcomes());
+            operationReports.add(entry);
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("scenario", name);
+        report.put("concurrency", options.concurrency());
+        report.put("durationSeconds", seconds);
+        report.put("operations", operationReports);
+        report.put("connectionPool", PoolSnapshot.difference(before, after));
+        return report;
+    }
+
+    private static void print(String scenario, Iterable<OperationStats> stats, double seconds,
+                              PoolSnapshot before, PoolSnapshot after) {
+        System.out.printf("%n%-16s %-14s %9s %9s %9s %9s %9s %9s %9s %9s%n", "scenario", "operation",
+                "requests", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "conflicts", "failures");
+        for (OperationStats operation : stats) {
+            System.out.printf("%-16s %-14s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9d %9d%n", scenario, operation.name(),
+                    operation.count(), operation.count() / seconds, operation.percentileMillis(50),
+                    operation.percentileMillis(99), operation.percentileMillis(99.9), operation.maxMillis(),
+                    operation.outcomeCount(OperationStats.CONFLICT), operation.failureCount());
+            operation.outcomes().forEach((outcome, count) -> {
+                if (!outcome.equals("2xx")) {
+                    System.out.printf("%-16s %-14s %9d  %s%n", "", "", count, outcome);
+                }
+            });
+        }
+        System.out.println("connection pool: " + PoolSnapshot.difference(before, after));
+    }
+
+    private static void parallel(int count, IndexedTask task) throws Exception {
+        AtomicLong next = new AtomicLong();
+        List<Exception> failures = new ArrayList<>();
+        try (ExecutorService workers = Executors.newFixedThreadPool(16)) {
+            for (int worker = 0; worker < 16; worker++) {
+                workers.submit(() -> {
+                    for (long i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+                        try {
+                            task.run((int) i);
+                        } catch (Exception e) {
+                            synchronized (failures) {
+                                failures.add(e);
+                            }
+                            return;
+                        }
+                    }
+                });
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw failures.getFirst();
+        }
+    }
+
+    private static void log(String message) {
+        System.out.println("[loadtest] " + message);
+    }
+
+    @FunctionalInterface
+    private interface IndexedTask {
+        void run(int index) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        WalletClient.Response call(int worker) throws IOException, InterruptedException;
+    }
+
+    private record Operation(String name, Call call) {
+    }
+
+    /**
+     * Cumulative connection acquisition statistics of the application's pools. Missing if the metrics endpoint
+     * cannot be read.
+     */
+    private record PoolSnapshot(double acquisitions, double totalWaitSeconds, double maxWaitSeconds,
+                                double timeouts) {
+
+        static PoolSnapshot read(WalletClient client, String token) throws InterruptedException {
+            try {
+                WalletClient.Response acquire = client.metric(token, "hikaricp.connections.acquire");
+                WalletClient.Response timeout = client.metric(token, "hikaricp.connections.timeout");
+                if (!acquire.isSuccessful()) {
+                    return null;
+                }
+                return new PoolSnapshot(
+                        statistic(acquire, "COUNT"),
+                        statistic(acquire, "TOTAL_TIME"),
+                        statistic(acquire, "MAX"),
+                        timeout.isSuccessful() ? statistic(timeout, "COUNT") : 0);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        /**
+         * The acquisitions and waits between the two snapshots. The maximum is the metric's recent maximum, not
+         * one limited to the measured period.
+         */
+        static Map<String, Object> difference(PoolSnapshot before, PoolSnapshot after) {
+            Map<String, Object> difference = new LinkedHashMap<>();
+            if (before == null || after == null) {
+                difference.put("available", false);
+                return difference;
+            }
+            double acquisitions = after.acquisitions - before.acquisitions;
+            double waitSeconds = after.totalWaitSeconds - before.totalWaitSeconds;
+            difference.put("acquisitions", (long) acquisitions);
+            difference.put("meanWaitMs", acquisitions > 0 ? waitSeconds * 1000 / acquisitions : 0);
+            difference.put("recentMaxWaitMs", after.maxWaitSeconds * 1000);
+            difference.put("timeouts", (long) (after.timeouts - before.timeouts));
+            return difference;
+        }
+
+        private static double statistic(WalletClient.Response response, String name) {
+            for (JsonNode measurement : response.json().path("measurements")) {
+                if (name.equals(measurement.path("statistic").asText())) {
+                    return measurement.path("value").asDouble();
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Command line options.
+     *
+     * @param baseUrl       URL of the running application
+     * @param managementUrl URL of the management port of the running application
+     * @param scenarios     scenarios to run, in order: {@code hot-deposit}, {@code transfer-cycle}, {@code history},
+     *                      {@code login} and {@code mixed}
+     * @param concurrency   number of concurrent workers per scenario
+     * @param warmup        time each scenario runs before measuring
+     * @param duration      measured time of each scenario
+     * @param pairs         number of wallet pairs transfers cycle between
+     * @param historySize   number of transactions seeded into the wallet whose history is scanned
+     * @param loginUsers    number of users logging in
+     * @param report        file the JSON report is written to
+     */
+    record Options(String baseUrl, String managementUrl, List<String> scenarios, int concurrency, Duration warmup,
+                   Duration duration, int pairs, int historySize, int loginUsers, String report) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new LinkedHashMap<>();
+            values.put("base-url", "http://localhost:8080");
+            values.put("management-url", "http://localhost:8081");
+            values.put("scenarios", "hot-deposit,transfer-cycle,history,login,mixed");
+            values.put("concurrency", "32");
+            values.put("warmup", "10s");
+            values.put("duration", "30s");
+            values.put("pairs", "4");
+            values.put("history-size", "2000");
+            values.put("login-users", "50");
+            values.put("report", "target/loadtest-report.json");
+            for (String arg : args) {
+                int separator = arg.indexOf('=');
+                String name = arg.startsWith("--") && separator > 2 ? arg.substring(2, separator) : null;
+                if (name == null || !values.containsKey(name)) {
+                    throw new IllegalArgumentException("Unknown option " + arg + "; known options: " + values);
+                }
+                values.put(name, arg.substring(separator + 1));
+            }
+            return new Options(
+                    values.get("base-url"),
+                    values.get("management-url"),
+                    Arrays.asList(values.get("scenarios").split(",")),
+                    Integer.parseInt(values.get("concurrency")),
+                    duration(values.get("warmup")),
+                    duration(values.get("duration")),
+                    Integer.parseInt(values.get("pairs")),
+                    Integer.parseInt(values.get("history-size")),
+                    Integer.parseInt(values.get("login-users")),
+                    values.get("report"));
+        }
+
+        private static Duration duration(String value) {
+            return Duration.parse("PT" + value.toUpperCase());
+        }
+    }
+}
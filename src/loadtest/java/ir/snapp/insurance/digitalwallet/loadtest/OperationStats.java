@@ -0,0 +1,64 @@
+package ir.snapp.insurance.digitalwallet.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes of one operation within a scenario, recorded concurrently by the workers.
+ *
+ * @author Alireza Khodadoust
+ */
+final class OperationStats {
+
+    static final String CONFLICT = "409 concurrent.modification";
+
+    private final String name;
+    private final Histogram latencies = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(10), 3);
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+    OperationStats(String name) {
+        this.name = name;
+    }
+
+    void record(long nanos, String outcome) {
+        latencies.recordValue(Math.min(nanos, latencies.getHighestTrackableValue()));
+        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+    }
+
+    String name() {
+        return name;
+    }
+
+    long count() {
+        return latencies.getTotalCount();
+    }
+
+    double percentileMillis(double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    double maxMillis() {
+        return latencies.getMaxValue() / 1e6;
+    }
+
+    long outcomeCount(String outcome) {
+        LongAdder count = outcomes.get(outcome);
+        return count != null ? count.sum() : 0;
+    }
+
+    long failureCount() {
+        return count() - outcomeCount("2xx");
+    }
+
+    Map<String, Long> outcomes() {
+        Map<String, Long> sorted = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> sorted.put(outcome, count.sum()));
+        return sorted;
+    }
+}
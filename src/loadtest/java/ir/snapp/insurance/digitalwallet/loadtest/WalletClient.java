@@ -0,0 +1,132 @@
+package ir.snapp.insurance.digitalwallet.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Minimal HTTP client for the wallet APIs used by the load test.
+ *
+ * @author Alireza Khodadoust
+ */
+final class WalletClient {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpClient http;
+    private final URI baseUrl;
+    private final URI managementUrl;
+    private final Duration timeout;
+
+    WalletClient(URI baseUrl, URI managementUrl, Duration timeout) {
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        this.baseUrl = baseUrl;
+        this.managementUrl = managementUrl;
+        this.timeout = timeout;
+    }
+
+    Response signup(String username, String password) throws IOException, InterruptedException {
+        return post("/v1/auth/signup", null, Map.of("username", username, "password", password));
+    }
+
+    Response login(String username, String password) throws IOException, InterruptedException {
+        return post("/v1/auth/login", null, Map.of("username", username, "password", password));
+    }
+
+    Response createWallet(String token, String name) throws IOException, InterruptedException {
+        return post("/v1/wallets", token, Map.of("name", name, "currency", "IRR"));
+    }
+
+    Response deposit(String token, long walletId, long amount) throws IOException, InterruptedException {
+        return post("/v1/wallets/" + walletId + "/deposit", token, Map.of("amount", amount));
+    }
+
+    Response transfer(String token, long fromWalletId, long toWalletId, long amount)
+            throws IOException, InterruptedException {
+        return post("/v1/wallets/" + fromWalletId + "/transfer", token,
+                Map.of("toWalletId", toWalletId, "amount", amount));
+    }
+
+    Response transactions(String token, long walletId, int size, String cursor)
+            throws IOException, InterruptedException {
+        String query = "?pagination=CURSOR&size=" + size
+                + (cursor != null ? "&cursor=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8) : "");
+        return send(request("/v1/wallets/" + walletId + "/transactions" + query, token).GET());
+    }
+
+    Response metric(String token, String name) throws IOException, InterruptedException {
+        return send(request(managementUrl.resolve("/actuator/metrics/" + name), token).GET());
+    }
+
+    private Response post(String path, String token, Map<String, Object> body)
+            throws IOException, InterruptedException {
+        return send(request(path, token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(MAPPER.writeValueAsBytes(body))));
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        return request(baseUrl.resolve(path), token);
+    }
+
+    private HttpRequest.Builder request(URI uri, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(timeout);
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    private Response send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        return new Response(response.statusCode(), response.body());
+    }
+
+    /**
+     * A response; the body is parsed only when asked for.
+     */
+    record Response(int status, String body) {
+
+        boolean isSuccessful() {
+            return status / 100 == 2;
+        }
+
+        JsonNode json() {
+            try {
+                return MAPPER.readTree(body);
+            } catch (IOException e) {
+                return MAPPER.missingNode();
+            }
+        }
+
+        /**
+         * The status and, for failures, the application error code, such as {@code 409 concurrent.modification}.
+         */
+        String outcome() {
+            if (isSuccessful()) {
+                return "2xx";
+            }
+            String error = json().path("error").asText("");
+            return error.isEmpty() ? Integer.toString(status) : status + " " + error;
+        }
+
+        Response orThrow(String action) {
+            if (!isSuccessful()) {
+                throw new IllegalStateException(action + " failed: " + outcome());
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ir.snapp.insurance.digitalwallet.config.archive;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.nio.file.Path;
+
+/**
+ * Encapsulates the configuration properties for the archival of old transactions to segment files.
+ *
+ * @author Alireza Khodadoust
+ */
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties(prefix = "archive")
+public class ArchiveProperties {
+
+    /**
+     * Whether old monthly partitions are moved to segment files by this instance. Existing segments are read
+     * either way.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Directory holding the segment files.
+     */
+    @NotNull(message = "archive.directory.is_required")
+    private Path directory = Path.of("data", "archive");
+
+    /**
+     * Number of past months kept in the database; older months are archived.
+     */
+    @Min(message = "archive.after-months.must_be_positive", value = 1)
+    private int afterMonths = 12;
+
+    /**
+     * Number of rows fetched from the database cursor at a time while archiving.
+     */
+    @Positive(message = "archive.fetch-size.must_be_positive")
+    private int fetchSize = 10_000;
+}
@@ -0,0 +1,89 @@
+package ir.snapp.insurance.digitalwallet.config.datasource;
+
+import ir.snapp.insurance.digitalwallet.service.auth.AuthenticatedUser;
+import ir.snapp.insurance.digitalwallet.util.BoundedLongMap;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Decides which reads must not go to the replica, because the replica may not have caught up with a write the
+ * caller depends on.
+ * <p>
+ * Reads made while handling a write request go to the primary, so a write never acts on stale data. Any request
+ * other than {@code GET}, {@code HEAD} or {@code OPTIONS} counts as a write. Its user is remembered when it starts
+ * and again when it completes, since the response may reach the client first, and their reads keep going to the
+ * primary for {@code datasource.replica.read-your-writes-window}. Writes of other users are not tracked and may
+ * show up a little later.
+ * </p>
+ *
+ * @author Alireza Khodadoust
+ */
+public class ReadYourWritesGuard implements HandlerInterceptor {
+
+    private static final int TRACKED_USERS = 1 << 16;
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final BoundedLongMap lastWrites = new BoundedLongMap(TRACKED_USERS);
+    private final long windowNanos;
+
+    public ReadYourWritesGuard(ReplicaProperties replicaProperties) {
+        this.windowNanos = replicaProperties.getReadYourWritesWindow().toNanos();
+    }
+
+    /**
+     * Whether a read on the current thread must go to the primary.
+     */
+    public boolean requiresPrimary() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                && isWrite(attributes.getRequest())) {
+            return true;
+        }
+        Long userId = currentUserId();
+        if (userId == null) {
+            return false;
+        }
+        long lastWrite = lastWrites.get(userId, NEVER);
+        return lastWrite != NEVER && System.nanoTime() - lastWrite < windowNanos;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        recordWrite(request);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        recordWrite(request);
+    }
+
+    private void recordWrite(HttpServletRequest request) {
+        if (!isWrite(request)) {
+            return;
+        }
+        Long userId = currentUserId();
+        if (userId != null) {
+            lastWrites.put(userId, System.nanoTime());
+        }
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        return switch (request.getMethod()) {
+            case "GET", "HEAD", "OPTIONS" -> false;
+            default -> true;
+        };
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user
+                ? user.getId()
+                : null;
+    }
+}
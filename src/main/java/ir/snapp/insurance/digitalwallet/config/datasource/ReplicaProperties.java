@@ -0,0 +1,42 @@
+package ir.snapp.insurance.digitalwallet.config.datasource;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Encapsulates the configuration properties for the read replica. Pool settings are read from
+ * {@code datasource.replica.hikari}, like {@code spring.datasource.hikari} for the primary.
+ *
+ * @author Alireza Khodadoust
+ */
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties(prefix = "datasource.replica")
+public class ReplicaProperties {
+
+    /**
+     * Whether read-only transactions are sent to the replica.
+     */
+    private boolean enabled = false;
+
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    /**
+     * How long after a write the same user's reads keep going to the primary. Should exceed the usual
+     * replication lag.
+     */
+    @NotNull(message = "datasource.replica.read-your-writes-window.is_required")
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+}
@@ -0,0 +1,36 @@
+package ir.snapp.insurance.digitalwallet.config.idempotency;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Encapsulates the configuration properties for {@code Idempotency-Key} handling.
+ *
+ * @author Alireza Khodadoust
+ */
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties(prefix = "idempotency")
+public class IdempotencyProperties {
+
+    /**
+     * Maximum number of outcomes kept in the in-memory cache in front of the database.
+     */
+    @Positive(message = "idempotency.cache-size.must_be_positive")
+    private int cacheSize = 10_000;
+
+    /**
+     * How long a stored outcome is kept, and thus for how long a key can be replayed.
+     */
+    @NotNull(message = "idempotency.retention.is_required")
+    private Duration retention = Duration.ofHours(24);
+}
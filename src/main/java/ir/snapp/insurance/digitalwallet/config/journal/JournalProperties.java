@@ -0,0 +1,42 @@
+package ir.snapp.insurance.digitalwallet.config.journal;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import java.nio.file.Path;
+
+/**
+ * Encapsulates the configuration properties for the write-ahead journal of the in-memory ledger.
+ *
+ * @author Alireza Khodadoust
+ */
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties(prefix = "journal")
+public class JournalProperties {
+
+    /**
+     * Whether ledger operations are made durable in a local journal before they are acknowledged.
+     * Only used when the in-memory ledger is enabled.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Directory holding the journal segment files.
+     */
+    @NotNull(message = "journal.directory.is_required")
+    private Path directory = Path.of("data", "journal");
+
+    /**
+     * Size of each segment file; a new segment is started once the current one is full.
+     */
+    @NotNull(message = "journal.segment-size.is_required")
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+}
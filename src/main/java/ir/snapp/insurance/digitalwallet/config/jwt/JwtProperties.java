@@ -1,6 +1,7 @@
 package ir.snapp.insurance.digitalwallet.config.jwt;
 
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -26,4 +27,17 @@ public class JwtProperties {
 
     @NotNull(message = "jwt.expiration.is_required")
     private Duration expiration;
+
+    /**
+     * Number of recently verified tokens kept in memory, so repeated requests skip parsing and signature checks.
+     */
+    @Positive(message = "jwt.verified-cache-size.must_be_positive")
+    private int verifiedCacheSize = 10_000;
+
+    /**
+     * How long the token version of a user read from the database is trusted. Tokens revoked on another instance
+     * are accepted for at most this long.
+     */
+    @NotNull(message = "jwt.revocation-check-interval.is_required")
+    private Duration revocationCheckInterval = Duration.ofSeconds(30);
 }
@@ -0,0 +1,38 @@
+package ir.snapp.insurance.digitalwallet.config.ledger;
+
+import jakarta.validation.constraints.Positive;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Encapsulates the configuration properties for the in-memory ledger engine.
+ *
+ * @author Alireza Khodadoust
+ */
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties(prefix = "ledger")
+public class LedgerProperties {
+
+    /**
+     * Whether balances are kept and changed in memory, with the database updated behind them.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Number of single-writer partitions wallets are spread over by wallet ID.
+     */
+    @Positive(message = "ledger.partitions.must_be_positive")
+    private int partitions = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Maximum number of operations written to the database in one transaction.
+     */
+    @Positive(message = "ledger.flush-batch-size.must_be_positive")
+    private int flushBatchSize = 1000;
+}
@@ -0,0 +1,43 @@
+package ir.snapp.insurance.digitalwallet.config.ledgerimport;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encapsulates the configuration properties for bulk ledger imports.
+ *
+ * @author Alireza Khodadoust
+ */
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties(prefix = "ledger-import")
+public class LedgerImportProperties {
+
+    /**
+     * Number of input lines loaded and committed together; an interrupted import resumes at a chunk boundary.
+     */
+    @Positive(message = "ledger-import.chunk-size.must_be_positive")
+    private int chunkSize = 50_000;
+
+    /**
+     * Maximum number of rejected lines reported when reading the state of an import.
+     */
+    @Positive(message = "ledger-import.max-reported-errors.must_be_positive")
+    private int maxReportedErrors = 1000;
+
+    /**
+     * Users allowed to call the admin import endpoints.
+     */
+    @NotNull(message = "ledger-import.admin-usernames.is_required")
+    private List<String> adminUsernames = new ArrayList<>();
+}
@@ -0,0 +1,38 @@
+package ir.snapp.insurance.digitalwallet.config.partition;
+
+import jakarta.validation.constraints.Min;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Encapsulates the configuration properties for the monthly partitions of the {@code transactions} table.
+ *
+ * @author Alireza Khodadoust
+ */
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties(prefix = "partitioning")
+public class PartitionProperties {
+
+    /**
+     * Whether partitions are managed by the application.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Number of future months for which partitions are kept created ahead of time.
+     */
+    @Min(message = "partitioning.months-ahead.must_be_positive", value = 1)
+    private int monthsAhead = 3;
+
+    /**
+     * Number of past months kept attached; older partitions are detached. Zero keeps all of them.
+     */
+    @Min(message = "partitioning.retention-months.cannot_be_negative", value = 0)
+    private int retentionMonths = 0;
+}
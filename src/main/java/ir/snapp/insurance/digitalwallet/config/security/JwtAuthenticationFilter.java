@@ -1,6 +1,9 @@
 package ir.snapp.insurance.digitalwallet.config.security;
 
 import io.jsonwebtoken.JwtException;
+import ir.snapp.insurance.digitalwallet.service.auth.AuthenticatedUser;
+import ir.snapp.insurance.digitalwallet.service.metrics.OperationMetrics;
+import ir.snapp.insurance.digitalwallet.service.metrics.RequestTiming;
 import ir.snapp.insurance.digitalwallet.util.JwtUtils;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -9,16 +12,19 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
+import static ir.snapp.insurance.digitalwallet.service.metrics.OperationMetrics.TOKEN_VERIFICATIONS;
+
 /**
  * Filter that intercepts HTTP requests to validate JWT tokens and set authentication in the security context.
+ * <p>
+ * The principal is built from the claims of the token, without loading the user from the database.
+ * </p>
  *
  * @author Alireza Khodadoust
  */
@@ -27,7 +33,7 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtils jwtUtils;
-    private final UserDetailsService userDetailsService;
+    private final OperationMetrics operationMetrics;
 
     @Override
     protected void doFilterInternal(
@@ -45,35 +51,31 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         final String authHeader = request.getHeader("Authorization");
-        final String jwt;
-        final String username;
-
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        jwt = authHeader.substring(7);
-        try {
-            username = jwtUtils.extractUsername(jwt);
-        } catch (JwtException e) {
-            filterChain.doFilter(request, response);
-            return;
-        }
-
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-            if (jwtUtils.validateToken(jwt, userDetails)) {
-                UsernamePasswordAuthenticationToken authToken =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails,
-                                null,
-                                userDetails.getAuthorities()
-                        );
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            AuthenticatedUser user;
+            long start = System.nanoTime();
+            try {
+                user = jwtUtils.verify(authHeader.substring(7));
+            } catch (JwtException e) {
+                long elapsed = System.nanoTime() - start;
+                operationMetrics.record(TOKEN_VERIFICATIONS, "verify", "invalid", elapsed);
+                RequestTiming.record(RequestTiming.Phase.JWT, elapsed);
+                filterChain.doFilter(request, response);
+                return;
             }
+            long elapsed = System.nanoTime() - start;
+            operationMetrics.record(TOKEN_VERIFICATIONS, "verify", "valid", elapsed);
+            RequestTiming.record(RequestTiming.Phase.JWT, elapsed);
+
+            UsernamePasswordAuthenticationToken authToken =
+                    new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authToken);
         }
 
         filterChain.doFilter(request, response);
@@ -60,7 +60,8 @@ public class SecurityConfig {
     }
 
     /**
-     * Security filter chain configuration.
+     * Security filter chain configuration. The actuator endpoints are only served on {@code management.server.port},
+     * which is not published, so health and Prometheus scrapes need no token there.
      */
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -72,6 +73,7 @@ public class SecurityConfig {
                         .requestMatchers(POST, "/v1/auth/login").permitAll()
                         .requestMatchers(POST, "/v1/auth/signup").permitAll()
                         .requestMatchers("/v3/api-docs/**", "/swagger-ui.html", "/swagger-ui/**").permitAll()
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
                         .anyRequest().authenticated()
                 )
                 .authenticationProvider(authenticationProvider())
@@ -0,0 +1,44 @@
+package ir.snapp.insurance.digitalwallet.config.summary;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.validator.constraints.time.DurationMin;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Encapsulates the configuration properties for the per-wallet daily summaries.
+ *
+ * @author Alireza Khodadoust
+ */
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties(prefix = "summary")
+public class SummaryProperties {
+
+    /**
+     * Whether transactions are folded into the summaries by this instance.
+     */
+    private boolean enabled = true;
+
+    /**
+     * How far behind the present folding stays at least. Folding also waits for every open transaction that has
+     * written anything or waits for a lock; the lag covers the moment between a transaction taking the insertion
+     * time of its first row and writing it.
+     */
+    @NotNull(message = "summary.lag.is_required")
+    @DurationMin(seconds = 1, message = "summary.lag.must_be_at_least_one_second")
+    private Duration lag = Duration.ofMinutes(1);
+
+    /**
+     * Longest span of transactions folded in one database transaction, bounding its size while catching up.
+     */
+    @NotNull(message = "summary.fold-window.is_required")
+    private Duration foldWindow = Duration.ofHours(6);
+}
@@ -0,0 +1,43 @@
+package ir.snapp.insurance.digitalwallet.config.timing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Registers the per-request phase timing, unless {@code server-timing.enabled} is off.
+ * <p>
+ * The filter runs ahead of the security filters, so the token checks are timed too. Each connection pool, both the
+ * primary and the replica one when a replica is configured, is wrapped to time the SQL statements. The pools are
+ * wrapped rather than the replica-routing data source, which hands out lazy connections and only borrows from a
+ * pool on the first statement.
+ * </p>
+ *
+ * @author Alireza Khodadoust
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "server-timing", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ServerTimingConfig {
+
+    @Bean
+    public FilterRegistrationBean<ServerTimingFilter> serverTimingFilter(
+            ServerTimingProperties serverTimingProperties) {
+        var registration = new FilterRegistrationBean<>(new ServerTimingFilter(serverTimingProperties));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Bean
+    public static BeanPostProcessor timedDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof HikariDataSource dataSource ? new TimedDataSource(dataSource) : bean;
+            }
+        };
+    }
+}
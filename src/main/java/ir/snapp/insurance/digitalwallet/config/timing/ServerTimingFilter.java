@@ -0,0 +1,94 @@
+package ir.snapp.insurance.digitalwallet.config.timing;
+
+import ir.snapp.insurance.digitalwallet.service.metrics.RequestTiming;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Times a sample of requests phase by phase, and reports the breakdown in a {@code Server-Timing} header and a
+ * log line.
+ * <p>
+ * Requests left out of the sample pass straight through. The header is set just before the response is
+ * committed, so its total covers the work done until the body starts being written. The log line is written when
+ * the request leaves the filter.
+ * </p>
+ *
+ * @author Alireza Khodadoust
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    private static final String SERVER_TIMING = "Server-Timing";
+
+    private final ServerTimingProperties serverTimingProperties;
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        if (ThreadLocalRandom.current().nextDouble() >= serverTimingProperties.getSampleRate()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RequestTiming timing = RequestTiming.start();
+        TimingHeaderResponse timedResponse = serverTimingProperties.isHeader()
+                ? new TimingHeaderResponse(response, timing)
+                : null;
+        try {
+            filterChain.doFilter(request, timedResponse != null ? timedResponse : response);
+        } finally {
+            RequestTiming.clear();
+            if (timedResponse != null && !response.isCommitted()) {
+                timedResponse.writeHeader();
+            }
+            log.info("server-timing method={} path={} status={} {}",
+                    request.getMethod(), pathOf(request), response.getStatus(), timing.toLogFields());
+        }
+    }
+
+    /**
+     * Returns the matched route rather than the URI when known, so log lines of the same endpoint group together.
+     */
+    private static Object pathOf(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern : request.getRequestURI();
+    }
+
+    private static final class TimingHeaderResponse extends OnCommittedResponseWrapper {
+
+        private final RequestTiming timing;
+        private boolean written;
+
+        private TimingHeaderResponse(HttpServletResponse response, RequestTiming timing) {
+            super(response);
+            this.timing = timing;
+        }
+
+        @Override
+        protected void onResponseCommitted() {
+            writeHeader();
+        }
+
+        private void writeHeader() {
+            if (!written) {
+                written = true;
+                ((HttpServletResponse) getResponse()).setHeader(SERVER_TIMING, timing.toHeader());
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ir.snapp.insurance.digitalwallet.config.timing;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Encapsulates the configuration properties for the per-request phase timing.
+ *
+ * @author Alireza Khodadoust
+ */
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties(prefix = "server-timing")
+public class ServerTimingProperties {
+
+    /**
+     * Whether requests may be sampled for timing. Read at startup.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Fraction of requests timed, between 0 and 1.
+     */
+    @DecimalMin(value = "0.0", message = "server-timing.sample-rate.must_be_between_0_and_1")
+    @DecimalMax(value = "1.0", message = "server-timing.sample-rate.must_be_between_0_and_1")
+    private double sampleRate = 0.01;
+
+    /**
+     * Whether timed requests return their breakdown in a {@code Server-Timing} header, besides the log line. Off by
+     * default, since the header tells any client how the request was served.
+     */
+    private boolean header;
+}
@@ -0,0 +1,97 @@
+package ir.snapp.insurance.digitalwallet.config.timing;
+
+import ir.snapp.insurance.digitalwallet.service.metrics.RequestTiming;
+import ir.snapp.insurance.digitalwallet.service.metrics.RequestTiming.Phase;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Data source recording, for requests sampled for timing, how long getting a connection takes and how many
+ * statements run and for how long.
+ * <p>
+ * Connections handed to other requests and to background work are returned as they are. Statement time covers
+ * the {@code execute} calls, including the first rows of a query but not rows fetched later.
+ * </p>
+ *
+ * @author Alireza Khodadoust
+ */
+public class TimedDataSource extends DelegatingDataSource {
+
+    public TimedDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!RequestTiming.isActive()) {
+            return super.getConnection();
+        }
+        long start = System.nanoTime();
+        Connection connection = super.getConnection();
+        RequestTiming.record(Phase.POOL, System.nanoTime() - start);
+        return timed(connection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (!RequestTiming.isActive()) {
+            return super.getConnection(username, password);
+        }
+        long start = System.nanoTime();
+        Connection connection = super.getConnection(username, password);
+        RequestTiming.record(Phase.POOL, System.nanoTime() - start);
+        return timed(connection);
+    }
+
+    private static Connection timed(Connection connection) {
+        return proxy(Connection.class, connection, (proxy, method, args) -> {
+            Object result = invoke(proxy, connection, method, args);
+            return switch (method.getName()) {
+                case "createStatement", "prepareStatement", "prepareCall" -> proxy(method.getReturnType(), result,
+                        (statementProxy, statementMethod, statementArgs) -> invokeStatement(
+                                statementProxy, result, statementMethod, statementArgs));
+                default -> result;
+            };
+        });
+    }
+
+    private static Object invokeStatement(Object proxy, Object statement, Method method, Object[] args)
+            throws Throwable {
+        if (!method.getName().startsWith("execute")) {
+            return invoke(proxy, statement, method, args);
+        }
+        long start = System.nanoTime();
+        try {
+            return invoke(proxy, statement, method, args);
+        } finally {
+            RequestTiming.record(Phase.DB, System.nanoTime() - start);
+        }
+    }
+
+    private static Object invoke(Object proxy, Object target, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(TimedDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
@@ -0,0 +1,182 @@
+package ir.snapp.insurance.digitalwallet.config.wallet;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Encapsulates the configuration properties for wallet operations.
+ *
+ * @author Alireza Khodadoust
+ */
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties(prefix = "wallet")
+public class WalletProperties {
+
+    @NotNull(message = "wallet.stripe-selection.is_required")
+    private StripeSelection stripeSelection = StripeSelection.HASH;
+
+    @NotNull(message = "wallet.transfer-strategy.is_required")
+    private TransferStrategy transferStrategy = TransferStrategy.ATOMIC;
+
+    /**
+     * Number of wallet owners kept in memory to answer ownership checks without a query.
+     */
+    @Positive(message = "wallet.ownership-cache-size.must_be_positive")
+    private int ownershipCacheSize = 100_000;
+
+    @Valid
+    @NotNull(message = "wallet.retry.is_required")
+    private Retry retry = new Retry();
+
+    @Valid
+    @NotNull(message = "wallet.coalescing.is_required")
+    private Coalescing coalescing = new Coalescing();
+
+    @Valid
+    @NotNull(message = "wallet.cache.is_required")
+    private Cache cache = new Cache();
+
+    @Valid
+    @NotNull(message = "wallet.export.is_required")
+    private Export export = new Export();
+
+    /**
+     * Strategy used to pick the sub-balance slot a credit lands in.
+     */
+    public enum StripeSelection {
+        /**
+         * Hash of the calling thread, so retries from the same thread keep hitting the same slot.
+         */
+        HASH,
+        /**
+         * A shared counter cycling over the slots.
+         */
+        ROUND_ROBIN
+    }
+
+    /**
+     * Strategy used to move funds between two wallets.
+     */
+    public enum TransferStrategy {
+        /**
+         * One conditional update per wallet, issued in ascending wallet ID order.
+         */
+        ATOMIC,
+        /**
+         * Both wallet rows are locked with {@code SELECT ... FOR UPDATE} in ascending wallet ID order
+         * in a single query, then checked and updated.
+         */
+        PESSIMISTIC
+    }
+
+    /**
+     * Retry policy for transactions failing with a transient database error, such as a deadlock,
+     * a serialization failure, or an optimistic lock conflict.
+     */
+    @Getter
+    @Setter
+    public static class Retry {
+
+        /**
+         * Total number of attempts, including the first one.
+         */
+        @Min(value = 1, message = "wallet.retry.max-attempts.min")
+        private int maxAttempts = 3;
+
+        /**
+         * Upper bound of the delay before the first retry; doubled on each following retry.
+         */
+        @NotNull(message = "wallet.retry.initial-backoff.is_required")
+        private Duration initialBackoff = Duration.ofMillis(10);
+
+        /**
+         * Upper bound of the delay before any retry.
+         */
+        @NotNull(message = "wallet.retry.max-backoff.is_required")
+        private Duration maxBackoff = Duration.ofMillis(200);
+    }
+
+    /**
+     * Micro-batching of concurrent deposits, withdrawals and transfers into shared database transactions.
+     */
+    @Getter
+    @Setter
+    public static class Coalescing {
+
+        /**
+         * Whether concurrent operations are grouped into shared transactions.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of operations applied in one transaction.
+         */
+        @Min(value = 1, message = "wallet.coalescing.max-batch-size.min")
+        private int maxBatchSize = 64;
+
+        /**
+         * How long the first operation of a batch waits for others to join it.
+         */
+        @NotNull(message = "wallet.coalescing.max-wait.is_required")
+        private Duration maxWait = Duration.ofMillis(2);
+
+        /**
+         * Number of threads applying batches, each on its own connection.
+         */
+        @Min(value = 1, message = "wallet.coalescing.dispatchers.min")
+        private int dispatchers = 1;
+    }
+
+    /**
+     * In-process cache of wallet details served to read requests.
+     */
+    @Getter
+    @Setter
+    public static class Cache {
+
+        /**
+         * Maximum number of wallets, and separately of users' wallet lists, kept in memory.
+         */
+        @Positive(message = "wallet.cache.size.must_be_positive")
+        private int size = 10_000;
+
+        /**
+         * How long a cached wallet is served before it is read again, bounding the staleness of a value
+         * read while a write was committing.
+         */
+        @NotNull(message = "wallet.cache.ttl.is_required")
+        private Duration ttl = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Streaming exports of transaction history.
+     */
+    @Getter
+    @Setter
+    public static class Export {
+
+        /**
+         * Maximum number of exports running at once, each holding a database connection while it streams.
+         */
+        @Positive(message = "wallet.export.max-concurrent.must_be_positive")
+        private int maxConcurrent = 4;
+
+        /**
+         * Number of rows fetched from the database cursor at a time.
+         */
+        @Positive(message = "wallet.export.fetch-size.must_be_positive")
+        private int fetchSize = 1000;
+    }
+}
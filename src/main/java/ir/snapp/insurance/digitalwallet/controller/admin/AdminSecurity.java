@@ -0,0 +1,21 @@
+package ir.snapp.insurance.digitalwallet.controller.admin;
+
+import ir.snapp.insurance.digitalwallet.config.ledgerimport.LedgerImportProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Security component to verify access to administrative endpoints.
+ *
+ * @author Alireza Khodadoost
+ */
+@Component
+@RequiredArgsConstructor
+public class AdminSecurity {
+
+    private final LedgerImportProperties ledgerImportProperties;
+
+    public boolean isAdmin(String username) {
+        return ledgerImportProperties.getAdminUsernames().contains(username);
+    }
+}
@@ -0,0 +1,71 @@
+package ir.snapp.insurance.digitalwallet.controller.admin;
+
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import ir.snapp.insurance.digitalwallet.controller.admin.dto.LedgerImportDto;
+import ir.snapp.insurance.digitalwallet.enums.ImportFormat;
+import ir.snapp.insurance.digitalwallet.service.ledgerimport.LedgerImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.UUID;
+
+/**
+ * REST controller for bulk imports of historical ledger transactions.
+ * <p>
+ * The request body is the import file itself, streamed straight into the import without being buffered,
+ * so files of any size can be posted. Only the usernames configured under {@code ledger-import.admin-usernames}
+ * may use these endpoints.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Slf4j
+@RestController
+@RequestMapping("/v1/admin/ledger-imports")
+@RequiredArgsConstructor
+public class LedgerImportController {
+
+    private final LedgerImportService ledgerImportService;
+
+    /**
+     * Imports the transactions in the request body, or resumes an interrupted import of the same file.
+     *
+     * @param format    the format of the body, {@code CSV} or {@code NDJSON}
+     * @param importId  the ID of the import to resume, if any
+     * @param request   the HTTP request whose body is read
+     * @param principal the security principal representing the authenticated user
+     * @return {@code ResponseEntity} containing the resulting {@link LedgerImportDto}
+     */
+    @PostMapping
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("@adminSecurity.isAdmin(principal.getUsername())")
+    public ResponseEntity<LedgerImportDto> importTransactions(
+            @RequestParam ImportFormat format,
+            @RequestParam(required = false) UUID importId,
+            HttpServletRequest request,
+            Principal principal) throws IOException {
+        log.info("Received ledger import ({}, resuming {}) from user: {}", format, importId, principal.getName());
+        var ledgerImport = ledgerImportService.importTransactions(
+                importId, format, "upload by " + principal.getName(), request.getInputStream());
+        return ResponseEntity.ok(ledgerImport);
+    }
+
+    /**
+     * Retrieves the progress of an import.
+     *
+     * @param importId the ID of the import
+     * @return {@code ResponseEntity} containing the {@link LedgerImportDto}
+     */
+    @GetMapping("/{importId}")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("@adminSecurity.isAdmin(principal.getUsername())")
+    public ResponseEntity<LedgerImportDto> getImport(@PathVariable UUID importId) {
+        return ResponseEntity.ok(ledgerImportService.getImport(importId));
+    }
+}
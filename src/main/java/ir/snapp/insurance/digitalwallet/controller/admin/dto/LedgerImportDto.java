@@ -0,0 +1,29 @@
+package ir.snapp.insurance.digitalwallet.controller.admin.dto;
+
+import ir.snapp.insurance.digitalwallet.enums.ImportFormat;
+import ir.snapp.insurance.digitalwallet.enums.ImportStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * DTO for the progress of a bulk ledger import
+ *
+ * @author Alireza Khodadoost
+ */
+public record LedgerImportDto(
+        UUID id,
+        ImportFormat format,
+        String source,
+        ImportStatus status,
+        int chunkSize,
+        int chunksDone,
+        long rowsImported,
+        long rowsRejected,
+        String error,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        List<LedgerImportErrorDto> errors
+) {
+}
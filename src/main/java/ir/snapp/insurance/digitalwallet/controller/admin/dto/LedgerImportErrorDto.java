@@ -0,0 +1,12 @@
+package ir.snapp.insurance.digitalwallet.controller.admin.dto;
+
+/**
+ * DTO for a line rejected by a bulk ledger import
+ *
+ * @author Alireza Khodadoost
+ */
+public record LedgerImportErrorDto(
+        long lineNo,
+        String reason
+) {
+}
@@ -2,17 +2,25 @@ package ir.snapp.insurance.digitalwallet.controller.wallet;
 
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import ir.snapp.insurance.digitalwallet.controller.wallet.dto.*;
+import ir.snapp.insurance.digitalwallet.enums.ExportFormat;
+import ir.snapp.insurance.digitalwallet.service.idempotency.IdempotencyService;
+import ir.snapp.insurance.digitalwallet.service.idempotency.IdempotentResult;
 import ir.snapp.insurance.digitalwallet.service.wallet.WalletService;
 import ir.snapp.insurance.digitalwallet.util.Paginated;
 import ir.snapp.insurance.digitalwallet.util.ValidationGroups;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
 import java.util.List;
 
@@ -25,13 +33,20 @@ import java.util.List;
  *     <li>Retrieve wallets for the authenticated user</li>
  *     <li>Retrieve wallet details</li>
  *     <li>Perform deposit, withdrawal, and transfer operations</li>
+ *     <li>Perform batch transfers from one wallet to many wallets</li>
  *     <li>Filter transactions for a specific wallet</li>
+ *     <li>Export the transactions of a wallet as a stream</li>
+ *     <li>Retrieve a daily, weekly, or monthly statement of a wallet</li>
  * </ul>
  * <p>
  * All endpoints require authentication unless explicitly permitted (e.g., login/signup).
  * Ownership of the wallet is verified using {@code @PreAuthorize} annotations.
  * </p>
  * <p>
+ * Deposit, withdrawal, and transfer accept an optional {@code Idempotency-Key} header. A request repeated with
+ * the same key returns the stored response without moving funds again, marked with {@code Idempotent-Replayed}.
+ * </p>
+ * <p>
  * This controller adheres to RESTful API conventions, where resources are primarily
  * represented by wallets and transactions, and actions on wallets are represented
  * as sub-resources or operations on transactions.
@@ -45,8 +60,15 @@ import java.util.List;
 @RequiredArgsConstructor
 public class WalletController {
 
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final MediaType NDJSON = new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+
     private final WalletService walletService;
 
+    private final IdempotencyService idempotencyService;
+
     /**
      * Creates a new wallet for the authenticated user.
      *
@@ -87,7 +109,7 @@ public class WalletController {
      */
     @GetMapping("/{walletId}")
     @SecurityRequirement(name = "bearerAuth")
-    @PreAuthorize("@walletSecurity.isOwner(#walletId, principal.getUsername())")
+    @PreAuthorize("@walletSecurity.isOwner(#walletId, principal.getId())")
     public ResponseEntity<WalletDto> getWallet(
             @PathVariable Long walletId,
             Principal principal) {
@@ -106,7 +128,7 @@ public class WalletController {
      */
     @GetMapping("/{walletId}/transactions")
     @SecurityRequirement(name = "bearerAuth")
-    @PreAuthorize("@walletSecurity.isOwner(#walletId, principal.getUsername())")
+    @PreAuthorize("@walletSecurity.isOwner(#walletId, principal.getId())")
     public ResponseEntity<Paginated<TransactionDto>> filterTransactions(
             @Validated(ValidationGroups.ValidationSeq.class) TransactionFilterCriteria filterCriteria,
             @PathVariable Long walletId,
@@ -117,23 +139,76 @@ public class WalletController {
     }
 
     /**
-     * Deposits a specified amount into the authenticated user's wallet.
+     * Exports the transactions of a specific wallet as a CSV or NDJSON file, streamed while it is read.
      *
+     * @param criteria  the export parameters (date range and format)
      * @param walletId  the ID of the wallet
-     * @param request   the deposit request containing the amount
      * @param principal the security principal representing the authenticated user
+     * @return {@code ResponseEntity} streaming the exported transactions
+     */
+    @GetMapping("/{walletId}/transactions/export")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("@walletSecurity.isOwner(#walletId, principal.getId())")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @Validated(ValidationGroups.ValidationSeq.class) TransactionExportCriteria criteria,
+            @PathVariable Long walletId,
+            Principal principal) {
+        log.debug("Received request to export transactions of wallet {} for user: {}", walletId, principal.getName());
+        StreamingResponseBody body = walletService.exportTransactions(principal.getName(), walletId, criteria);
+        boolean csv = criteria.getFormat() == ExportFormat.CSV;
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("wallet-" + walletId + "-transactions." + (csv ? "csv" : "ndjson"))
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    /**
+     * Retrieves a statement of a specific wallet, with its inflow, outflow and closing balance per period.
+     *
+     * @param criteria  the statement parameters (date range and granularity)
+     * @param walletId  the ID of the wallet
+     * @param principal the security principal representing the authenticated user
+     * @return {@code ResponseEntity} containing the {@link WalletStatementDto}
+     */
+    @GetMapping("/{walletId}/statement")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("@walletSecurity.isOwner(#walletId, principal.getId())")
+    public ResponseEntity<WalletStatementDto> getStatement(
+            @Validated(ValidationGroups.ValidationSeq.class) StatementCriteria criteria,
+            @PathVariable Long walletId,
+            Principal principal) {
+        log.debug("Received request to get statement of wallet {} for user: {}", walletId, principal.getName());
+        return ResponseEntity.ok(walletService.getStatement(principal.getName(), walletId, criteria));
+    }
+
+    /**
+     * Deposits a specified amount into the authenticated user's wallet.
+     *
+     * @param walletId       the ID of the wallet
+     * @param request        the deposit request containing the amount
+     * @param idempotencyKey optional client-supplied key making retries of this request safe
+     * @param principal      the security principal representing the authenticated user
      * @return {@code ResponseEntity} with a success message
      */
     @PostMapping("/{walletId}/deposit")
     @SecurityRequirement(name = "bearerAuth")
-    @PreAuthorize("@walletSecurity.isOwner(#walletId, principal.getUsername())")
+    @PreAuthorize("@walletSecurity.isOwner(#walletId, principal.getId())")
     public ResponseEntity<String> deposit(
             @PathVariable Long walletId,
             @Validated(ValidationGroups.ValidationSeq.class) @RequestBody DepositRequest request,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             Principal principal) {
         log.debug("Received request to deposit into wallet {} for user: {}", walletId, principal.getName());
-        walletService.deposit(principal.getName(), walletId, request.amount());
-        return ResponseEntity.ok("Deposit successful");
+        var result = idempotencyService.execute(principal.getName(), idempotencyKey,
+                "deposit:" + walletId + ":" + request.amount(),
+                () -> {
+                    walletService.deposit(principal.getName(), walletId, request.amount());
+                    return "Deposit successful";
+                });
+        return toResponse(result);
     }
 
     /**
@@ -141,38 +216,85 @@ public class WalletController {
      *
      * @param walletId        the ID of the wallet
      * @param withdrawRequest the withdrawal request containing the amount
+     * @param idempotencyKey  optional client-supplied key making retries of this request safe
      * @param principal       the security principal representing the authenticated user
      * @return {@code ResponseEntity} with a success message
      */
     @PostMapping("/{walletId}/withdraw")
     @SecurityRequirement(name = "bearerAuth")
-    @PreAuthorize("@walletSecurity.isOwner(#walletId, principal.getUsername())")
+    @PreAuthorize("@walletSecurity.isOwner(#walletId, principal.getId())")
     public ResponseEntity<String> withdraw(
             @PathVariable Long walletId,
             @Validated(ValidationGroups.ValidationSeq.class) @RequestBody WithdrawRequest withdrawRequest,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             Principal principal) {
         log.debug("Received request to withdraw from wallet {} for user: {}", walletId, principal.getName());
-        walletService.withdraw(principal.getName(), walletId, withdrawRequest.amount());
-        return ResponseEntity.ok("Withdrawal successful");
+        var result = idempotencyService.execute(principal.getName(), idempotencyKey,
+                "withdraw:" + walletId + ":" + withdrawRequest.amount(),
+                () -> {
+                    walletService.withdraw(principal.getName(), walletId, withdrawRequest.amount());
+                    return "Withdrawal successful";
+                });
+        return toResponse(result);
     }
 
     /**
      * Transfers a specified amount from one wallet to another.
      *
-     * @param walletId  the ID of the source wallet
-     * @param request   the transfer request containing the destination wallet ID and amount
-     * @param principal the security principal representing the authenticated user
+     * @param walletId       the ID of the source wallet
+     * @param request        the transfer request containing the destination wallet ID and amount
+     * @param idempotencyKey optional client-supplied key making retries of this request safe
+     * @param principal      the security principal representing the authenticated user
      * @return {@code ResponseEntity} with a success message
      */
     @PostMapping("/{walletId}/transfer")
     @SecurityRequirement(name = "bearerAuth")
-    @PreAuthorize("@walletSecurity.isOwner(#walletId, principal.getUsername())")
+    @PreAuthorize("@walletSecurity.isOwner(#walletId, principal.getId())")
     public ResponseEntity<String> transfer(
             @PathVariable Long walletId,
             @Validated(ValidationGroups.ValidationSeq.class) @RequestBody TransferRequest request,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             Principal principal) {
         log.debug("Received request to transfer from wallet {} for user: {}", walletId, principal.getName());
-        walletService.transfer(principal.getName(), walletId, request.toWalletId(), request.amount());
-        return ResponseEntity.ok("Transfer successful");
+        var result = idempotencyService.execute(principal.getName(), idempotencyKey,
+                "transfer:" + walletId + ":" + request.toWalletId() + ":" + request.amount(),
+                () -> {
+                    walletService.transfer(principal.getName(), walletId, request.toWalletId(), request.amount());
+                    return "Transfer successful";
+                });
+        return toResponse(result);
+    }
+
+    /**
+     * Transfers amounts from one wallet to many wallets in a single request.
+     * <p>
+     * The source wallet is debited once for all accepted items. Items that cannot be transferred
+     * are reported individually and do not fail the rest of the batch.
+     * </p>
+     *
+     * @param walletId  the ID of the source wallet
+     * @param request   the batch transfer request containing destination wallet IDs and amounts
+     * @param principal the security principal representing the authenticated user
+     * @return {@code ResponseEntity} containing the per-item {@link BatchTransferResult}
+     */
+    @PostMapping("/{walletId}/transfers:batch")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("@walletSecurity.isOwner(#walletId, principal.getId())")
+    public ResponseEntity<BatchTransferResult> batchTransfer(
+            @PathVariable Long walletId,
+            @Validated(ValidationGroups.ValidationSeq.class) @RequestBody BatchTransferRequest request,
+            Principal principal) {
+        log.debug("Received request to transfer from wallet {} to {} wallets for user: {}",
+                walletId, request.items().size(), principal.getName());
+        var result = walletService.batchTransfer(principal.getName(), walletId, request.items());
+        return ResponseEntity.ok(result);
+    }
+
+    private static ResponseEntity<String> toResponse(IdempotentResult result) {
+        var response = ResponseEntity.ok();
+        if (result.replayed()) {
+            response.header(IDEMPOTENT_REPLAYED_HEADER, "true");
+        }
+        return response.body(result.response());
     }
 }
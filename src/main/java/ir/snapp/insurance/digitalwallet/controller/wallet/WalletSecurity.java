@@ -1,11 +1,15 @@
 package ir.snapp.insurance.digitalwallet.controller.wallet;
 
-import ir.snapp.insurance.digitalwallet.repository.WalletRepository;
+import ir.snapp.insurance.digitalwallet.service.metrics.RequestTiming;
+import ir.snapp.insurance.digitalwallet.service.wallet.WalletOwnership;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
 /**
  * Security component to verify wallet ownership.
+ * <p>
+ * Checks are answered from the {@link WalletOwnership} index, so they usually need no query.
+ * </p>
  *
  * @author Alireza Khodadoost
  */
@@ -13,9 +17,14 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class WalletSecurity {
 
-    private final WalletRepository walletRepository;
+    private final WalletOwnership walletOwnership;
 
-    public boolean isOwner(Long walletId, String username) {
-        return walletRepository.existsByIdAndUserUsername(walletId, username);
+    public boolean isOwner(Long walletId, long userId) {
+        long start = System.nanoTime();
+        try {
+            return walletId != null && walletOwnership.isOwner(walletId, userId);
+        } finally {
+            RequestTiming.record(RequestTiming.Phase.AUTHZ, System.nanoTime() - start);
+        }
     }
 }
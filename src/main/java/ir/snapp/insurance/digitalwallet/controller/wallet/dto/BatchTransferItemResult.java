@@ -0,0 +1,20 @@
+package ir.snapp.insurance.digitalwallet.controller.wallet.dto;
+
+/**
+ * DTO for the outcome of a single item of a batch transfer
+ *
+ * @param index      position of the item in the request
+ * @param toWalletId the ID of the destination wallet
+ * @param amount     the requested amount in minor units
+ * @param success    whether the item was transferred
+ * @param error      the error code when the item was rejected
+ * @author Alireza Khodadoost
+ */
+public record BatchTransferItemResult(
+        int index,
+        Long toWalletId,
+        Long amount,
+        boolean success,
+        String error
+) {
+}
@@ -0,0 +1,22 @@
+package ir.snapp.insurance.digitalwallet.controller.wallet.dto;
+
+import ir.snapp.insurance.digitalwallet.util.ValidationGroups;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+import static ir.snapp.insurance.digitalwallet.util.Constants.MAX_BATCH_TRANSFER_ITEMS;
+
+/**
+ * DTO for batch transfer request
+ *
+ * @author Alireza Khodadoost
+ */
+public record BatchTransferRequest(
+        @NotEmpty(message = "items.is_required", groups = ValidationGroups.Presence.class)
+        @Size(message = "items.too_many", max = MAX_BATCH_TRANSFER_ITEMS, groups = ValidationGroups.Validity.class)
+        List<@Valid TransferRequest> items
+) {
+}
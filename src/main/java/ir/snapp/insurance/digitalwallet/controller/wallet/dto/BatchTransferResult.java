@@ -0,0 +1,20 @@
+package ir.snapp.insurance.digitalwallet.controller.wallet.dto;
+
+import java.util.List;
+
+/**
+ * DTO for batch transfer response
+ *
+ * @param succeeded    number of transferred items
+ * @param failed       number of rejected items
+ * @param totalDebited total amount debited from the source wallet, in minor units
+ * @param items        per-item outcome, in request order
+ * @author Alireza Khodadoost
+ */
+public record BatchTransferResult(
+        int succeeded,
+        int failed,
+        long totalDebited,
+        List<BatchTransferItemResult> items
+) {
+}
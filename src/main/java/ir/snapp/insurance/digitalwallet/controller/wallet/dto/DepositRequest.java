@@ -12,6 +12,6 @@ import jakarta.validation.constraints.Positive;
 public record DepositRequest(
         @NotNull(message = "amount.is_required", groups = ValidationGroups.Presence.class)
         @Positive(message = "amount.must_be_positive", groups = ValidationGroups.Validity.class)
-        Double amount
+        Long amount
 ) {
 }
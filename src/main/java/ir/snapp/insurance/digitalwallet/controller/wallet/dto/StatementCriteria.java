@@ -0,0 +1,31 @@
+package ir.snapp.insurance.digitalwallet.controller.wallet.dto;
+
+import ir.snapp.insurance.digitalwallet.enums.StatementGranularity;
+import ir.snapp.insurance.digitalwallet.util.ValidationGroups;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * DTO for wallet statement request
+ *
+ * @author Alireza Khodadoost
+ */
+@Data
+public class StatementCriteria {
+
+    @NotNull(message = "from.is_required", groups = ValidationGroups.Presence.class)
+    private LocalDate from;
+
+    @NotNull(message = "to.is_required", groups = ValidationGroups.Presence.class)
+    private LocalDate to;
+
+    private StatementGranularity granularity = StatementGranularity.DAY;
+
+    @AssertTrue(message = "statement.date_range_invalid", groups = ValidationGroups.Late.class)
+    private boolean isDateRangeValid() {
+        return !from.isAfter(to);
+    }
+}
@@ -0,0 +1,22 @@
+package ir.snapp.insurance.digitalwallet.controller.wallet.dto;
+
+import java.time.LocalDate;
+
+/**
+ * DTO for the activity of a wallet over one statement period.
+ *
+ * @param periodStart      first day of the day, week or month
+ * @param inflow           total credited to the wallet in the period
+ * @param outflow          total debited from the wallet in the period
+ * @param transactionCount number of transactions touching the wallet in the period
+ * @param closingBalance   balance of the wallet at the end of the period
+ * @author Alireza Khodadoost
+ */
+public record StatementPeriodDto(
+        LocalDate periodStart,
+        long inflow,
+        long outflow,
+        long transactionCount,
+        long closingBalance
+) {
+}
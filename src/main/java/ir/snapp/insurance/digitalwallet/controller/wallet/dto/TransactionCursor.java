@@ -0,0 +1,72 @@
+package ir.snapp.insurance.digitalwallet.controller.wallet.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.UUID;
+
+import static ir.snapp.insurance.digitalwallet.exception.PredefinedError.INVALID_CURSOR;
+
+/**
+ * Position in a wallet's transaction history, ordered by creation time and ID.
+ * Exchanged with clients as an opaque URL-safe token.
+ *
+ * @author Alireza Khodadoost
+ */
+public record TransactionCursor(
+        LocalDateTime createdAt,
+        UUID id
+) {
+    private static final char SEPARATOR = '|';
+
+    /**
+     * Orders transactions the way the history queries do: by creation time, then by ID compared byte by byte
+     * as PostgreSQL compares UUIDs.
+     */
+    public static final Comparator<TransactionDto> ORDER = Comparator
+            .comparing(TransactionDto::transactionDate)
+            .thenComparing(TransactionDto::id, TransactionCursor::compareIds);
+
+    /**
+     * A cursor positioned before every transaction created at or after the given time.
+     */
+    public static TransactionCursor before(LocalDateTime createdAt) {
+        return new TransactionCursor(createdAt, new UUID(0, 0));
+    }
+
+    public static TransactionCursor after(TransactionDto transaction) {
+        return new TransactionCursor(transaction.transactionDate(), transaction.id());
+    }
+
+    /**
+     * Whether the transaction comes after this position.
+     */
+    public boolean precedes(TransactionDto transaction) {
+        int byTime = createdAt.compareTo(transaction.transactionDate());
+        return byTime < 0 || byTime == 0 && compareIds(id, transaction.id()) < 0;
+    }
+
+    public String encode() {
+        String raw = createdAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TransactionCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            return new TransactionCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    UUID.fromString(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw INVALID_CURSOR.getAppException();
+        }
+    }
+
+    private static int compareIds(UUID left, UUID right) {
+        int byHigh = Long.compareUnsigned(left.getMostSignificantBits(), right.getMostSignificantBits());
+        return byHigh != 0 ? byHigh : Long.compareUnsigned(left.getLeastSignificantBits(), right.getLeastSignificantBits());
+    }
+}
@@ -13,7 +13,7 @@ import java.util.UUID;
 public record TransactionDto(
         UUID id,
         String type,
-        Double amount,
+        long amount,
         Long fromWalletId,
         Long toWalletId,
         LocalDateTime transactionDate
@@ -0,0 +1,32 @@
+package ir.snapp.insurance.digitalwallet.controller.wallet.dto;
+
+import ir.snapp.insurance.digitalwallet.enums.ExportFormat;
+import ir.snapp.insurance.digitalwallet.util.ValidationGroups;
+import jakarta.validation.constraints.AssertTrue;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+import static ir.snapp.insurance.digitalwallet.util.Constants.MAX_DATE;
+import static ir.snapp.insurance.digitalwallet.util.Constants.MIN_DATE;
+
+/**
+ * DTO for exporting transactions request
+ * If any field is null, the default value will be used
+ *
+ * @author Alireza Khodadoost
+ */
+@Data
+public class TransactionExportCriteria {
+
+    private LocalDateTime from = MIN_DATE;
+
+    private LocalDateTime to = MAX_DATE;
+
+    private ExportFormat format = ExportFormat.CSV;
+
+    @AssertTrue(message = "filter.date_range_invalid", groups = ValidationGroups.Late.class)
+    private boolean isDateRangeValid() {
+        return from.isBefore(to);
+    }
+}
@@ -1,7 +1,9 @@
 package ir.snapp.insurance.digitalwallet.controller.wallet.dto;
 
+import ir.snapp.insurance.digitalwallet.enums.PaginationMode;
 import ir.snapp.insurance.digitalwallet.util.ValidationGroups;
 import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Positive;
 import lombok.Data;
@@ -9,6 +11,7 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 import static ir.snapp.insurance.digitalwallet.util.Constants.MAX_DATE;
+import static ir.snapp.insurance.digitalwallet.util.Constants.MAX_PAGE_SIZE;
 import static ir.snapp.insurance.digitalwallet.util.Constants.MIN_DATE;
 
 /**
@@ -28,8 +31,23 @@ public class TransactionFilterCriteria {
     private int page = 0;
 
     @Positive(message = "size.must_be_positive", groups = ValidationGroups.Validity.class)
+    @Max(message = "size.too_large", value = MAX_PAGE_SIZE, groups = ValidationGroups.Validity.class)
     private int size = 20;
 
+    /**
+     * {@code CURSOR} pages by {@link #cursor} instead of {@link #page}; implied when a cursor is given.
+     */
+    private PaginationMode pagination = PaginationMode.OFFSET;
+
+    /**
+     * Opaque token returned as {@code nextCursor} by the previous page.
+     */
+    private String cursor;
+
+    public boolean isCursorMode() {
+        return pagination == PaginationMode.CURSOR || cursor != null;
+    }
+
     @AssertTrue(message = "filter.date_range_invalid", groups = ValidationGroups.Late.class)
     private boolean isDateRangeValid() {
         return from.isBefore(to);
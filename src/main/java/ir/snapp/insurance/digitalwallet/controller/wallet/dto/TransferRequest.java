@@ -14,6 +14,6 @@ public record TransferRequest(
         Long toWalletId,
         @NotNull(message = "amount.is_required", groups = ValidationGroups.Presence.class)
         @Positive(message = "amount.must_be_positive", groups = ValidationGroups.Validity.class)
-        Double amount
+        Long amount
 ) {
 }
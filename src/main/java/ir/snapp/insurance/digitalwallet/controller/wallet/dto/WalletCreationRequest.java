@@ -3,11 +3,15 @@ package ir.snapp.insurance.digitalwallet.controller.wallet.dto;
 import ir.snapp.insurance.digitalwallet.enums.Currency;
 import ir.snapp.insurance.digitalwallet.util.ValidationGroups;
 import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 
 import java.util.Arrays;
 
+import static ir.snapp.insurance.digitalwallet.util.Constants.MAX_WALLET_STRIPES;
+
 /**
  * DTO for wallet creation request
  *
@@ -22,6 +26,14 @@ public class WalletCreationRequest {
     @NotBlank(message = "currency.is_required", groups = ValidationGroups.Presence.class)
     private String currency;
 
+    /**
+     * Optional number of sub-balance slots. Values greater than one create a striped wallet
+     * suited for high-volume incoming credits.
+     */
+    @Min(message = "stripes.must_be_positive", value = 1, groups = ValidationGroups.Validity.class)
+    @Max(message = "stripes.too_many", value = MAX_WALLET_STRIPES, groups = ValidationGroups.Validity.class)
+    private Integer stripes;
+
     @AssertTrue(message = "currency.not_supported", groups = ValidationGroups.Late.class)
     private boolean isCurrencyValid() {
         return Arrays.stream(Currency.values())
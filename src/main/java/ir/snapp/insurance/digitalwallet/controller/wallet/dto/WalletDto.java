@@ -12,15 +12,21 @@ public record WalletDto(
         Long id,
         String name,
         Currency currency,
-        Double balance
+        int scale,
+        long balance
 ) {
     public static WalletDto fromEntity(Wallet wallet) {
         return new WalletDto(
                 wallet.getId(),
                 wallet.getName(),
                 wallet.getCurrency(),
-                wallet.getBalance()
+                wallet.getCurrency().getScale(),
+                wallet.getTotalBalance()
         );
     }
+
+    public WalletDto withBalance(long balance) {
+        return new WalletDto(id, name, currency, scale, balance);
+    }
 }
 
@@ -0,0 +1,22 @@
+package ir.snapp.insurance.digitalwallet.controller.wallet.dto;
+
+import ir.snapp.insurance.digitalwallet.enums.StatementGranularity;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO for a wallet statement. Periods without transactions are omitted.
+ *
+ * @author Alireza Khodadoost
+ */
+public record WalletStatementDto(
+        Long walletId,
+        LocalDate from,
+        LocalDate to,
+        StatementGranularity granularity,
+        long openingBalance,
+        long closingBalance,
+        List<StatementPeriodDto> periods
+) {
+}
@@ -13,6 +13,6 @@ import jakarta.validation.constraints.Positive;
 public record WithdrawRequest(
         @NotNull(message = "amount.is_required", groups = ValidationGroups.Presence.class)
         @Positive(message = "amount.must_be_positive", groups = ValidationGroups.Validity.class)
-        Double amount
+        Long amount
 ) {
 }
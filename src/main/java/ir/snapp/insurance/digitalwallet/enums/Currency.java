@@ -1,11 +1,27 @@
 package ir.snapp.insurance.digitalwallet.enums;
 
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
 /**
  * Enumeration representing supported currencies in the digital wallet system.
+ * <p>
+ * Amounts are stored and exchanged as whole numbers of minor units, i.e. {@code major * 10^scale}.
+ * </p>
  *
  * @author Alireza Khodadoost
  */
+@Getter
+@AllArgsConstructor
 public enum Currency {
-    IRR,
+    /**
+     * The rial has no circulating subunit, so amounts are whole rials.
+     */
+    IRR(0),
     ;
+
+    /**
+     * Number of decimal digits of the minor unit.
+     */
+    private final int scale;
 }
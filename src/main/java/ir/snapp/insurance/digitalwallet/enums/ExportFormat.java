@@ -0,0 +1,17 @@
+package ir.snapp.insurance.digitalwallet.enums;
+
+/**
+ * Enumeration representing the supported formats of transaction exports.
+ *
+ * @author Alireza Khodadoost
+ */
+public enum ExportFormat {
+    /**
+     * Comma-separated values with a header line.
+     */
+    CSV,
+    /**
+     * One JSON object per line.
+     */
+    NDJSON
+}
@@ -0,0 +1,17 @@
+package ir.snapp.insurance.digitalwallet.enums;
+
+/**
+ * Enumeration representing the input formats accepted by the bulk ledger import.
+ *
+ * @author Alireza Khodadoost
+ */
+public enum ImportFormat {
+    /**
+     * Comma-separated {@code id,type,amount,fromWalletId,toWalletId,transactionDate}, with an optional header line.
+     */
+    CSV,
+    /**
+     * One JSON object per line, with the fields of a transaction as returned by the history endpoint.
+     */
+    NDJSON
+}
@@ -0,0 +1,15 @@
+package ir.snapp.insurance.digitalwallet.enums;
+
+/**
+ * Enumeration representing the states of a bulk ledger import.
+ *
+ * @author Alireza Khodadoost
+ */
+public enum ImportStatus {
+    RUNNING,
+    COMPLETED,
+    /**
+     * Stopped by an error; running it again with the same ID resumes after the last completed chunk.
+     */
+    FAILED
+}
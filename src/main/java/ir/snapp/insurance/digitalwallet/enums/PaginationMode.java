@@ -0,0 +1,18 @@
+package ir.snapp.insurance.digitalwallet.enums;
+
+/**
+ * Enumeration representing the supported ways of paging through a result set.
+ *
+ * @author Alireza Khodadoost
+ */
+public enum PaginationMode {
+    /**
+     * Pages addressed by number; includes the total number of elements.
+     */
+    OFFSET,
+    /**
+     * Pages addressed by an opaque cursor pointing after the last element of the previous page.
+     * Latency does not depend on how deep the page is, and no total is computed.
+     */
+    CURSOR
+}
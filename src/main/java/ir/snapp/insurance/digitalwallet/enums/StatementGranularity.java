@@ -0,0 +1,15 @@
+package ir.snapp.insurance.digitalwallet.enums;
+
+/**
+ * Enumeration representing the length of the periods a wallet statement is broken into.
+ *
+ * @author Alireza Khodadoost
+ */
+public enum StatementGranularity {
+    DAY,
+    /**
+     * ISO weeks, starting on Monday.
+     */
+    WEEK,
+    MONTH
+}
@@ -1,6 +1,7 @@
 package ir.snapp.insurance.digitalwallet.exception;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -29,6 +30,13 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(ex.getError().getHttpStatus()).body(body);
     }
 
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleConcurrencyFailure(ConcurrencyFailureException ex) {
+        Map<String, Object> body = getBody(PredefinedError.CONCURRENT_MODIFICATION.getErrorCode());
+        log.error("Concurrency failure after retries: {}", ex.getMessage());
+        return ResponseEntity.status(PredefinedError.CONCURRENT_MODIFICATION.getHttpStatus()).body(body);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, Object>> handleValidationExceptions(MethodArgumentNotValidException ex) {
         Map<String, Object> body = getBody(ex.getBindingResult().getFieldErrors().getFirst().getDefaultMessage());
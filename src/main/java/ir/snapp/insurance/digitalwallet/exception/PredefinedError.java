@@ -17,14 +17,25 @@ import static com.fasterxml.jackson.annotation.JsonFormat.Shape.OBJECT;
 @JsonFormat(shape = OBJECT)
 public enum PredefinedError implements  AppError {
     INSUFFICIENT_FUNDS("insufficient.funds", HttpStatus.BAD_REQUEST),
+    AMOUNT_OUT_OF_RANGE("amount.out_of_range", HttpStatus.BAD_REQUEST),
     USER_NOT_FOUND("user.not.found", HttpStatus.NOT_FOUND),
     SERVER_ERROR("server.error", HttpStatus.INTERNAL_SERVER_ERROR),
     TARGET_WALLET_NOT_FOUND("targetWallet.not.found", HttpStatus.NOT_FOUND),
     CURRENCY_MISMATCH("currency.mismatch", HttpStatus.BAD_REQUEST),
+    SAME_WALLET_TRANSFER("transfer.same_wallet", HttpStatus.BAD_REQUEST),
     WALLET_NOT_FOUND("wallet.not.found", HttpStatus.NOT_FOUND),
     WALLET_ALREADY_EXISTS("wallet.already.exists", HttpStatus.BAD_REQUEST),
     CURRENT_PASSWORD_INCORRECT("currentPassword.incorrect", HttpStatus.BAD_REQUEST),
     USER_ALREADY_EXISTS("user.already.exists", HttpStatus.BAD_REQUEST),
+    INVALID_CURSOR("cursor.invalid", HttpStatus.BAD_REQUEST),
+    PAGE_TOO_DEEP("page.too_deep", HttpStatus.BAD_REQUEST),
+    IDEMPOTENCY_KEY_INVALID("idempotencyKey.invalid", HttpStatus.BAD_REQUEST),
+    IDEMPOTENCY_KEY_REUSED("idempotencyKey.reused", HttpStatus.UNPROCESSABLE_ENTITY),
+    IDEMPOTENCY_KEY_IN_PROGRESS("idempotencyKey.in_progress", HttpStatus.CONFLICT),
+    CONCURRENT_MODIFICATION("concurrent.modification", HttpStatus.CONFLICT),
+    LEDGER_IMPORT_NOT_FOUND("ledgerImport.not.found", HttpStatus.NOT_FOUND),
+    LEDGER_IMPORT_FORMAT_MISMATCH("ledgerImport.format.mismatch", HttpStatus.BAD_REQUEST),
+    EXPORT_LIMIT_REACHED("export.limit_reached", HttpStatus.TOO_MANY_REQUESTS),
     ;
 
     private final String errorCode;
@@ -0,0 +1,51 @@
+package ir.snapp.insurance.digitalwallet.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing the stored outcome of a request executed with an {@code Idempotency-Key}.
+ *
+ * @author Alireza Khodadoost
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity(name = "idempotencyRecord")
+@Table(
+        name = "idempotency_keys",
+        uniqueConstraints = {
+                @UniqueConstraint(columnNames = {"username", "idempotency_key"})
+        }
+)
+public class IdempotencyRecord {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(nullable = false)
+    private String idempotencyKey;
+
+    /**
+     * Describes the operation and its arguments, used to reject reuse of a key for a different request.
+     */
+    @Column(nullable = false)
+    private String fingerprint;
+
+    /**
+     * The stored response, or {@code null} while the key is reserved for an operation still running.
+     */
+    private String response;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,22 @@
+package ir.snapp.insurance.digitalwallet.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Marks an identifier to be generated as a time-ordered UUID.
+ *
+ * @author Alireza Khodadoost
+ * @see ir.snapp.insurance.digitalwallet.util.TimeOrderedUuids
+ */
+@IdGeneratorType(TimeOrderedUuidGenerator.class)
+@Retention(RUNTIME)
+@Target({FIELD, METHOD})
+public @interface TimeOrderedUuid {
+}
@@ -0,0 +1,24 @@
+package ir.snapp.insurance.digitalwallet.model;
+
+import org.hibernate.annotations.ValueGenerationType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Marks a {@link java.time.LocalDateTime} property to be set on insert to the time embedded in the entity's
+ * {@link TimeOrderedUuid} identifier, so rows written through JPA and through JDBC take their creation time from the
+ * same clock reading as their ID.
+ *
+ * @author Alireza Khodadoost
+ * @see ir.snapp.insurance.digitalwallet.util.TimeOrderedUuids#timestampOf
+ */
+@ValueGenerationType(generatedBy = TimeOrderedUuidTimestampGenerator.class)
+@Retention(RUNTIME)
+@Target({FIELD, METHOD})
+public @interface TimeOrderedUuidTimestamp {
+}
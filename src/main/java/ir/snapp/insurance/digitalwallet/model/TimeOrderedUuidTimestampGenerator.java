@@ -0,0 +1,34 @@
+package ir.snapp.insurance.digitalwallet.model;
+
+import ir.snapp.insurance.digitalwallet.util.TimeOrderedUuids;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumSet;
+import java.util.UUID;
+
+import static org.hibernate.generator.EventTypeSets.INSERT_ONLY;
+
+/**
+ * Hibernate generator backing {@link TimeOrderedUuidTimestamp}. The identifier is generated on persist, before
+ * property values are generated on insert.
+ *
+ * @author Alireza Khodadoost
+ */
+public class TimeOrderedUuidTimestampGenerator implements BeforeExecutionGenerator {
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        UUID id = (UUID) session.getEntityPersister(null, owner).getIdentifier(owner, session);
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(TimeOrderedUuids.timestampOf(id)), ZoneId.systemDefault());
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return INSERT_ONLY;
+    }
+}
@@ -5,7 +5,6 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -22,15 +21,18 @@ import java.util.UUID;
 @Table(name = "transactions")
 public class Transaction {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedUuid
     private UUID id;
 
     @Column(nullable = false)
     @Enumerated(EnumType.STRING)
     private TransactionType type;
 
+    /**
+     * Amount in minor units of the currency.
+     */
     @Column(nullable = false)
-    private Double amount;
+    private long amount;
 
     @ManyToOne
     @JoinColumn(name = "from_wallet_id")
@@ -40,7 +42,11 @@ public class Transaction {
     @JoinColumn(name = "to_wallet_id")
     private Wallet toWallet;    // Nullable for withdraw
 
-    @CreationTimestamp
+    /**
+     * The time embedded in the ID, truncated to milliseconds like the rows written over JDBC, so ordering by
+     * {@code (createdAt, id)} agrees with ordering by ID.
+     */
+    @TimeOrderedUuidTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 }
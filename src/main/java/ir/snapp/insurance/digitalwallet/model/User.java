@@ -32,6 +32,12 @@ public class User {
     @Column(nullable = false)
     private String password;
 
+    /**
+     * Version of the tokens issued to the user, incremented to revoke the tokens issued before.
+     */
+    @Column(nullable = false)
+    private int tokenVersion;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -1,13 +1,16 @@
 package ir.snapp.insurance.digitalwallet.model;
 
 import ir.snapp.insurance.digitalwallet.enums.Currency;
+import ir.snapp.insurance.digitalwallet.util.Money;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Formula;
 import org.hibernate.annotations.UpdateTimestamp;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 /**
@@ -37,8 +40,24 @@ public class Wallet {
     @Enumerated(EnumType.STRING)
     private Currency currency;
 
+    /**
+     * Own balance in minor units of the currency.
+     */
     @Column(nullable = false)
-    private Double balance;
+    private long balance;
+
+    /**
+     * Number of sub-balance slots; a value greater than one marks the wallet as striped.
+     */
+    @Column(nullable = false)
+    private int stripes = 1;
+
+    /**
+     * Sum of the sub-balance slots, computed on load. Only queried for striped wallets. Kept in {@code numeric}, so
+     * loading the wallet does not fail even if the slots together passed the range of a {@code long}.
+     */
+    @Formula("(case when stripes > 1 then (select coalesce(sum(s.balance), 0) from wallet_stripes s where s.wallet_id = id) else 0 end)")
+    private BigDecimal stripedBalance;
 
     @ManyToOne
     @JoinColumn(name = "user_id")
@@ -54,5 +73,17 @@ public class Wallet {
 
     @Version
     private int version;
+
+    public boolean isStriped() {
+        return stripes > 1;
+    }
+
+    /**
+     * Returns the wallet balance including all of its sub-balance slots, failing with {@code AMOUNT_OUT_OF_RANGE}
+     * if it does not fit into a {@code long}.
+     */
+    public long getTotalBalance() {
+        return stripedBalance != null ? Money.add(balance, stripedBalance) : balance;
+    }
 }
 
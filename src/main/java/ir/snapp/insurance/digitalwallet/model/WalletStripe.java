@@ -0,0 +1,41 @@
+package ir.snapp.insurance.digitalwallet.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entity representing one sub-balance slot of a striped wallet.
+ * <p>
+ * Credits to a striped wallet land in one of its slots instead of the {@code wallets} row, so concurrent
+ * deposits do not contend on a single row. The wallet balance is the sum of its own balance and all its slots.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity(name = "walletStripe")
+@Table(
+        name = "wallet_stripes",
+        uniqueConstraints = {
+                @UniqueConstraint(columnNames = {"wallet_id", "slot"})
+        }
+)
+public class WalletStripe {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "wallet_id", nullable = false)
+    private Wallet wallet;
+
+    @Column(nullable = false)
+    private int slot;
+
+    @Column(nullable = false)
+    private long balance;
+}
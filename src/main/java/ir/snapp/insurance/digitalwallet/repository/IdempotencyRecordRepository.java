@@ -0,0 +1,27 @@
+package ir.snapp.insurance.digitalwallet.repository;
+
+import ir.snapp.insurance.digitalwallet.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Repository interface for IdempotencyRecord entity operations.
+ *
+ * @author Alireza Khodadoost
+ */
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByUsernameAndIdempotencyKey(String username, String idempotencyKey);
+
+    @Modifying
+    @Query("update idempotencyRecord r set r.response = :response where r.id = :id")
+    int complete(Long id, String response);
+
+    @Modifying
+    @Query("delete from idempotencyRecord r where r.createdAt < :threshold")
+    int deleteCreatedBefore(LocalDateTime threshold);
+}
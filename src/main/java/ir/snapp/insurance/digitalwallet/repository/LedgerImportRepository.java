@@ -0,0 +1,280 @@
+package ir.snapp.insurance.digitalwallet.repository;
+
+import ir.snapp.insurance.digitalwallet.enums.ImportFormat;
+import ir.snapp.insurance.digitalwallet.enums.ImportStatus;
+import ir.snapp.insurance.digitalwallet.service.ledgerimport.ImportRow;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Repository for bulk ledger imports, loading rows through the PostgreSQL {@code COPY} protocol.
+ * <p>
+ * Each chunk is copied into a temporary staging table, checked set-wise against the wallets, and moved into
+ * {@code transactions} with a single {@code INSERT ... SELECT}. Callers must run inside a transaction.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Repository
+@RequiredArgsConstructor
+public class LedgerImportRepository {
+
+    private static final String CREATE_STAGING = """
+            CREATE TEMPORARY TABLE ledger_import_staging
+            (
+                line_no        BIGINT      NOT NULL,
+                id             UUID        NOT NULL,
+                type           VARCHAR(50) NOT NULL,
+                amount         BIGINT      NOT NULL,
+                from_wallet_id BIGINT,
+                to_wallet_id   BIGINT,
+                created_at     TIMESTAMP   NOT NULL,
+                error          VARCHAR(255)
+            ) ON COMMIT DROP
+            """;
+
+    private static final String COPY_STAGING = """
+            COPY ledger_import_staging (line_no, id, type, amount, from_wallet_id, to_wallet_id, created_at)
+            FROM STDIN WITH (FORMAT csv)
+            """;
+
+    private static final String REJECT_UNKNOWN_WALLETS = """
+            UPDATE ledger_import_staging s
+            SET error = 'wallet.not.found'
+            WHERE (s.from_wallet_id IS NOT NULL AND NOT EXISTS (SELECT 1 FROM wallets w WHERE w.id = s.from_wallet_id))
+               OR (s.to_wallet_id IS NOT NULL AND NOT EXISTS (SELECT 1 FROM wallets w WHERE w.id = s.to_wallet_id))
+            """;
+
+    private static final String REJECT_CURRENCY_MISMATCHES = """
+            UPDATE ledger_import_staging s
+            SET error = 'currency.mismatch'
+            FROM wallets f, wallets t
+            WHERE s.error IS NULL
+              AND f.id = s.from_wallet_id
+              AND t.id = s.to_wallet_id
+              AND f.currency <> t.currency
+            """;
+
+    /**
+     * Inserts the valid rows. The summaries pick them up by insertion time, however old their creation time.
+     */
+    private static final String INSERT_TRANSACTIONS = """
+            INSERT INTO transactions (id, type, amount, from_wallet_id, to_wallet_id, created_at)
+            SELECT id, type, amount, from_wallet_id, to_wallet_id, created_at
+            FROM ledger_import_staging
+            WHERE error IS NULL
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final String INSERT_STAGING_ERRORS = """
+            INSERT INTO ledger_import_errors (import_id, line_no, reason)
+            SELECT ?, line_no, error FROM ledger_import_staging WHERE error IS NOT NULL
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final String INSERT_ERROR = """
+            INSERT INTO ledger_import_errors (import_id, line_no, reason) VALUES (?, ?, ?)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final String INSERT_TOUCHED_WALLETS = """
+            INSERT INTO ledger_import_wallets (import_id, wallet_id)
+            SELECT DISTINCT ?, wallet_id
+            FROM (SELECT from_wallet_id AS wallet_id FROM ledger_import_staging WHERE error IS NULL
+                  UNION
+                  SELECT to_wallet_id FROM ledger_import_staging WHERE error IS NULL) touched
+            WHERE wallet_id IS NOT NULL
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final String RECOMPUTE_BALANCES = """
+            UPDATE wallets w
+            SET balance    = ledger.net - COALESCE((SELECT SUM(s.balance) FROM wallet_stripes s WHERE s.wallet_id = w.id), 0),
+                version    = w.version + 1,
+                updated_at = CURRENT_TIMESTAMP
+            FROM (SELECT iw.wallet_id,
+                         COALESCE((SELECT c.net FROM wallet_carried_balances c WHERE c.wallet_id = iw.wallet_id), 0)
+                             + COALESCE((SELECT SUM(t.amount) FROM transactions t WHERE t.to_wallet_id = iw.wallet_id), 0)
+                             - COALESCE((SELECT SUM(t.amount) FROM transactions t WHERE t.from_wallet_id = iw.wallet_id), 0) AS net
+                  FROM ledger_import_wallets iw
+                  WHERE iw.import_id = ?) ledger
+            WHERE w.id = ledger.wallet_id
+            """;
+
+    private static final String SELECT_IMPORT = """
+            SELECT id, format, source, status, chunk_size, chunks_done, rows_imported, rows_rejected, error,
+                   created_at, updated_at
+            FROM ledger_imports
+            WHERE id = ?
+            """;
+
+    private static final RowMapper<ImportState> IMPORT_STATE_MAPPER = (rs, rowNum) -> new ImportState(
+            rs.getObject("id", UUID.class),
+            ImportFormat.valueOf(rs.getString("format")),
+            rs.getString("source"),
+            ImportStatus.valueOf(rs.getString("status")),
+            rs.getInt("chunk_size"),
+            rs.getInt("chunks_done"),
+            rs.getLong("rows_imported"),
+            rs.getLong("rows_rejected"),
+            rs.getString("error"),
+            rs.getObject("created_at", LocalDateTime.class),
+            rs.getObject("updated_at", LocalDateTime.class));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final DataSource dataSource;
+
+    public void createImport(UUID importId, ImportFormat format, String source, int chunkSize) {
+        jdbcTemplate.update("INSERT INTO ledger_imports (id, format, source, status, chunk_size) VALUES (?, ?, ?, ?, ?)",
+                importId, format.name(), source, ImportStatus.RUNNING.name(), chunkSize);
+    }
+
+    public Optional<ImportState> findImport(UUID importId) {
+        return jdbcTemplate.query(SELECT_IMPORT, IMPORT_STATE_MAPPER, importId).stream().findFirst();
+    }
+
+    public void updateStatus(UUID importId, ImportStatus status, String error) {
+        jdbcTemplate.update("UPDATE ledger_imports SET status = ?, error = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?",
+                status.name(), error, importId);
+    }
+
+    public Set<Integer> findCompletedChunks(UUID importId) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT chunk_no FROM ledger_import_chunks WHERE import_id = ?", Integer.class, importId));
+    }
+
+    public List<ImportError> findErrors(UUID importId, int limit) {
+        return jdbcTemplate.query(
+                "SELECT line_no, reason FROM ledger_import_errors WHERE import_id = ? ORDER BY line_no LIMIT ?",
+                (rs, rowNum) -> new ImportError(rs.getLong("line_no"), rs.getString("reason")),
+                importId, limit);
+    }
+
+    /**
+     * Loads one chunk: copies the rows into staging, rejects those referring to unknown wallets or mixing
+     * currencies, inserts the rest into {@code transactions} (skipping IDs already present), and records the
+     * rejected lines, the touched wallets and the completed chunk.
+     *
+     * @param rejected lines already rejected while parsing, as line number to reason
+     * @return the number of rows inserted and the number of lines rejected
+     */
+    public ChunkOutcome importChunk(UUID importId, int chunkNo, long firstLine, long lastLine,
+                                    List<ImportRow> rows, Map<Long, String> rejected) {
+        jdbcTemplate.execute(CREATE_STAGING);
+        copyIntoStaging(rows);
+
+        int rejectedRows = jdbcTemplate.update(REJECT_UNKNOWN_WALLETS) + jdbcTemplate.update(REJECT_CURRENCY_MISMATCHES);
+        int imported = jdbcTemplate.update(INSERT_TRANSACTIONS);
+
+        jdbcTemplate.update(INSERT_STAGING_ERRORS, importId);
+        var errors = List.copyOf(rejected.entrySet());
+        jdbcTemplate.batchUpdate(INSERT_ERROR, errors, errors.size(), (ps, error) -> {
+            ps.setObject(1, importId);
+            ps.setLong(2, error.getKey());
+            ps.setString(3, error.getValue());
+        });
+        jdbcTemplate.update(INSERT_TOUCHED_WALLETS, importId);
+
+        int totalRejected = rejectedRows + rejected.size();
+        jdbcTemplate.update("""
+                        INSERT INTO ledger_import_chunks (import_id, chunk_no, first_line, last_line, rows_imported, rows_rejected)
+                        VALUES (?, ?, ?, ?, ?, ?)
+                        """,
+                importId, chunkNo, firstLine, lastLine, imported, totalRejected);
+        jdbcTemplate.update("""
+                        UPDATE ledger_imports
+                        SET chunks_done   = chunks_done + 1,
+                            rows_imported = rows_imported + ?,
+                            rows_rejected = rows_rejected + ?,
+                            updated_at    = CURRENT_TIMESTAMP
+                        WHERE id = ?
+                        """,
+                imported, totalRejected, importId);
+        return new ChunkOutcome(imported, totalRejected);
+    }
+
+    /**
+     * Recomputes the balances of the wallets touched by the import from their transactions, plus the net amount
+     * carried forward from detached and archived months, the own balance of a striped wallet being what its slots
+     * do not hold.
+     *
+     * @return the number of wallets updated
+     */
+    public int recomputeBalances(UUID importId) {
+        return jdbcTemplate.update(RECOMPUTE_BALANCES, importId);
+    }
+
+    private void copyIntoStaging(List<ImportRow> rows) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (OutputStream out = new PGCopyOutputStream(connection.unwrap(PGConnection.class), COPY_STAGING, 1 << 16)) {
+            StringBuilder line = new StringBuilder(128);
+            for (ImportRow row : rows) {
+                line.setLength(0);
+                line.append(row.lineNo()).append(',')
+                        .append(row.id()).append(',')
+                        .append(row.type().name()).append(',')
+                        .append(row.amount()).append(',')
+                        .append(row.fromWalletId() != null ? row.fromWalletId() : "").append(',')
+                        .append(row.toWalletId() != null ? row.toWalletId() : "").append(',')
+                        .append(row.createdAt()).append('\n');
+                out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("COPY into ledger import staging failed", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * The stored state of an import.
+     */
+    public record ImportState(
+            UUID id,
+            ImportFormat format,
+            String source,
+            ImportStatus status,
+            int chunkSize,
+            int chunksDone,
+            long rowsImported,
+            long rowsRejected,
+            String error,
+            LocalDateTime createdAt,
+            LocalDateTime updatedAt) {
+    }
+
+    /**
+     * A rejected input line.
+     */
+    public record ImportError(long lineNo, String reason) {
+    }
+
+    /**
+     * Counts of one loaded chunk.
+     */
+    public record ChunkOutcome(int imported, int rejected) {
+    }
+}
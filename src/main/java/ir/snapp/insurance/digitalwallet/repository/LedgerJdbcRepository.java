@@ -0,0 +1,273 @@
+package ir.snapp.insurance.digitalwallet.repository;
+
+import ir.snapp.insurance.digitalwallet.enums.Currency;
+import ir.snapp.insurance.digitalwallet.enums.TransactionType;
+import ir.snapp.insurance.digitalwallet.util.TimeOrderedUuids;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Repository for set-wise ledger writes issued as JDBC batches, bypassing the entity lifecycle.
+ * <p>
+ * Callers must run inside a transaction; the statements join it through the shared connection.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Repository
+@RequiredArgsConstructor
+public class LedgerJdbcRepository {
+
+    private static final String INSERT_TRANSACTION =
+            "INSERT INTO transactions (id, type, amount, from_wallet_id, to_wallet_id, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_EXISTING_TRANSACTION_IDS = "SELECT id FROM transactions WHERE id = ANY (?)";
+
+    private static final String LOCK_WALLETS =
+            "SELECT id, currency, stripes FROM wallets WHERE id = ANY (?) ORDER BY id FOR UPDATE";
+
+    /**
+     * Matches no row if the new balance, or the new total balance of the wallet including its slots, would not fit
+     * into a {@code bigint}. The amount may be negative, so the bounds are checked in {@code numeric}, which cannot
+     * overflow.
+     */
+    private static final String ADD_TO_WALLET_BALANCE = """
+            UPDATE wallets
+            SET balance = balance + ?, version = version + 1, updated_at = CURRENT_TIMESTAMP
+            WHERE id = ?
+              AND CAST(balance AS NUMERIC) + ? BETWEEN -9223372036854775808 AND 9223372036854775807
+              AND CAST(balance AS NUMERIC) + ?
+                  + COALESCE((SELECT SUM(s.balance) FROM wallet_stripes s WHERE s.wallet_id = wallets.id), 0)
+                  BETWEEN -9223372036854775808 AND 9223372036854775807
+            """;
+
+    /**
+     * Caps each slot at an equal share of what the own balance of the wallet leaves, like
+     * {@link WalletStripeRepository#credit}, so concurrent credits to different slots cannot push the total
+     * balance past a {@code bigint}.
+     */
+    private static final String ADD_TO_STRIPE_BALANCE = """
+            UPDATE wallet_stripes
+            SET balance = balance + ?
+            WHERE wallet_id = ?
+              AND slot = ?
+              AND CAST(balance AS NUMERIC) + ? BETWEEN -9223372036854775808
+                  AND (SELECT (9223372036854775807 - GREATEST(w.balance, 0)) / w.stripes
+                       FROM wallets w WHERE w.id = wallet_stripes.wallet_id)
+            """;
+
+    /**
+     * The total is summed in {@code numeric}, so a total past the range of a {@code bigint} is reported by the
+     * mapper rather than failing the query.
+     */
+    private static final String SELECT_WALLET_BALANCES = """
+            SELECT w.id, u.username, w.currency,
+                   w.balance + COALESCE((SELECT SUM(s.balance) FROM wallet_stripes s WHERE s.wallet_id = w.id), 0) AS total_balance
+            FROM wallets w
+            JOIN users u ON u.id = w.user_id
+            """;
+
+    private static final RowMapper<WalletBalance> WALLET_BALANCE_MAPPER = (rs, rowNum) -> new WalletBalance(
+            rs.getLong("id"),
+            rs.getString("username"),
+            Currency.valueOf(rs.getString("currency")),
+            totalBalance(rs.getLong("id"), rs.getBigDecimal("total_balance")));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns the owner, currency and total balance of every wallet.
+     */
+    public List<WalletBalance> findAllWalletBalances() {
+        return jdbcTemplate.query(SELECT_WALLET_BALANCES, WALLET_BALANCE_MAPPER);
+    }
+
+    /**
+     * Returns the owner, currency and total balance of the wallet, if it exists.
+     */
+    public Optional<WalletBalance> findWalletBalance(long walletId) {
+        return jdbcTemplate.query(SELECT_WALLET_BALANCES + " WHERE w.id = ?", WALLET_BALANCE_MAPPER, walletId)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Locks the wallets with the given IDs and returns their currency and number of slots, in one statement and
+     * without loading the wallets or their owners. The rows are locked in ascending ID order, so two transactions
+     * locking overlapping sets of wallets cannot deadlock on each other.
+     */
+    public List<LockedWallet> lockWallets(Collection<Long> walletIds) {
+        if (walletIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(LOCK_WALLETS);
+            statement.setArray(1, connection.createArrayOf("bigint", walletIds.toArray()));
+            return statement;
+        }, (rs, rowNum) -> new LockedWallet(
+                rs.getLong("id"),
+                Currency.valueOf(rs.getString("currency")),
+                rs.getInt("stripes")));
+    }
+
+    /**
+     * Inserts the given ledger entries as transaction rows in a single batch. The creation time of each row
+     * is the time embedded in its ID.
+     */
+    public void insertTransactions(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION, entries, entries.size(), (ps, entry) -> {
+            ps.setObject(1, entry.id());
+            ps.setString(2, entry.type().name());
+            ps.setLong(3, entry.amount());
+            ps.setObject(4, entry.fromWalletId());
+            ps.setObject(5, entry.toWalletId());
+            ps.setTimestamp(6, Timestamp.from(Instant.ofEpochMilli(TimeOrderedUuids.timestampOf(entry.id()))));
+        });
+    }
+
+    /**
+     * Inserts the given entries as transaction rows and adds their net amount to the own balance of each wallet.
+     */
+    public void applyEntries(List<Entry> entries) {
+        Map<Long, Long> deltas = new HashMap<>();
+        for (Entry entry : entries) {
+            if (entry.fromWalletId() != null) {
+                deltas.merge(entry.fromWalletId(), -entry.amount(), Math::addExact);
+            }
+            if (entry.toWalletId() != null) {
+                deltas.merge(entry.toWalletId(), entry.amount(), Math::addExact);
+            }
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+
+        if (!addToWalletBalances(deltas)) {
+            throw new IllegalStateException("Applying " + entries.size() + " ledger entries would overflow a balance");
+        }
+        insertTransactions(entries);
+    }
+
+    /**
+     * Returns which of the given transaction IDs already exist.
+     */
+    public Set<UUID> findExistingTransactionIds(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(SELECT_EXISTING_TRANSACTION_IDS);
+            statement.setArray(1, connection.createArrayOf("uuid", ids.toArray()));
+            return statement;
+        }, (rs, rowNum) -> rs.getObject(1, UUID.class)));
+    }
+
+    /**
+     * Adds the given amounts to the own balance of each wallet in a single batch.
+     *
+     * @return {@code false} if a wallet was not updated, because it does not exist or its balance would overflow;
+     * the caller must then roll back
+     */
+    public boolean addToWalletBalances(Map<Long, Long> amountsByWalletId) {
+        if (amountsByWalletId.isEmpty()) {
+            return true;
+        }
+        var rows = new ArrayList<>(amountsByWalletId.entrySet());
+        return allUpdated(jdbcTemplate.batchUpdate(ADD_TO_WALLET_BALANCE, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row.getValue());
+            ps.setLong(2, row.getKey());
+            ps.setLong(3, row.getValue());
+            ps.setLong(4, row.getValue());
+        }));
+    }
+
+    /**
+     * Adds the given amounts to sub-balance slots of striped wallets in a single batch.
+     *
+     * @return {@code false} if a slot was not updated, because it does not exist or its balance would overflow;
+     * the caller must then roll back
+     */
+    public boolean addToStripeBalances(List<StripeCredit> credits) {
+        if (credits.isEmpty()) {
+            return true;
+        }
+        return allUpdated(jdbcTemplate.batchUpdate(ADD_TO_STRIPE_BALANCE, credits, credits.size(), (ps, credit) -> {
+            ps.setLong(1, credit.amount());
+            ps.setLong(2, credit.walletId());
+            ps.setInt(3, credit.slot());
+            ps.setLong(4, credit.amount());
+        }));
+    }
+
+    private static long totalBalance(long walletId, BigDecimal totalBalance) {
+        try {
+            return totalBalance.longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("Total balance of wallet " + walletId + " is out of range: " + totalBalance);
+        }
+    }
+
+    private static boolean allUpdated(int[][] counts) {
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count == 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A ledger movement to be recorded as a transaction row.
+     *
+     * @param id the ID of the transaction row, a time-ordered UUID carrying its creation time
+     */
+    public record Entry(UUID id, TransactionType type, long amount, Long fromWalletId, Long toWalletId) {
+
+        /**
+         * Creates an entry with a new time-ordered ID.
+         */
+        public static Entry of(TransactionType type, long amount, Long fromWalletId, Long toWalletId) {
+            return new Entry(TimeOrderedUuids.next(), type, amount, fromWalletId, toWalletId);
+        }
+    }
+
+    /**
+     * An amount credited to one sub-balance slot of a striped wallet.
+     */
+    public record StripeCredit(long walletId, int slot, long amount) {
+    }
+
+    /**
+     * The currency and number of sub-balance slots of a wallet locked for update.
+     */
+    public record LockedWallet(long walletId, Currency currency, int stripes) {
+
+        public boolean isStriped() {
+            return stripes > 1;
+        }
+    }
+
+    /**
+     * The owner, currency and total balance (own balance plus sub-balance slots) of a wallet.
+     */
+    public record WalletBalance(long walletId, String username, Currency currency, long balance) {
+    }
+}
@@ -0,0 +1,67 @@
+package ir.snapp.insurance.digitalwallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+
+/**
+ * Repository streaming the transaction history of a wallet through a server-side cursor.
+ * <p>
+ * With a fetch size set, inside a transaction, the PostgreSQL driver reads the result in batches of that many
+ * rows instead of buffering all of it, so memory use does not depend on the number of transactions. Both
+ * branches are read in index order and merged, without sorting.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionExportRepository {
+
+    private static final String SELECT_WALLET_TRANSACTIONS = """
+            SELECT id, type, amount, from_wallet_id, to_wallet_id, created_at FROM (
+                (SELECT * FROM transactions
+                 WHERE from_wallet_id = ?
+                   AND created_at BETWEEN ? AND ?
+                 ORDER BY created_at, id)
+                UNION ALL
+                (SELECT * FROM transactions
+                 WHERE to_wallet_id = ?
+                   AND from_wallet_id IS DISTINCT FROM ?
+                   AND created_at BETWEEN ? AND ?
+                 ORDER BY created_at, id)
+            ) t
+            ORDER BY t.created_at, t.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Passes each transaction of the wallet created within the range to the handler, ordered by creation time
+     * and ID. Must run inside a transaction for the cursor to be used.
+     *
+     * @param handler reads the current row of the result set: {@code id}, {@code type}, {@code amount},
+     *                {@code from_wallet_id}, {@code to_wallet_id}, {@code created_at}
+     */
+    public void streamWalletTransactions(long walletId, LocalDateTime start, LocalDateTime end, int fetchSize,
+                                         RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    SELECT_WALLET_TRANSACTIONS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            statement.setLong(1, walletId);
+            statement.setObject(2, start);
+            statement.setObject(3, end);
+            statement.setLong(4, walletId);
+            statement.setLong(5, walletId);
+            statement.setObject(6, start);
+            statement.setObject(7, end);
+            return statement;
+        }, handler);
+    }
+}
@@ -0,0 +1,190 @@
+package ir.snapp.insurance.digitalwallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Repository for managing the monthly partitions of the {@code transactions} table.
+ * <p>
+ * Partitions are named {@code transactions_pYYYYMM} and cover {@code [first day of month, first day of next month)}.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionPartitionRepository {
+
+    private static final String PARTITION_PREFIX = "transactions_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final String FIND_ATTACHED_PARTITIONS = """
+            SELECT c.relname
+            FROM pg_inherits i
+                     JOIN pg_class c ON c.oid = i.inhrelid
+                     JOIN pg_class p ON p.oid = i.inhparent
+            WHERE p.relname = 'transactions'
+              AND p.relnamespace = c.relnamespace
+              AND p.relnamespace = current_schema()::regnamespace
+            """;
+
+    private static final String FIND_DETACHED_PARTITIONS = """
+            SELECT c.relname
+            FROM pg_class c
+            WHERE c.relkind = 'r'
+              AND c.relname LIKE 'transactions\\_p%'
+              AND c.relnamespace = current_schema()::regnamespace
+              AND NOT EXISTS (SELECT 1 FROM pg_inherits i WHERE i.inhrelid = c.oid)
+            """;
+
+    /**
+     * Adds the net amount of each wallet's transactions in a partition table to its carried-forward balance.
+     */
+    private static final String CARRY_FORWARD = """
+            INSERT INTO wallet_carried_balances (wallet_id, net)
+            SELECT wallet_id, SUM(net)
+            FROM (SELECT to_wallet_id AS wallet_id, amount AS net FROM %1$s WHERE to_wallet_id IS NOT NULL
+                  UNION ALL
+                  SELECT from_wallet_id, -amount FROM %1$s WHERE from_wallet_id IS NOT NULL) moved
+            GROUP BY wallet_id
+            ON CONFLICT (wallet_id) DO UPDATE
+                SET net = wallet_carried_balances.net + EXCLUDED.net
+            """;
+
+    /**
+     * Moves the rows of a month caught by the default partition into the new partition table.
+     */
+    private static final String MOVE_FROM_DEFAULT = """
+            WITH moved AS (
+                DELETE FROM transactions_default
+                WHERE created_at >= ? AND created_at < ?
+                RETURNING id, type, amount, from_wallet_id, to_wallet_id, created_at, inserted_at
+            )
+            INSERT INTO %s (id, type, amount, from_wallet_id, to_wallet_id, created_at, inserted_at)
+            SELECT id, type, amount, from_wallet_id, to_wallet_id, created_at, inserted_at
+            FROM moved
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns the months of all monthly partitions currently attached to {@code transactions}.
+     */
+    public List<YearMonth> findAttachedMonths() {
+        return jdbcTemplate.queryForList(FIND_ATTACHED_PARTITIONS, String.class).stream()
+                .map(TransactionPartitionRepository::parseMonth)
+                .flatMap(Optional::stream)
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Returns the months of the monthly partition tables that were detached from {@code transactions} but not
+     * dropped.
+     */
+    public List<YearMonth> findDetachedMonths() {
+        return jdbcTemplate.queryForList(FIND_DETACHED_PARTITIONS, String.class).stream()
+                .map(TransactionPartitionRepository::parseMonth)
+                .flatMap(Optional::stream)
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Creates the partition of the given month, unless another caller attached it meanwhile. Rows of the month
+     * already caught by the default partition are moved into the new table before it is attached, since attaching
+     * fails while the default partition holds any. The default partition is locked until the current transaction
+     * ends, so no row of the month slips in meanwhile. Must run inside a transaction.
+     *
+     * @return the number of rows moved out of the default partition
+     * @throws IllegalStateException if a detached table of the month is still around
+     */
+    public int createPartition(YearMonth month) {
+        jdbcTemplate.execute("LOCK TABLE transactions_default IN ACCESS EXCLUSIVE MODE");
+        if (findAttachedMonths().contains(month)) {
+            return 0;
+        }
+        if (findDetachedMonths().contains(month)) {
+            throw new IllegalStateException("Partition " + partitionName(month)
+                    + " was detached; archive or drop it before recreating the month");
+        }
+        var from = month.atDay(1).atStartOfDay();
+        var to = month.plusMonths(1).atDay(1).atStartOfDay();
+        jdbcTemplate.execute("CREATE TABLE %s (LIKE transactions INCLUDING DEFAULTS)".formatted(partitionName(month)));
+        int moved = jdbcTemplate.update(MOVE_FROM_DEFAULT.formatted(partitionName(month)), from, to);
+        jdbcTemplate.execute("ALTER TABLE transactions ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')"
+                .formatted(partitionName(month), month.atDay(1), month.plusMonths(1).atDay(1)));
+        return moved;
+    }
+
+    /**
+     * Detaches the partition of the given month, after adding the net amount of its transactions to each wallet's
+     * carried-forward balance, so balances recomputed from {@code transactions} stay right. The table itself is
+     * kept, so it can be archived or dropped later. Must run inside a transaction.
+     */
+    public void detachPartition(YearMonth month) {
+        lockPartition(month);
+        jdbcTemplate.update(CARRY_FORWARD.formatted(partitionName(month)));
+        jdbcTemplate.execute("ALTER TABLE transactions DETACH PARTITION " + partitionName(month));
+    }
+
+    /**
+     * Blocks writes to the partition table of the given month, and other callers of this method, until the
+     * current transaction ends. Reads go on.
+     */
+    public void lockPartition(YearMonth month) {
+        jdbcTemplate.execute("LOCK TABLE %s IN SHARE ROW EXCLUSIVE MODE".formatted(partitionName(month)));
+    }
+
+    public long countRows(YearMonth month) {
+        return Objects.requireNonNull(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM " + partitionName(month), Long.class));
+    }
+
+    /**
+     * Passes each row of the partition table of the given month to the handler, ordered by creation time and ID.
+     * Must run inside a transaction for the rows to be read through a cursor.
+     *
+     * @param handler reads the current row of the result set: {@code id}, {@code type}, {@code amount},
+     *                {@code from_wallet_id}, {@code to_wallet_id}, {@code created_at}
+     */
+    public void streamRows(YearMonth month, int fetchSize, RowCallbackHandler handler) {
+        String sql = "SELECT id, type, amount, from_wallet_id, to_wallet_id, created_at FROM %s ORDER BY created_at, id"
+                .formatted(partitionName(month));
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, handler);
+    }
+
+    public void dropPartition(YearMonth month) {
+        jdbcTemplate.execute("DROP TABLE " + partitionName(month));
+    }
+
+    public static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    private static Optional<YearMonth> parseMonth(String partitionName) {
+        if (!Objects.requireNonNull(partitionName).startsWith(PARTITION_PREFIX)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(YearMonth.parse(partitionName.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX));
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+}
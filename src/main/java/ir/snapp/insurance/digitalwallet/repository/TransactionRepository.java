@@ -2,8 +2,8 @@ package ir.snapp.insurance.digitalwallet.repository;
 
 
 import ir.snapp.insurance.digitalwallet.model.Transaction;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -11,24 +11,95 @@ import java.util.UUID;
 
 /**
  * Repository interface for Transaction entity operations.
+ * <p>
+ * Wallet history queries are written as a {@code UNION ALL} of an outgoing and an incoming branch, so each
+ * branch is an index range scan on {@code (from_wallet_id, created_at, id)} or {@code (to_wallet_id, created_at, id)}.
+ * The incoming branch skips transfers to the wallet itself, which are already returned by the outgoing one.
+ * </p>
  *
  * @author Alireza Khodadoost
  */
 public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
 
-    List<Transaction> findByFromWalletIdOrToWalletIdAndCreatedAtBetween(
-            Long fromWalletId,
-            Long toWalletId,
+    /**
+     * Returns a page of the wallet's transactions created within the given range, ordered by creation time and ID.
+     * Each branch reads at most {@code rowOffset + rowLimit} rows.
+     */
+    @Query(value = """
+            SELECT * FROM (
+                (SELECT * FROM transactions
+                 WHERE from_wallet_id = :walletId
+                   AND created_at BETWEEN :start AND :end
+                 ORDER BY created_at, id
+                 LIMIT :rowOffset + :rowLimit)
+                UNION ALL
+                (SELECT * FROM transactions
+                 WHERE to_wallet_id = :walletId
+                   AND from_wallet_id IS DISTINCT FROM :walletId
+                   AND created_at BETWEEN :start AND :end
+                 ORDER BY created_at, id
+                 LIMIT :rowOffset + :rowLimit)
+            ) t
+            ORDER BY t.created_at, t.id
+            OFFSET :rowOffset
+            LIMIT :rowLimit
+            """, nativeQuery = true)
+    List<Transaction> findWalletPage(
+            Long walletId,
             LocalDateTime start,
             LocalDateTime end,
-            Pageable pageable
+            long rowOffset,
+            int rowLimit
     );
 
-    Long countByFromWalletIdOrToWalletIdAndCreatedAtBetween(
-            Long fromWalletId,
-            Long toWalletId,
+    /**
+     * Counts the wallet's transactions created within the given range.
+     */
+    @Query(value = """
+            SELECT (SELECT count(*) FROM transactions
+                    WHERE from_wallet_id = :walletId
+                      AND created_at BETWEEN :start AND :end)
+                 + (SELECT count(*) FROM transactions
+                    WHERE to_wallet_id = :walletId
+                      AND from_wallet_id IS DISTINCT FROM :walletId
+                      AND created_at BETWEEN :start AND :end)
+            """, nativeQuery = true)
+    long countWalletTransactions(
+            Long walletId,
             LocalDateTime start,
             LocalDateTime end
     );
-}
 
+    /**
+     * Returns up to {@code rowLimit} transactions of the wallet positioned strictly after the given
+     * (createdAt, id) pair, ordered by creation time and ID.
+     */
+    @Query(value = """
+            SELECT * FROM (
+                (SELECT * FROM transactions
+                 WHERE from_wallet_id = :walletId
+                   AND created_at BETWEEN :start AND :end
+                   AND (created_at, id) > (:afterCreatedAt, :afterId)
+                 ORDER BY created_at, id
+                 LIMIT :rowLimit)
+                UNION ALL
+                (SELECT * FROM transactions
+                 WHERE to_wallet_id = :walletId
+                   AND from_wallet_id IS DISTINCT FROM :walletId
+                   AND created_at BETWEEN :start AND :end
+                   AND (created_at, id) > (:afterCreatedAt, :afterId)
+                 ORDER BY created_at, id
+                 LIMIT :rowLimit)
+            ) t
+            ORDER BY t.created_at, t.id
+            LIMIT :rowLimit
+            """, nativeQuery = true)
+    List<Transaction> findPageAfter(
+            Long walletId,
+            LocalDateTime start,
+            LocalDateTime end,
+            LocalDateTime afterCreatedAt,
+            UUID afterId,
+            int rowLimit
+    );
+}
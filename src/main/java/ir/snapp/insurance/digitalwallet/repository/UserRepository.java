@@ -2,6 +2,8 @@ package ir.snapp.insurance.digitalwallet.repository;
 
 import ir.snapp.insurance.digitalwallet.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -14,5 +16,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByUsername(String username);
 
+    @Transactional(readOnly = true)
+    @Query("select u.tokenVersion from user u where u.id = :id")
+    Optional<Integer> findTokenVersionById(Long id);
+
 }
 
@@ -2,22 +2,89 @@ package ir.snapp.insurance.digitalwallet.repository;
 
 
 import ir.snapp.insurance.digitalwallet.model.Wallet;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 /**
  * Repository interface for Wallet entity operations.
+ * <p>
+ * The conditional balance updates check and change the balance in a single statement and report the
+ * number of affected rows, so they stay correct under READ COMMITTED without reading the wallet first.
+ * Each of them bumps the version, so concurrent entity-based writers still detect the change.
+ * </p>
  *
  * @author Alireza Khodadoost
  */
 public interface WalletRepository extends JpaRepository<Wallet, Long> {
 
+    @Transactional(readOnly = true)
     List<Wallet> findByUserUsername(String username);
 
-    Optional<Wallet> findByIdAndUserUsername(Long id, String username);
+    @Transactional(readOnly = true)
+    @Query("select w.user.id from wallet w where w.id = :id")
+    Long findOwnerIdById(Long id);
 
-    boolean existsByIdAndUserUsername(Long id, String username);
+    /**
+     * Loads and locks the wallets with the given IDs. The rows are locked in ascending ID order, so two
+     * transactions locking overlapping sets of wallets cannot deadlock on each other.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select w from wallet w where w.id in :ids order by w.id")
+    List<Wallet> findAllByIdForUpdate(Collection<Long> ids);
+
+    /**
+     * Subtracts the amount from the own balance of the user's wallet if it covers the amount.
+     *
+     * @return 1 if debited, 0 if the wallet is not owned by the user or its own balance is insufficient
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE wallets
+            SET balance = balance - :amount, version = version + 1, updated_at = CURRENT_TIMESTAMP
+            WHERE id = :walletId
+              AND user_id = (SELECT u.id FROM users u WHERE u.username = :username)
+              AND balance >= :amount
+            """, nativeQuery = true)
+    int debitIfSufficient(Long walletId, String username, long amount);
+
+    /**
+     * Adds the amount to the own balance of the user's non-striped wallet.
+     *
+     * @return 1 if credited, 0 if the wallet is not owned by the user, is striped, or the balance would overflow
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE wallets
+            SET balance = balance + :amount, version = version + 1, updated_at = CURRENT_TIMESTAMP
+            WHERE id = :walletId
+              AND user_id = (SELECT u.id FROM users u WHERE u.username = :username)
+              AND stripes = 1
+              AND balance <= 9223372036854775807 - :amount
+            """, nativeQuery = true)
+    int creditIfOwned(Long walletId, String username, long amount);
+
+    /**
+     * Adds the amount to the own balance of a non-striped wallet having the same currency as the source wallet.
+     *
+     * @return 1 if credited, 0 if the wallet does not exist, has another currency, is striped,
+     * or the balance would overflow
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE wallets
+            SET balance = balance + :amount, version = version + 1, updated_at = CURRENT_TIMESTAMP
+            WHERE id = :walletId
+              AND currency = (SELECT w.currency FROM wallets w WHERE w.id = :sourceWalletId)
+              AND stripes = 1
+              AND balance <= 9223372036854775807 - :amount
+            """, nativeQuery = true)
+    int creditIfSameCurrency(Long walletId, Long sourceWalletId, long amount);
 }
 
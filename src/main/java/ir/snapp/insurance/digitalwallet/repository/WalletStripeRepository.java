@@ -0,0 +1,90 @@
+package ir.snapp.insurance.digitalwallet.repository;
+
+import ir.snapp.insurance.digitalwallet.model.WalletStripe;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+/**
+ * Repository interface for WalletStripe entity operations.
+ *
+ * @author Alireza Khodadoost
+ */
+public interface WalletStripeRepository extends JpaRepository<WalletStripe, Long> {
+
+    /**
+     * Atomically adds the given amount to a single slot without reading it first. The total balance of the wallet,
+     * its own balance plus all slots, must stay within a {@code bigint} too, so the wallet can still be loaded.
+     * Summing the other slots would not see concurrent credits to them under READ COMMITTED, so instead each slot
+     * is capped at an equal share of what the own balance leaves. The own balance of a striped wallet is only ever
+     * debited here, so a stale read of it only makes the cap tighter.
+     *
+     * @return 1 if credited, 0 if the slot does not exist or the balance would overflow
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE wallet_stripes s
+            SET balance = s.balance + :amount
+            FROM wallets w
+            WHERE w.id = :walletId
+              AND s.wallet_id = w.id
+              AND s.slot = :slot
+              AND s.balance <= (9223372036854775807 - GREATEST(w.balance, 0)) / w.stripes - :amount
+            """, nativeQuery = true)
+    int credit(Long walletId, int slot, long amount);
+
+    /**
+     * Adds the amount to slot {@code selector mod stripes} of the user's striped wallet in a single statement. Like
+     * {@link #credit}, it keeps the total balance of the wallet within a {@code bigint}.
+     *
+     * @param selector a non-negative number picking the slot
+     * @return 1 if credited, 0 if the wallet is not owned by the user, is not striped, or the balance would overflow
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE wallet_stripes s
+            SET balance = s.balance + :amount
+            FROM wallets w
+            WHERE w.id = :walletId
+              AND w.user_id = (SELECT u.id FROM users u WHERE u.username = :username)
+              AND w.stripes > 1
+              AND s.wallet_id = w.id
+              AND s.slot = mod(:selector, w.stripes)
+              AND s.balance <= (9223372036854775807 - GREATEST(w.balance, 0)) / w.stripes - :amount
+            """, nativeQuery = true)
+    int creditIfOwned(Long walletId, String username, long selector, long amount);
+
+    /**
+     * Adds the amount to slot {@code selector mod stripes} of a striped wallet having the same currency
+     * as the source wallet, in a single statement. Like {@link #credit}, it keeps the total balance of the wallet
+     * within a {@code bigint}.
+     *
+     * @param selector a non-negative number picking the slot
+     * @return 1 if credited, 0 if the wallet does not exist, has another currency, is not striped,
+     * or the balance would overflow
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE wallet_stripes s
+            SET balance = s.balance + :amount
+            FROM wallets w
+            WHERE w.id = :walletId
+              AND w.currency = (SELECT sw.currency FROM wallets sw WHERE sw.id = :sourceWalletId)
+              AND w.stripes > 1
+              AND s.wallet_id = w.id
+              AND s.slot = mod(:selector, w.stripes)
+              AND s.balance <= (9223372036854775807 - GREATEST(w.balance, 0)) / w.stripes - :amount
+            """, nativeQuery = true)
+    int creditIfSameCurrency(Long walletId, Long sourceWalletId, long selector, long amount);
+
+    /**
+     * Loads and locks all slots of a wallet in slot order, so concurrent debits always lock them in the same order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from walletStripe s where s.wallet.id = :walletId order by s.slot")
+    List<WalletStripe> findAllForUpdate(Long walletId);
+}
@@ -0,0 +1,163 @@
+package ir.snapp.insurance.digitalwallet.repository;
+
+import ir.snapp.insurance.digitalwallet.enums.StatementGranularity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Repository for the per-wallet daily summaries folded from {@code transactions}.
+ * <p>
+ * Transactions are folded in the order of {@code inserted_at}, the database time of their insertion, into the day
+ * of their {@code created_at}. The watermark is an insertion time.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Repository
+@RequiredArgsConstructor
+public class WalletSummaryRepository {
+
+    private static final String FOLD = """
+            INSERT INTO wallet_daily_summary (wallet_id, day, inflow, outflow, transaction_count)
+            SELECT wallet_id, day, SUM(inflow), SUM(outflow), COUNT(*)
+            FROM (SELECT to_wallet_id AS wallet_id, CAST(created_at AS DATE) AS day, amount AS inflow, 0 AS outflow
+                  FROM transactions
+                  WHERE to_wallet_id IS NOT NULL AND inserted_at >= ? AND inserted_at < ?
+                  UNION ALL
+                  SELECT from_wallet_id, CAST(created_at AS DATE), 0, amount
+                  FROM transactions
+                  WHERE from_wallet_id IS NOT NULL AND inserted_at >= ? AND inserted_at < ?) folded
+            GROUP BY wallet_id, day
+            ON CONFLICT (wallet_id, day) DO UPDATE
+                SET inflow            = wallet_daily_summary.inflow + EXCLUDED.inflow,
+                    outflow           = wallet_daily_summary.outflow + EXCLUDED.outflow,
+                    transaction_count = wallet_daily_summary.transaction_count + EXCLUDED.transaction_count
+            """;
+
+    /**
+     * Rows inserted before this are committed or rolled back: it is the start of the oldest transaction still open
+     * in another session that has written anything or is waiting for a lock, possibly to insert a row it already
+     * took the insertion time of, or the present less the lag if that is earlier. Transactions that only read, such
+     * as exports and archivals streaming a month, get no transaction ID and do not hold folding back; one writing
+     * later inserts its rows after the present less the lag. Only client sessions count, so autovacuum does not
+     * hold folding back either.
+     */
+    private static final String FOLD_HORIZON = """
+            SELECT CAST(LEAST(clock_timestamp() - ? * INTERVAL '1 millisecond', MIN(a.xact_start)) AS TIMESTAMP)
+            FROM pg_stat_activity a
+            WHERE a.datname = current_database()
+              AND a.backend_type = 'client backend'
+              AND (a.backend_xid IS NOT NULL OR a.wait_event_type = 'Lock')
+              AND a.pid <> pg_backend_pid()
+            """;
+
+    /**
+     * Days before {@code :from} are summed into one opening row with a {@code NULL} period. Transactions inserted
+     * past the watermark are not folded yet and are aggregated from {@code transactions} directly, read through the
+     * per-wallet {@code inserted_at} indexes from the watermark on.
+     */
+    private static final String STATEMENT = """
+            WITH daily AS (
+                SELECT s.day, s.inflow, s.outflow, s.transaction_count
+                FROM wallet_daily_summary s
+                WHERE s.wallet_id = :walletId AND s.day <= :to
+                UNION ALL
+                SELECT CAST(t.created_at AS DATE),
+                       CASE WHEN t.to_wallet_id = :walletId THEN t.amount ELSE 0 END,
+                       CASE WHEN t.from_wallet_id = :walletId THEN t.amount ELSE 0 END,
+                       1
+                FROM transactions t
+                WHERE (t.from_wallet_id = :walletId OR t.to_wallet_id = :walletId)
+                  AND t.inserted_at >= (SELECT m.folded_until FROM wallet_summary_watermark m WHERE m.id = 1)
+                  AND t.created_at < :toExclusive
+            ),
+            periods AS (
+                SELECT CASE WHEN day < :from THEN NULL
+                            ELSE CAST(date_trunc(:unit, CAST(day AS TIMESTAMP)) AS DATE) END AS period,
+                       CAST(SUM(inflow) AS BIGINT)            AS inflow,
+                       CAST(SUM(outflow) AS BIGINT)           AS outflow,
+                       CAST(SUM(transaction_count) AS BIGINT) AS transaction_count
+                FROM daily
+                GROUP BY 1
+            )
+            SELECT period, inflow, outflow, transaction_count,
+                   CAST(SUM(inflow - outflow) OVER (ORDER BY period NULLS FIRST) AS BIGINT) AS closing_balance
+            FROM periods
+            ORDER BY period NULLS FIRST
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * Locks and returns the watermark, serializing folders. Must run inside a transaction.
+     */
+    public LocalDateTime lockWatermark() {
+        return jdbcTemplate.queryForObject(
+                "SELECT folded_until FROM wallet_summary_watermark WHERE id = 1 FOR UPDATE", LocalDateTime.class);
+    }
+
+    public LocalDateTime findWatermark() {
+        return jdbcTemplate.queryForObject(
+                "SELECT folded_until FROM wallet_summary_watermark WHERE id = 1", LocalDateTime.class);
+    }
+
+    /**
+     * Returns the time up to which transactions can be folded without skipping one still being committed.
+     *
+     * @param lag how far to stay behind the present at least
+     */
+    public LocalDateTime findFoldHorizon(Duration lag) {
+        return jdbcTemplate.queryForObject(FOLD_HORIZON, LocalDateTime.class, lag.toMillis());
+    }
+
+    /**
+     * Adds the transactions inserted in {@code [from, to)} to the summaries and moves the watermark to {@code to}.
+     *
+     * @return the number of summary rows written
+     */
+    public int fold(LocalDateTime from, LocalDateTime to) {
+        int rows = jdbcTemplate.update(FOLD, from, to, from, to);
+        jdbcTemplate.update("UPDATE wallet_summary_watermark SET folded_until = ? WHERE id = 1", to);
+        return rows;
+    }
+
+    /**
+     * Sums the activity of a wallet over the periods between the two days, inclusive.
+     *
+     * @return the periods with activity in order, preceded by a row with a {@code null} period summing
+     * everything before {@code from}, if any
+     */
+    public List<PeriodSummary> findStatement(long walletId, LocalDate from, LocalDate to,
+                                             StatementGranularity granularity) {
+        var params = new MapSqlParameterSource()
+                .addValue("walletId", walletId)
+                .addValue("from", from)
+                .addValue("to", to)
+                .addValue("toExclusive", to.plusDays(1).atStartOfDay())
+                .addValue("unit", granularity.name().toLowerCase(Locale.ROOT));
+        return namedParameterJdbcTemplate.query(STATEMENT, params, (rs, rowNum) -> new PeriodSummary(
+                rs.getObject("period", LocalDate.class),
+                rs.getLong("inflow"),
+                rs.getLong("outflow"),
+                rs.getLong("transaction_count"),
+                rs.getLong("closing_balance")));
+    }
+
+    /**
+     * Activity of a wallet over one period.
+     */
+    public record PeriodSummary(LocalDate period, long inflow, long outflow, long transactionCount,
+                                long closingBalance) {
+    }
+}
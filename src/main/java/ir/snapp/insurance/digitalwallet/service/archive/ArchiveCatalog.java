@@ -0,0 +1,246 @@
+package ir.snapp.insurance.digitalwallet.service.archive;
+
+import ir.snapp.insurance.digitalwallet.config.archive.ArchiveProperties;
+import ir.snapp.insurance.digitalwallet.controller.wallet.dto.TransactionCursor;
+import ir.snapp.insurance.digitalwallet.controller.wallet.dto.TransactionDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Keeps track of the segment files in the archive directory and reads archived transactions from them.
+ * <p>
+ * Only the headers of the segments are kept in memory; lookups read the wallet index and the blocks holding
+ * the wallet's rows from the files. The directory is scanned on startup, after each segment is published and
+ * periodically. Lookups also compare the modification time of the directory with the one of the last scan and
+ * rescan when it moved, so a segment published by another instance sharing the directory is read as soon as its
+ * partition is gone, rather than missed until the next periodic scan.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Slf4j
+@Component
+public class ArchiveCatalog {
+
+    private final ArchiveProperties archiveProperties;
+
+    private volatile List<ArchiveSegment> segments = List.of();
+
+    private volatile FileTime scannedModifiedAt;
+
+    public ArchiveCatalog(ArchiveProperties archiveProperties) {
+        this.archiveProperties = archiveProperties;
+    }
+
+    /**
+     * Reads the headers of the segment files in the archive directory.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${archive.rescan-interval:PT5M}")
+    public synchronized void refresh() {
+        Path directory = archiveProperties.getDirectory();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        FileTime modifiedAt = lastModified(directory);
+        List<ArchiveSegment> found = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Optional<YearMonth> month = ArchiveSegment.monthOf(file);
+                if (month.isPresent()) {
+                    found.add(open(file, month.get()));
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to scan the transaction archive {}: {}", directory, e.getMessage(), e);
+            return;
+        }
+        found.removeIf(Objects::isNull);
+        found.sort(Comparator.comparing(ArchiveSegment::getMonth));
+
+        if (!sameSegments(found, segments)) {
+            segments = List.copyOf(found);
+            log.info("Loaded {} transaction archive segments from {}", found.size(), directory);
+        }
+        scannedModifiedAt = modifiedAt;
+    }
+
+    /**
+     * Returns the archived months.
+     */
+    public List<YearMonth> getMonths() {
+        return currentSegments().stream().map(ArchiveSegment::getMonth).toList();
+    }
+
+    /**
+     * Returns the creation time of the latest archived transaction, if any. Transactions in the database created
+     * after it come after every archived one.
+     */
+    public Optional<LocalDateTime> getArchivedUntil() {
+        return currentSegments().stream()
+                .filter(segment -> segment.getRowCount() > 0)
+                .map(ArchiveSegment::getMaxCreatedAt)
+                .max(Comparator.naturalOrder());
+    }
+
+    /**
+     * Returns the number of archived transactions of the wallet created within the range, read from the wallet
+     * index of each segment.
+     */
+    public long countWalletTransactions(long walletId, LocalDateTime start, LocalDateTime end) {
+        long count = 0;
+        for (ArchiveSegment segment : currentSegments()) {
+            try {
+                count += segment.countWalletTransactions(walletId, start, end);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read transaction archive " + segment.getPath(), e);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns up to {@code limit} archived transactions of the wallet created within the range, starting at the
+     * given offset, ordered by creation time and ID. Segments wholly before the offset are skipped by their
+     * counts, and the offset within the first segment read is found in its index.
+     */
+    public List<TransactionDto> findWalletTransactions(long walletId, LocalDateTime start, LocalDateTime end,
+                                                       long offset, int limit) {
+        List<TransactionDto> found = new ArrayList<>(Math.min(limit, 1024));
+        if (limit == 0) {
+            return found;
+        }
+        long skip = offset;
+        for (ArchiveSegment segment : currentSegments()) {
+            try {
+                if (skip > 0) {
+                    long count = segment.countWalletTransactions(walletId, start, end);
+                    if (skip >= count) {
+                        skip -= count;
+                        continue;
+                    }
+                }
+                boolean more = segment.forEachWalletTransaction(walletId, start, end, skip, transaction -> {
+                    found.add(transaction);
+                    return found.size() < limit;
+                });
+                skip = 0;
+                if (!more) {
+                    break;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read transaction archive " + segment.getPath(), e);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns up to {@code limit} archived transactions of the wallet created within the range that come after
+     * the cursor, ordered by creation time and ID.
+     */
+    public List<TransactionDto> findWalletTransactionsAfter(long walletId, LocalDateTime start, LocalDateTime end,
+                                                            TransactionCursor after, int limit) {
+        List<TransactionDto> found = new ArrayList<>(Math.min(limit, 1024));
+        LocalDateTime from = after.createdAt().isAfter(start) ? after.createdAt() : start;
+        read(walletId, from, end, transaction -> {
+            if (after.precedes(transaction)) {
+                found.add(transaction);
+            }
+            return found.size() < limit;
+        });
+        return found;
+    }
+
+    /**
+     * Passes each archived transaction of the wallet created within the range to the consumer, ordered by
+     * creation time and ID, without holding them in memory.
+     */
+    public void forEachWalletTransaction(long walletId, LocalDateTime start, LocalDateTime end,
+                                         Consumer<TransactionDto> consumer) {
+        read(walletId, start, end, transaction -> {
+            consumer.accept(transaction);
+            return true;
+        });
+    }
+
+    /**
+     * Segments cover one month each, so reading them in month order keeps the transactions ordered.
+     */
+    private void read(long walletId, LocalDateTime start, LocalDateTime end, Predicate<TransactionDto> consumer) {
+        for (ArchiveSegment segment : currentSegments()) {
+            try {
+                if (!segment.forEachWalletTransaction(walletId, start, end, 0, consumer)) {
+                    return;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read transaction archive " + segment.getPath(), e);
+            }
+        }
+    }
+
+    /**
+     * Returns the segments, rescanning the directory first if it changed since the last scan. Publishing a
+     * segment renames it into the directory, which moves its modification time.
+     */
+    private List<ArchiveSegment> currentSegments() {
+        FileTime modifiedAt = lastModified(archiveProperties.getDirectory());
+        if (modifiedAt != null && !modifiedAt.equals(scannedModifiedAt)) {
+            synchronized (this) {
+                if (!modifiedAt.equals(scannedModifiedAt)) {
+                    refresh();
+                }
+            }
+        }
+        return segments;
+    }
+
+    private static FileTime lastModified(Path directory) {
+        try {
+            return Files.getLastModifiedTime(directory);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static ArchiveSegment open(Path file, YearMonth month) {
+        try {
+            return ArchiveSegment.open(file, month);
+        } catch (IOException e) {
+            log.error("Skipping unreadable transaction archive {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean sameSegments(List<ArchiveSegment> found, List<ArchiveSegment> current) {
+        if (found.size() != current.size()) {
+            return false;
+        }
+        for (int i = 0; i < found.size(); i++) {
+            if (!found.get(i).getMonth().equals(current.get(i).getMonth())
+                    || found.get(i).getSize() != current.get(i).getSize()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
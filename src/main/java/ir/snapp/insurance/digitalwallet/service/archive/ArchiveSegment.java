@@ -0,0 +1,917 @@
+package ir.snapp.insurance.digitalwallet.service.archive;
+
+import ir.snapp.insurance.digitalwallet.controller.wallet.dto.TransactionDto;
+import lombok.Getter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A file holding the transactions of one month, stored column by column, with an index of the rows of each
+ * wallet.
+ * <p>
+ * The file starts with a header: the number of rows, the range of creation times and wallet IDs they cover,
+ * the names of the transaction types, and where each block of each column starts. Rows are ordered by
+ * {@code (created_at, id)} and split into blocks of {@value #BLOCK_ROWS}; each block of each column is its own
+ * gzip stream, so a row is read by decompressing its block only. Creation times are stored as deltas in
+ * microseconds from the previous row of the block and missing wallets as zero, so the columns compress well.
+ * </p>
+ * <p>
+ * The columns are followed by the wallet index: a directory of the wallet IDs in ascending order, each with
+ * the position of its first row number, and the row numbers of every wallet in ascending order. A lookup
+ * binary searches the directory, narrows the wallet's row numbers to the requested time range using the first
+ * creation time of each block, and then decompresses only the blocks holding those rows. Counting the rows of a
+ * wallet in a range decompresses at most the two blocks at the ends of the range.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Getter
+public final class ArchiveSegment {
+
+    private static final int MAGIC = 0x57545853;
+    private static final short VERSION = 2;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int BLOCK_ROWS = 1024;
+    private static final int DIRECTORY_ENTRY_SIZE = 2 * Long.BYTES;
+
+    private static final int ID = 0;
+    private static final int TYPE = 1;
+    private static final int AMOUNT = 2;
+    private static final int FROM_WALLET = 3;
+    private static final int TO_WALLET = 4;
+    private static final int CREATED_AT = 5;
+    private static final int COLUMNS = 6;
+
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern FILE_NAME = Pattern.compile("transactions-(\\d{6})\\.seg");
+    private static final Pattern PENDING_FILE_NAME =
+            Pattern.compile("transactions-(\\d{6})\\.seg\\.[0-9a-f-]{36}\\.pending");
+
+    private final Path path;
+    private final YearMonth month;
+    private final long size;
+    private final long rowCount;
+    private final LocalDateTime minCreatedAt;
+    private final LocalDateTime maxCreatedAt;
+    private final long minWalletId;
+    private final long maxWalletId;
+    private final List<String> types;
+    private final long[] blockFirstMicros;
+    private final long[][] blockOffsets;
+    private final long walletCount;
+    private final long directoryOffset;
+    private final long postingsOffset;
+    private final long postingCount;
+
+    private ArchiveSegment(Path path, YearMonth month, long size, DataInputStream header, long dataStart)
+            throws IOException {
+        this.path = path;
+        this.month = month;
+        this.size = size;
+        this.rowCount = header.readLong();
+        this.minCreatedAt = fromMicros(header.readLong());
+        this.maxCreatedAt = fromMicros(header.readLong());
+        this.minWalletId = header.readLong();
+        this.maxWalletId = header.readLong();
+        int typeCount = header.readUnsignedByte();
+        this.types = new ArrayList<>(typeCount);
+        for (int i = 0; i < typeCount; i++) {
+            types.add(header.readUTF());
+        }
+        int blockCount = header.readInt();
+        if (blockCount != blockOf(rowCount + BLOCK_ROWS - 1)) {
+            throw new IOException("Segment file " + path + " has " + blockCount + " blocks for " + rowCount + " rows");
+        }
+        this.blockFirstMicros = new long[blockCount];
+        for (int block = 0; block < blockCount; block++) {
+            blockFirstMicros[block] = header.readLong();
+        }
+        this.blockOffsets = new long[COLUMNS][blockCount + 1];
+        for (int column = 0; column < COLUMNS; column++) {
+            for (int block = 0; block <= blockCount; block++) {
+                blockOffsets[column][block] = dataStart + header.readLong();
+            }
+        }
+        this.walletCount = header.readLong();
+        this.directoryOffset = dataStart + header.readLong();
+        this.postingsOffset = dataStart + header.readLong();
+        this.postingCount = header.readLong();
+        if (postingsOffset + postingCount * Integer.BYTES != size) {
+            throw new IOException("Segment file " + path + " is " + size + " bytes long, not as its header says");
+        }
+    }
+
+    public static Path pathOf(Path directory, YearMonth month) {
+        return directory.resolve("transactions-" + month.format(MONTH_FORMAT) + ".seg");
+    }
+
+    /**
+     * Returns a new path, unique to the caller, for a segment of the given month that is written but not published
+     * yet. Pending segments are not read.
+     */
+    public static Path pendingPathOf(Path directory, YearMonth month) {
+        return directory.resolve(pathOf(directory, month).getFileName() + "." + UUID.randomUUID() + ".pending");
+    }
+
+    /**
+     * Returns the month of the segment file with the given name, if it is one.
+     */
+    public static Optional<YearMonth> monthOf(Path file) {
+        return monthOf(FILE_NAME, file);
+    }
+
+    /**
+     * Returns the month of the pending segment file with the given name, if it is one.
+     */
+    public static Optional<YearMonth> pendingMonthOf(Path file) {
+        return monthOf(PENDING_FILE_NAME, file);
+    }
+
+    private static Optional<YearMonth> monthOf(Pattern pattern, Path file) {
+        Matcher matcher = pattern.matcher(file.getFileName().toString());
+        return matcher.matches()
+                ? Optional.of(YearMonth.parse(matcher.group(1), MONTH_FORMAT))
+                : Optional.empty();
+    }
+
+    /**
+     * Reads the header of the segment file of the given month.
+     */
+    public static ArchiveSegment open(Path path, YearMonth month) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             var in = new DataInputStream(new BufferedInputStream(
+                     new RegionInputStream(channel, 0, channel.size())))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                throw new IOException("Not a transaction segment: " + path);
+            }
+            int headerLength = in.readInt();
+            return new ArchiveSegment(path, month, channel.size(), in, 10L + headerLength);
+        }
+    }
+
+    /**
+     * Whether the segment may hold transactions of the wallet created within the range.
+     */
+    public boolean mayContain(long walletId, LocalDateTime start, LocalDateTime end) {
+        return rowCount > 0
+                && walletId >= minWalletId && walletId <= maxWalletId
+                && !maxCreatedAt.isBefore(start) && !minCreatedAt.isAfter(end);
+    }
+
+    /**
+     * Returns the number of transactions of the wallet created within the range.
+     */
+    public long countWalletTransactions(long walletId, LocalDateTime start, LocalDateTime end) throws IOException {
+        if (!mayContain(walletId, start, end)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] postings = postings(channel, walletId, start, end);
+            return postings[1] - postings[0];
+        }
+    }
+
+    /**
+     * Passes the transactions of the wallet created within the range to the consumer, ordered by creation time
+     * and ID, after skipping the given number of them, until the consumer returns {@code false}.
+     *
+     * @return {@code false} if the consumer stopped the scan
+     */
+    public boolean forEachWalletTransaction(long walletId, LocalDateTime start, LocalDateTime end, long skip,
+                                            Predicate<TransactionDto> consumer) throws IOException {
+        if (!mayContain(walletId, start, end)) {
+            return true;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] postings = postings(channel, walletId, start, end);
+            long first = postings[0] + skip;
+            if (first >= postings[1]) {
+                return true;
+            }
+            int[] rows = new int[BLOCK_ROWS];
+            int count = 0;
+            try (var in = new DataInputStream(new BufferedInputStream(new RegionInputStream(channel,
+                    postingsOffset + first * Integer.BYTES, postingsOffset + postings[1] * Integer.BYTES)))) {
+                for (long posting = first; posting < postings[1]; posting++) {
+                    int row = in.readInt();
+                    if (count > 0 && blockOf(row) != blockOf(rows[0])) {
+                        if (!readRows(channel, rows, count, consumer)) {
+                            return false;
+                        }
+                        count = 0;
+                    }
+                    rows[count++] = row;
+                }
+            }
+            return readRows(channel, rows, count, consumer);
+        }
+    }
+
+    /**
+     * Reads every block of every column and the whole wallet index, so each gzip stream checks its checksum and
+     * every row is known to be indexed, and returns the number of rows.
+     *
+     * @throws IOException if the file is truncated or corrupted
+     */
+    public long verify() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long rows = 0;
+            long expectedPostings = 0;
+            long expectedChecksum = 0;
+            long previousMicros = Long.MIN_VALUE;
+            for (int block = 0; block < blockFirstMicros.length; block++) {
+                int blockRows = (int) Math.min(BLOCK_ROWS, rowCount - rows);
+                try (var id = column(channel, ID, block);
+                     var type = column(channel, TYPE, block);
+                     var amount = column(channel, AMOUNT, block);
+                     var from = column(channel, FROM_WALLET, block);
+                     var to = column(channel, TO_WALLET, block);
+                     var createdAt = column(channel, CREATED_AT, block)) {
+                    long micros = 0;
+                    for (int row = 0; row < blockRows; row++) {
+                        id.readLong();
+                        id.readLong();
+                        if (type.readUnsignedByte() >= types.size()) {
+                            throw new IOException("Segment file " + path + " has an unknown transaction type");
+                        }
+                        amount.readLong();
+                        long fromWalletId = from.readLong();
+                        long toWalletId = to.readLong();
+                        micros += createdAt.readLong();
+                        if (micros < previousMicros || row == 0 && micros != blockFirstMicros[block]) {
+                            throw new IOException("Segment file " + path + " is not ordered by creation time");
+                        }
+                        previousMicros = micros;
+                        if (fromWalletId != 0) {
+                            expectedPostings++;
+                            expectedChecksum += postingChecksum(fromWalletId, (int) rows + row);
+                        }
+                        if (toWalletId != 0 && toWalletId != fromWalletId) {
+                            expectedPostings++;
+                            expectedChecksum += postingChecksum(toWalletId, (int) rows + row);
+                        }
+                    }
+                    for (var in : List.of(id, type, amount, from, to, createdAt)) {
+                        if (in.read() != -1) {
+                            throw new IOException("Segment file " + path + " has more rows than its header");
+                        }
+                    }
+                }
+                rows += blockRows;
+            }
+            verifyIndex(channel, expectedPostings, expectedChecksum);
+            return rows;
+        }
+    }
+
+    /**
+     * Checks that the index lists each wallet once, in ascending order, with its rows in ascending order, and
+     * that it holds exactly the wallet rows of the columns, compared through an order-independent checksum.
+     */
+    private void verifyIndex(FileChannel channel, long expectedPostings, long expectedChecksum) throws IOException {
+        if (postingCount != expectedPostings) {
+            throw new IOException("Segment file " + path + " indexes " + postingCount + " wallet rows, not "
+                    + expectedPostings);
+        }
+        try (var directory = new DataInputStream(new BufferedInputStream(
+                new RegionInputStream(channel, directoryOffset, postingsOffset), BUFFER_SIZE));
+             var postings = new DataInputStream(new BufferedInputStream(
+                     new RegionInputStream(channel, postingsOffset, size), BUFFER_SIZE))) {
+            long checksum = 0;
+            long posting = 0;
+            long nextWalletId = walletCount > 0 ? directory.readLong() : 0;
+            long nextFirst = walletCount > 0 ? directory.readLong() : 0;
+            long previousWalletId = 0;
+            for (long entry = 0; entry < walletCount; entry++) {
+                long walletId = nextWalletId;
+                if (walletId <= previousWalletId || nextFirst != posting) {
+                    throw new IOException("Segment file " + path + " has a corrupted wallet index");
+                }
+                long last = postingCount;
+                if (entry + 1 < walletCount) {
+                    nextWalletId = directory.readLong();
+                    nextFirst = directory.readLong();
+                    last = nextFirst;
+                }
+                int previousRow = -1;
+                for (; posting < last; posting++) {
+                    int row = postings.readInt();
+                    if (row <= previousRow || row >= rowCount) {
+                        throw new IOException("Segment file " + path + " has a corrupted wallet index");
+                    }
+                    checksum += postingChecksum(walletId, row);
+                    previousRow = row;
+                }
+                previousWalletId = walletId;
+            }
+            if (posting != postingCount || checksum != expectedChecksum) {
+                throw new IOException("Segment file " + path + " has a wallet index not matching its rows");
+            }
+        }
+    }
+
+    /**
+     * Returns the positions, among the row numbers of the index, of the first row of the wallet created within
+     * the range and of the one after its last.
+     */
+    private long[] postings(FileChannel channel, long walletId, LocalDateTime start, LocalDateTime end)
+            throws IOException {
+        long low = 0;
+        long high = walletCount - 1;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            long middleWalletId = readLong(channel, directoryOffset + middle * DIRECTORY_ENTRY_SIZE);
+            if (middleWalletId < walletId) {
+                low = middle + 1;
+            } else if (middleWalletId > walletId) {
+                high = middle - 1;
+            } else {
+                long first = readLong(channel, directoryOffset + middle * DIRECTORY_ENTRY_SIZE + Long.BYTES);
+                long last = middle + 1 < walletCount
+                        ? readLong(channel, directoryOffset + (middle + 1) * DIRECTORY_ENTRY_SIZE + Long.BYTES)
+                        : postingCount;
+                int firstRow = firstRowAtOrAfter(channel, toMicros(start));
+                int endRow = end.isBefore(maxCreatedAt) ? firstRowAtOrAfter(channel, toMicros(end) + 1) : (int) rowCount;
+                return new long[]{lowerBound(channel, first, last, firstRow), lowerBound(channel, first, last, endRow)};
+            }
+        }
+        return new long[]{0, 0};
+    }
+
+    /**
+     * Returns the number of the first row created at or after the given time, decompressing the creation times
+     * of one block at most.
+     */
+    private int firstRowAtOrAfter(FileChannel channel, long micros) throws IOException {
+        int block = Arrays.binarySearch(blockFirstMicros, micros);
+        if (block >= 0) {
+            // Several blocks may start at the same time; the rows sought may begin in an earlier one.
+            while (block > 0 && blockFirstMicros[block - 1] == micros) {
+                block--;
+            }
+            if (block == 0) {
+                return 0;
+            }
+            block--;
+        } else {
+            block = -block - 2;
+            if (block < 0) {
+                return 0;
+            }
+        }
+        int firstRow = block * BLOCK_ROWS;
+        int blockRows = (int) Math.min(BLOCK_ROWS, rowCount - firstRow);
+        try (var createdAt = column(channel, CREATED_AT, block)) {
+            long rowMicros = 0;
+            for (int row = 0; row < blockRows; row++) {
+                rowMicros += createdAt.readLong();
+                if (rowMicros >= micros) {
+                    return firstRow + row;
+                }
+            }
+        }
+        return firstRow + blockRows;
+    }
+
+    /**
+     * Returns the first position within {@code [from, to)} of the row numbers of the index holding a row at or
+     * after the given one.
+     */
+    private long lowerBound(FileChannel channel, long from, long to, int row) throws IOException {
+        long low = from;
+        long high = to;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (readInt(channel, postingsOffset + middle * Integer.BYTES) < row) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Decompresses the block holding the given rows, up to the last of them, and passes the rows to the consumer.
+     */
+    private boolean readRows(FileChannel channel, int[] rows, int count, Predicate<TransactionDto> consumer)
+            throws IOException {
+        int block = blockOf(rows[0]);
+        int firstRow = block * BLOCK_ROWS;
+        try (var id = column(channel, ID, block);
+             var type = column(channel, TYPE, block);
+             var amount = column(channel, AMOUNT, block);
+             var from = column(channel, FROM_WALLET, block);
+             var to = column(channel, TO_WALLET, block);
+             var createdAt = column(channel, CREATED_AT, block)) {
+            long micros = 0;
+            int next = 0;
+            for (int row = firstRow; next < count; row++) {
+                long mostSigBits = id.readLong();
+                long leastSigBits = id.readLong();
+                int typeIndex = type.readUnsignedByte();
+                long value = amount.readLong();
+                long fromWalletId = from.readLong();
+                long toWalletId = to.readLong();
+                micros += createdAt.readLong();
+                if (row == rows[next]) {
+                    next++;
+                    if (!consumer.test(new TransactionDto(
+                            new UUID(mostSigBits, leastSigBits),
+                            types.get(typeIndex),
+                            value,
+                            fromWalletId != 0 ? fromWalletId : null,
+                            toWalletId != 0 ? toWalletId : null,
+                            fromMicros(micros)))) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private DataInputStream column(FileChannel channel, int column, int block) throws IOException {
+        var region = new RegionInputStream(channel, blockOffsets[column][block], blockOffsets[column][block + 1]);
+        return new DataInputStream(new BufferedInputStream(new GZIPInputStream(region, BUFFER_SIZE), BUFFER_SIZE));
+    }
+
+    private static long readLong(FileChannel channel, long position) throws IOException {
+        return read(channel, position, Long.BYTES).getLong();
+    }
+
+    private static int readInt(FileChannel channel, long position) throws IOException {
+        return read(channel, position, Integer.BYTES).getInt();
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        var buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Segment file ends inside its index");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static int blockOf(long row) {
+        return (int) (row / BLOCK_ROWS);
+    }
+
+    private static long postingChecksum(long walletId, int row) {
+        long hash = walletId * 0x9E3779B97F4A7C15L + row;
+        hash ^= hash >>> 32;
+        hash *= 0xD6E8FEB86659FD93L;
+        return hash ^ hash >>> 32;
+    }
+
+    private static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(
+                Math.floorDiv(micros, 1_000_000), (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Writes a segment file from rows appended in the order of {@code (created_at, id)}.
+     * <p>
+     * Each column is compressed into its own temporary file as rows arrive. The wallet index is built by an
+     * external sort: the pairs of wallet ID and row number are sorted in runs of bounded size, each written to a
+     * temporary file, and the runs are merged when the segment is finished, so memory use does not depend on the
+     * number of rows. {@link #finish()} joins everything behind the header and moves the result into place
+     * atomically, so a segment file is either complete or absent.
+     * </p>
+     */
+    public static final class Writer implements Closeable {
+
+        /**
+         * A pair is sorted as one long, the wallet ID above the row number relative to the first row of its run.
+         */
+        private static final int RUN_ROW_BITS = 20;
+        private static final int RUN_SIZE = 1 << RUN_ROW_BITS;
+        private static final int MAX_WALLET_ID_BITS = Long.SIZE - 1 - RUN_ROW_BITS;
+
+        private final Path target;
+        private final Path[] columnFiles = new Path[COLUMNS];
+        private final FileChannel[] columnChannels = new FileChannel[COLUMNS];
+        private final DataOutputStream[] columns = new DataOutputStream[COLUMNS];
+        private final List<long[]> blockOffsets = new ArrayList<>();
+        private final List<Long> blockFirstMicros = new ArrayList<>();
+        private final Map<String, Integer> types = new LinkedHashMap<>();
+        private final List<Path> runFiles = new ArrayList<>();
+        private final long[] run = new long[RUN_SIZE];
+
+        private int runSize;
+        private int runFirstRow;
+        private long rowCount;
+        private long previousMicros;
+        private long minMicros = Long.MAX_VALUE;
+        private long maxMicros = Long.MIN_VALUE;
+        private long minWalletId = Long.MAX_VALUE;
+        private long maxWalletId = Long.MIN_VALUE;
+        private boolean finished;
+
+        public Writer(Path target) throws IOException {
+            this.target = target;
+            try {
+                for (int column = 0; column < COLUMNS; column++) {
+                    columnFiles[column] = temporary(".col" + column);
+                    columnChannels[column] = FileChannel.open(columnFiles[column], StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        public void append(UUID id, String type, long amount, Long fromWalletId, Long toWalletId,
+                           LocalDateTime createdAt) throws IOException {
+            Integer typeIndex = types.get(type);
+            if (typeIndex == null) {
+                typeIndex = types.size();
+                types.put(type, typeIndex);
+            }
+            long micros = toMicros(createdAt);
+            if (rowCount % BLOCK_ROWS == 0) {
+                startBlock(micros);
+            }
+
+            columns[ID].writeLong(id.getMostSignificantBits());
+            columns[ID].writeLong(id.getLeastSignificantBits());
+            columns[TYPE].writeByte(typeIndex);
+            columns[AMOUNT].writeLong(amount);
+            columns[FROM_WALLET].writeLong(fromWalletId != null ? fromWalletId : 0);
+            columns[TO_WALLET].writeLong(toWalletId != null ? toWalletId : 0);
+            columns[CREATED_AT].writeLong(micros - previousMicros);
+
+            previousMicros = micros;
+            minMicros = Math.min(minMicros, micros);
+            maxMicros = Math.max(maxMicros, micros);
+            if (fromWalletId != null) {
+                index(fromWalletId);
+            }
+            if (toWalletId != null && !toWalletId.equals(fromWalletId)) {
+                index(toWalletId);
+            }
+            rowCount++;
+        }
+
+        /**
+         * Writes the segment file and returns the number of rows in it.
+         */
+        public long finish() throws IOException {
+            endBlock();
+            flushRun();
+            long[] columnLengths = new long[COLUMNS];
+            for (int column = 0; column < COLUMNS; column++) {
+                columnLengths[column] = columnChannels[column].size();
+                columnChannels[column].close();
+            }
+            Path directoryFile = temporary(".dir");
+            Path postingsFile = temporary(".idx");
+            long[] index = writeIndex(directoryFile, postingsFile);
+
+            var header = new ByteArrayOutputStream();
+            var out = new DataOutputStream(header);
+            out.writeLong(rowCount);
+            out.writeLong(rowCount > 0 ? minMicros : 0);
+            out.writeLong(rowCount > 0 ? maxMicros : 0);
+            out.writeLong(minWalletId <= maxWalletId ? minWalletId : 0);
+            out.writeLong(minWalletId <= maxWalletId ? maxWalletId : 0);
+            out.writeByte(types.size());
+            for (String type : types.keySet()) {
+                out.writeUTF(type);
+            }
+            out.writeInt(blockFirstMicros.size());
+            for (long micros : blockFirstMicros) {
+                out.writeLong(micros);
+            }
+            long offset = 0;
+            for (int column = 0; column < COLUMNS; column++) {
+                out.writeLong(offset);
+                for (long[] blockEnds : blockOffsets) {
+                    out.writeLong(offset + blockEnds[column]);
+                }
+                offset += columnLengths[column];
+            }
+            out.writeLong(index[0]);
+            out.writeLong(offset);
+            out.writeLong(offset + Files.size(directoryFile));
+            out.writeLong(index[1]);
+
+            Path temporary = temporary("");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                var prefix = ByteBuffer.allocate(10);
+                prefix.putInt(MAGIC).putShort(VERSION).putInt(header.size()).flip();
+                writeFully(channel, prefix);
+                writeFully(channel, ByteBuffer.wrap(header.toByteArray()));
+                for (Path columnFile : columnFiles) {
+                    transfer(columnFile, channel);
+                }
+                transfer(directoryFile, channel);
+                transfer(postingsFile, channel);
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            finished = true;
+            close();
+            return rowCount;
+        }
+
+        /**
+         * Removes the temporary files, and the unfinished segment if {@link #finish()} was not reached.
+         */
+        @Override
+        public void close() throws IOException {
+            for (int column = 0; column < COLUMNS; column++) {
+                if (columns[column] != null && !finished) {
+                    try {
+                        columns[column].close();
+                    } catch (IOException ignored) {
+                        // The file is deleted anyway.
+                    }
+                }
+                if (columnChannels[column] != null) {
+                    columnChannels[column].close();
+                }
+                if (columnFiles[column] != null) {
+                    Files.deleteIfExists(columnFiles[column]);
+                }
+            }
+            for (Path runFile : runFiles) {
+                Files.deleteIfExists(runFile);
+            }
+            for (String suffix : List.of(".dir", ".idx", "")) {
+                Files.deleteIfExists(temporary(suffix));
+            }
+        }
+
+        /**
+         * Ends the current block of every column, if any, and starts a new one at the row created at the given
+         * time.
+         */
+        private void startBlock(long micros) throws IOException {
+            endBlock();
+            for (int column = 0; column < COLUMNS; column++) {
+                var file = new UnclosedOutputStream(Channels.newOutputStream(columnChannels[column]));
+                columns[column] = new DataOutputStream(new BufferedOutputStream(
+                        new GZIPOutputStream(file, BUFFER_SIZE), BUFFER_SIZE));
+            }
+            blockFirstMicros.add(micros);
+            previousMicros = 0;
+        }
+
+        private void endBlock() throws IOException {
+            if (columns[0] == null) {
+                return;
+            }
+            long[] blockEnds = new long[COLUMNS];
+            for (int column = 0; column < COLUMNS; column++) {
+                columns[column].close();
+                columns[column] = null;
+                blockEnds[column] = columnChannels[column].position();
+            }
+            blockOffsets.add(blockEnds);
+        }
+
+        private void index(long walletId) throws IOException {
+            if (walletId <= 0 || walletId >>> MAX_WALLET_ID_BITS != 0) {
+                throw new IOException("Wallet ID " + walletId + " cannot be indexed");
+            }
+            if (runSize == RUN_SIZE) {
+                flushRun();
+            }
+            if (runSize == 0) {
+                runFirstRow = Math.toIntExact(rowCount);
+            }
+            run[runSize++] = walletId << RUN_ROW_BITS | (rowCount - runFirstRow);
+            minWalletId = Math.min(minWalletId, walletId);
+            maxWalletId = Math.max(maxWalletId, walletId);
+        }
+
+        /**
+         * Sorts the pairs collected so far by wallet ID and row number and writes them to a run file.
+         */
+        private void flushRun() throws IOException {
+            if (runSize == 0) {
+                return;
+            }
+            Arrays.sort(run, 0, runSize);
+            Path runFile = temporary(".run" + runFiles.size());
+            runFiles.add(runFile);
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(runFile), BUFFER_SIZE))) {
+                for (int i = 0; i < runSize; i++) {
+                    out.writeLong(run[i] >>> RUN_ROW_BITS);
+                    out.writeInt(runFirstRow + (int) (run[i] & (RUN_SIZE - 1)));
+                }
+            }
+            runSize = 0;
+        }
+
+        /**
+         * Merges the runs into the directory and row numbers of the wallet index, and returns the number of
+         * wallets and of row numbers. Runs cover consecutive rows, so for equal wallet IDs the earlier run comes
+         * first.
+         */
+        private long[] writeIndex(Path directoryFile, Path postingsFile) throws IOException {
+            var queue = new PriorityQueue<RunReader>(Math.max(1, runFiles.size()), Comparator
+                    .comparingLong(RunReader::walletId)
+                    .thenComparingInt(RunReader::run));
+            long walletCount = 0;
+            long postingCount = 0;
+            try (var directory = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(directoryFile), BUFFER_SIZE));
+                 var postings = new DataOutputStream(new BufferedOutputStream(
+                         Files.newOutputStream(postingsFile), BUFFER_SIZE))) {
+                for (int i = 0; i < runFiles.size(); i++) {
+                    var reader = new RunReader(runFiles.get(i), i);
+                    if (reader.next()) {
+                        queue.add(reader);
+                    }
+                }
+                long previousWalletId = 0;
+                while (!queue.isEmpty()) {
+                    RunReader reader = queue.poll();
+                    if (reader.walletId() != previousWalletId) {
+                        directory.writeLong(reader.walletId());
+                        directory.writeLong(postingCount);
+                        previousWalletId = reader.walletId();
+                        walletCount++;
+                    }
+                    postings.writeInt(reader.row());
+                    postingCount++;
+                    if (reader.next()) {
+                        queue.add(reader);
+                    }
+                }
+            } finally {
+                for (RunReader reader : queue) {
+                    reader.close();
+                }
+            }
+            return new long[]{walletCount, postingCount};
+        }
+
+        private Path temporary(String suffix) {
+            return target.resolveSibling(target.getFileName() + suffix + ".tmp");
+        }
+
+        private static void transfer(Path file, FileChannel channel) throws IOException {
+            try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = source.size();
+                for (long position = 0; position < size; ) {
+                    position += source.transferTo(position, size - position, channel);
+                }
+            }
+        }
+
+        private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads the sorted pairs of wallet ID and row number of one run file.
+     */
+    private static final class RunReader implements Closeable {
+
+        private final DataInputStream in;
+        private final int run;
+        private long remaining;
+        private long walletId;
+        private int row;
+
+        private RunReader(Path file, int run) throws IOException {
+            this.remaining = Files.size(file) / (Long.BYTES + Integer.BYTES);
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+            this.run = run;
+        }
+
+        /**
+         * Reads the next pair, or closes the run and returns {@code false} at its end.
+         */
+        private boolean next() throws IOException {
+            if (remaining == 0) {
+                close();
+                return false;
+            }
+            remaining--;
+            walletId = in.readLong();
+            row = in.readInt();
+            return true;
+        }
+
+        private long walletId() {
+            return walletId;
+        }
+
+        private int row() {
+            return row;
+        }
+
+        private int run() {
+            return run;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Lets a block's gzip stream be closed, writing its trailer, without closing the column file beneath it.
+     */
+    private static final class UnclosedOutputStream extends FilterOutputStream {
+
+        private UnclosedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    /**
+     * Reads a region of a file with positional reads, so several columns can be read from one channel at once.
+     */
+    private static final class RegionInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        private RegionInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(buffer, offset, (int) Math.min(length, end - position)), position);
+            if (read < 0) {
+                throw new EOFException("Segment file ends inside a column");
+            }
+            position += read;
+            return read;
+        }
+    }
+}
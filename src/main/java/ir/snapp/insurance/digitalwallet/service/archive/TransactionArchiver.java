@@ -0,0 +1,219 @@
+package ir.snapp.insurance.digitalwallet.service.archive;
+
+import ir.snapp.insurance.digitalwallet.config.archive.ArchiveProperties;
+import ir.snapp.insurance.digitalwallet.repository.TransactionPartitionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Moves the transactions of months older than {@code archive.after-months} out of the database into segment
+ * files, one per month.
+ * <p>
+ * A month is archived in a single transaction: its partition is locked against writes, its rows are written to
+ * a pending segment and read back in full to verify it, and only then is the partition detached and dropped.
+ * The pending segment is published under its final name only once the transaction has committed, so no reader
+ * sees a month both in the database and in the archive, and the catalog is refreshed right after, so readers
+ * miss it for no longer than the rename takes. If anything fails the transaction rolls back, the
+ * pending segment is deleted and the month stays in the database, to be retried on the next run. Partition
+ * tables detached for retention and not dropped yet are archived the same way.
+ * </p>
+ * <p>
+ * A pending segment left behind by a crash between the commit and the publication is published by the next
+ * run, on any instance: a pending segment of a month whose partition no longer exists belongs to a committed
+ * archival.
+ * </p>
+ *
+ * @author Alireza Khodadoust
+ */
+@Slf4j
+@Service
+public class TransactionArchiver {
+
+    private final TransactionPartitionRepository transactionPartitionRepository;
+    private final ArchiveCatalog archiveCatalog;
+    private final ArchiveProperties archiveProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    public TransactionArchiver(
+            TransactionPartitionRepository transactionPartitionRepository,
+            ArchiveCatalog archiveCatalog,
+            ArchiveProperties archiveProperties,
+            PlatformTransactionManager transactionManager) {
+        this.transactionPartitionRepository = transactionPartitionRepository;
+        this.archiveCatalog = archiveCatalog;
+        this.archiveProperties = archiveProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(cron = "${archive.cron:0 30 3 * * *}")
+    public void archiveClosedMonths() {
+        if (!archiveProperties.isEnabled()) {
+            return;
+        }
+        YearMonth oldestKept = YearMonth.now().minusMonths(archiveProperties.getAfterMonths());
+        Set<YearMonth> attached = new HashSet<>(transactionPartitionRepository.findAttachedMonths());
+        Set<YearMonth> months = new TreeSet<>(attached);
+        months.addAll(transactionPartitionRepository.findDetachedMonths());
+
+        try {
+            Files.createDirectories(archiveProperties.getDirectory());
+            publishCommitted(months);
+            for (YearMonth month : months) {
+                if (month.isBefore(oldestKept)) {
+                    archive(month, attached.contains(month));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to archive transactions: {}", e.getMessage(), e);
+        } finally {
+            archiveCatalog.refresh();
+        }
+    }
+
+    private void archive(YearMonth month, boolean attached) throws IOException {
+        Path target = ArchiveSegment.pathOf(archiveProperties.getDirectory(), month);
+        Path pending = ArchiveSegment.pendingPathOf(archiveProperties.getDirectory(), month);
+        long archived;
+        try {
+            archived = transactionTemplate.execute(status -> {
+                transactionPartitionRepository.lockPartition(month);
+                long rows = transactionPartitionRepository.countRows(month);
+                try {
+                    write(pending, month);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (verify(pending, month) != rows) {
+                    throw new IllegalStateException("Segment " + pending + " does not hold all " + rows + " rows");
+                }
+                if (attached) {
+                    transactionPartitionRepository.detachPartition(month);
+                }
+                transactionPartitionRepository.dropPartition(month);
+                return rows;
+            });
+        } catch (RuntimeException e) {
+            // A failed commit may still have gone through; the next run publishes the segment if it did.
+            if (partitionExists(month)) {
+                Files.deleteIfExists(pending);
+            }
+            throw e;
+        }
+        publish(pending, target);
+        archiveCatalog.refresh();
+        log.info("Archived {} transactions of {} to {}", archived, month, target);
+    }
+
+    /**
+     * Publishes the pending segments of months whose partitions no longer exist, left behind by a crash after
+     * their archival committed, and deletes pending segments made redundant by a published one. Pending segments
+     * of months still in the database may belong to an archival in progress and are left alone.
+     *
+     * @param months the months whose partitions exist, attached or detached
+     */
+    private void publishCommitted(Set<YearMonth> months) throws IOException {
+        Map<YearMonth, List<Path>> pendingByMonth = new TreeMap<>();
+        try (Stream<Path> files = Files.list(archiveProperties.getDirectory())) {
+            for (Path file : files.toList()) {
+                ArchiveSegment.pendingMonthOf(file).filter(month -> !months.contains(month))
+                        .ifPresent(month -> pendingByMonth.computeIfAbsent(month, m -> new ArrayList<>()).add(file));
+            }
+        }
+        for (var entry : pendingByMonth.entrySet()) {
+            YearMonth month = entry.getKey();
+            Path target = ArchiveSegment.pathOf(archiveProperties.getDirectory(), month);
+            List<Path> pending = new ArrayList<>(entry.getValue());
+            pending.sort(Comparator.comparing(TransactionArchiver::lastModified).reversed());
+            for (Path file : pending) {
+                if (!Files.exists(target) && verify(file, month) >= 0) {
+                    publish(file, target);
+                    archiveCatalog.refresh();
+                    log.warn("Published segment {} of {} left pending by an interrupted archival", target, month);
+                } else {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the pending segment into place. Another instance may have published it first.
+     */
+    private static void publish(Path pending, Path target) throws IOException {
+        try {
+            Files.move(pending, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (NoSuchFileException e) {
+            if (!Files.exists(target)) {
+                throw e;
+            }
+        }
+    }
+
+    private boolean partitionExists(YearMonth month) {
+        try {
+            return transactionPartitionRepository.findAttachedMonths().contains(month)
+                    || transactionPartitionRepository.findDetachedMonths().contains(month);
+        } catch (RuntimeException e) {
+            // Unknown; the pending segment is kept and settled by the next run.
+            return false;
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private void write(Path target, YearMonth month) throws IOException {
+        try (var writer = new ArchiveSegment.Writer(target)) {
+            transactionPartitionRepository.streamRows(month, archiveProperties.getFetchSize(), rs -> {
+                try {
+                    long fromWalletId = rs.getLong("from_wallet_id");
+                    Long from = rs.wasNull() ? null : fromWalletId;
+                    long toWalletId = rs.getLong("to_wallet_id");
+                    Long to = rs.wasNull() ? null : toWalletId;
+                    writer.append(rs.getObject("id", UUID.class), rs.getString("type"), rs.getLong("amount"),
+                            from, to, rs.getObject("created_at", LocalDateTime.class));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.finish();
+        }
+    }
+
+    private static long verify(Path target, YearMonth month) {
+        try {
+            return ArchiveSegment.open(target, month).verify();
+        } catch (IOException e) {
+            log.warn("Segment {} is unreadable and will be rewritten: {}", target, e.getMessage());
+            return -1;
+        }
+    }
+}
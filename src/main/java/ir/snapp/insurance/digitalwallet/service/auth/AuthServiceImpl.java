@@ -6,17 +6,18 @@ import ir.snapp.insurance.digitalwallet.controller.auth.dto.LoginRequest;
 import ir.snapp.insurance.digitalwallet.controller.auth.dto.SignupRequest;
 import ir.snapp.insurance.digitalwallet.model.User;
 import ir.snapp.insurance.digitalwallet.repository.UserRepository;
+import ir.snapp.insurance.digitalwallet.service.metrics.OperationMetrics;
 import ir.snapp.insurance.digitalwallet.util.JwtUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import static ir.snapp.insurance.digitalwallet.exception.PredefinedError.*;
+import static ir.snapp.insurance.digitalwallet.service.metrics.OperationMetrics.AUTH_OPERATIONS;
 
 /**
  * Implementation of the AuthService interface providing authentication and user registration functionalities.
@@ -32,21 +33,24 @@ public class AuthServiceImpl implements AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtils jwtUtils;
+    private final OperationMetrics operationMetrics;
 
     /**
      * {@inheritDoc}
      */
     @Override
     public AuthResponse login(LoginRequest request) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.username(), request.password())
-        );
+        return operationMetrics.record(AUTH_OPERATIONS, "login", () -> {
+            Authentication authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(request.username(), request.password())
+            );
 
-        UserDetails user = (UserDetails) authentication.getPrincipal();
-        String token = jwtUtils.generateToken(user.getUsername());
+            AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+            String token = jwtUtils.generateToken(user);
 
-        log.debug("User {} logged in successfully", user.getUsername());
-        return new AuthResponse(token);
+            log.debug("User {} logged in successfully", user.getUsername());
+            return new AuthResponse(token);
+        });
     }
 
     /**
@@ -54,19 +58,22 @@ public class AuthServiceImpl implements AuthService {
      */
     @Override
     public AuthResponse signup(SignupRequest request) {
-        if (userRepository.findByUsername(request.username()).isPresent()) {
-            throw USER_ALREADY_EXISTS.getAppException();
-        }
+        return operationMetrics.record(AUTH_OPERATIONS, "signup", () -> {
+            if (userRepository.findByUsername(request.username()).isPresent()) {
+                throw USER_ALREADY_EXISTS.getAppException();
+            }
 
-        User newUser = new User();
-        newUser.setUsername(request.username());
-        newUser.setPassword(passwordEncoder.encode(request.password()));
-        userRepository.save(newUser);
+            User newUser = new User();
+            newUser.setUsername(request.username());
+            newUser.setPassword(passwordEncoder.encode(request.password()));
+            userRepository.save(newUser);
 
-        String token = jwtUtils.generateToken(newUser.getUsername());
+            String token = jwtUtils.generateToken(
+                    new AuthenticatedUser(newUser.getId(), newUser.getUsername(), newUser.getTokenVersion()));
 
-        log.debug("User {} signed up successfully", newUser.getUsername());
-        return new AuthResponse(token);
+            log.debug("User {} signed up successfully", newUser.getUsername());
+            return new AuthResponse(token);
+        });
     }
 
     /**
@@ -74,14 +81,19 @@ public class AuthServiceImpl implements AuthService {
      */
     @Override
     public void changePassword(String username, ChangePasswordRequest request) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(USER_NOT_FOUND::getAppException);
+        operationMetrics.run(AUTH_OPERATIONS, "change_password", () -> {
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(USER_NOT_FOUND::getAppException);
 
-        if (!passwordEncoder.matches(request.currentPassword(), user.getPassword())) {
-            throw CURRENT_PASSWORD_INCORRECT.getAppException();
-        }
+            if (!passwordEncoder.matches(request.currentPassword(), user.getPassword())) {
+                throw CURRENT_PASSWORD_INCORRECT.getAppException();
+            }
 
-        user.setPassword(passwordEncoder.encode(request.newPassword()));
-        userRepository.save(user);
+            int revokedVersion = user.getTokenVersion();
+            user.setPassword(passwordEncoder.encode(request.newPassword()));
+            user.setTokenVersion(revokedVersion + 1);
+            userRepository.save(user);
+            jwtUtils.revokeTokens(user.getId(), revokedVersion);
+        });
     }
 }
@@ -0,0 +1,42 @@
+package ir.snapp.insurance.digitalwallet.service.auth;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The principal of an authenticated user.
+ * <p>
+ * Built from the {@code users} table when logging in, and from the signed claims of the token on every other
+ * request, in which case it carries no password.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Getter
+@ToString(exclude = "password")
+@RequiredArgsConstructor
+public class AuthenticatedUser implements UserDetails {
+
+    private final long id;
+
+    private final String username;
+
+    private final int tokenVersion;
+
+    private final String password;
+
+    public AuthenticatedUser(long id, String username, int tokenVersion) {
+        this(id, username, tokenVersion, null);
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of();
+    }
+}
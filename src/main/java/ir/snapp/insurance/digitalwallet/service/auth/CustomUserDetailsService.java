@@ -3,13 +3,12 @@ package ir.snapp.insurance.digitalwallet.service.auth;
 import ir.snapp.insurance.digitalwallet.exception.PredefinedError;
 import ir.snapp.insurance.digitalwallet.model.User;
 import ir.snapp.insurance.digitalwallet.repository.UserRepository;
+import ir.snapp.insurance.digitalwallet.service.metrics.RequestTiming;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-
 /**
  * Custom implementation of UserDetailsService to load user-specific data.
  *
@@ -23,17 +22,15 @@ public class CustomUserDetailsService implements UserDetailsService {
 
     @Override
     public UserDetails loadUserByUsername(String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(PredefinedError.USER_NOT_FOUND::getAppException);
+        long start = System.nanoTime();
+        User user;
+        try {
+            user = userRepository.findByUsername(username)
+                    .orElseThrow(PredefinedError.USER_NOT_FOUND::getAppException);
+        } finally {
+            RequestTiming.record(RequestTiming.Phase.USER, System.nanoTime() - start);
+        }
 
-        return org.springframework.security.core.userdetails.User
-                .withUsername(user.getUsername())
-                .password(user.getPassword())
-                .authorities(List.of())
-                .accountExpired(false)
-                .accountLocked(false)
-                .credentialsExpired(false)
-                .disabled(false)
-                .build();
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getTokenVersion(), user.getPassword());
     }
 }
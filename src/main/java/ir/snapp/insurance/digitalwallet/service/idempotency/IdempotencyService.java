@@ -0,0 +1,29 @@
+package ir.snapp.insurance.digitalwallet.service.idempotency;
+
+import java.util.function.Supplier;
+
+/**
+ * Service interface for executing operations at most once per {@code Idempotency-Key}.
+ *
+ * @author Alireza Khodadoost
+ */
+public interface IdempotencyService {
+
+    /**
+     * Executes the operation unless the user already executed it with the same key,
+     * in which case the stored response is returned without executing it again.
+     * <p>
+     * The operation and the stored outcome are committed in the same database transaction. When the in-memory
+     * ledger applies the operation outside that transaction, the key is reserved and committed before the
+     * operation runs instead, and a duplicate arriving meanwhile is rejected as in progress. Failed operations
+     * are not stored, so they can be retried with the same key.
+     * </p>
+     *
+     * @param username       the username of the caller
+     * @param idempotencyKey the key supplied by the client; {@code null} executes the operation unconditionally
+     * @param fingerprint    a description of the operation and its arguments
+     * @param operation      the operation to execute, returning its response
+     * @return the response of the operation, either fresh or replayed
+     */
+    IdempotentResult execute(String username, String idempotencyKey, String fingerprint, Supplier<String> operation);
+}
@@ -0,0 +1,175 @@
+package ir.snapp.insurance.digitalwallet.service.idempotency;
+
+import ir.snapp.insurance.digitalwallet.config.idempotency.IdempotencyProperties;
+import ir.snapp.insurance.digitalwallet.config.ledger.LedgerProperties;
+import ir.snapp.insurance.digitalwallet.model.IdempotencyRecord;
+import ir.snapp.insurance.digitalwallet.repository.IdempotencyRecordRepository;
+import ir.snapp.insurance.digitalwallet.service.retry.TransactionRetrier;
+import ir.snapp.insurance.digitalwallet.util.BoundedCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+import static ir.snapp.insurance.digitalwallet.exception.PredefinedError.IDEMPOTENCY_KEY_INVALID;
+import static ir.snapp.insurance.digitalwallet.exception.PredefinedError.IDEMPOTENCY_KEY_IN_PROGRESS;
+import static ir.snapp.insurance.digitalwallet.exception.PredefinedError.IDEMPOTENCY_KEY_REUSED;
+
+/**
+ * Implementation of IdempotencyService backed by the {@code idempotency_keys} table,
+ * with a bounded in-memory cache in front of it.
+ * <p>
+ * With {@code ledger.enabled}, operations change balances in memory and cannot be rolled back with the
+ * transaction storing their outcome, so the key is reserved in its own transaction before they run.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Slf4j
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionRetrier transactionRetrier;
+    private final IdempotencyProperties idempotencyProperties;
+    private final boolean reserveKeys;
+    private final BoundedCache<String, StoredOutcome> cache;
+
+    public IdempotencyServiceImpl(
+            IdempotencyRecordRepository idempotencyRecordRepository,
+            TransactionRetrier transactionRetrier,
+            IdempotencyProperties idempotencyProperties,
+            LedgerProperties ledgerProperties) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.transactionRetrier = transactionRetrier;
+        this.idempotencyProperties = idempotencyProperties;
+        this.reserveKeys = ledgerProperties.isEnabled();
+        this.cache = new BoundedCache<>(idempotencyProperties.getCacheSize(), idempotencyProperties.getRetention());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IdempotentResult execute(String username, String idempotencyKey, String fingerprint, Supplier<String> operation) {
+        if (idempotencyKey == null) {
+            return new IdempotentResult(operation.get(), false);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw IDEMPOTENCY_KEY_INVALID.getAppException();
+        }
+
+        String cacheKey = username + '\n' + idempotencyKey;
+        StoredOutcome stored = cache.get(cacheKey);
+        if (stored == null) {
+            stored = idempotencyRecordRepository.findByUsernameAndIdempotencyKey(username, idempotencyKey)
+                    .map(StoredOutcome::of)
+                    .orElse(null);
+        }
+        if (stored != null) {
+            return replay(cacheKey, stored, fingerprint, idempotencyKey);
+        }
+        if (reserveKeys) {
+            return executeReserved(username, idempotencyKey, fingerprint, operation, cacheKey);
+        }
+
+        String response;
+        try {
+            response = transactionRetrier.execute(() -> {
+                String result = operation.get();
+                idempotencyRecordRepository.save(
+                        new IdempotencyRecord(null, username, idempotencyKey, fingerprint, result, null));
+                return result;
+            });
+        } catch (DataIntegrityViolationException | ConcurrencyFailureException e) {
+            // A concurrent request with the same key committed first; its transaction wins and ours is rolled back.
+            stored = idempotencyRecordRepository.findByUsernameAndIdempotencyKey(username, idempotencyKey)
+                    .map(StoredOutcome::of)
+                    .orElseThrow(() -> e);
+            return replay(cacheKey, stored, fingerprint, idempotencyKey);
+        }
+
+        cache.put(cacheKey, new StoredOutcome(fingerprint, response));
+        return new IdempotentResult(response, false);
+    }
+
+    /**
+     * Reserves the key in a committed transaction, runs the operation, then stores its response.
+     * <p>
+     * A duplicate finds the reservation and never runs the operation again. A failed operation releases the
+     * key. If the response cannot be stored, or the instance stops while the operation runs, the key stays
+     * reserved and keeps being rejected as in progress until it is purged, rather than risk moving the funds
+     * twice.
+     * </p>
+     */
+    private IdempotentResult executeReserved(
+            String username, String idempotencyKey, String fingerprint, Supplier<String> operation, String cacheKey) {
+        IdempotencyRecord reservation;
+        try {
+            reservation = transactionRetrier.execute(() -> idempotencyRecordRepository.save(
+                    new IdempotencyRecord(null, username, idempotencyKey, fingerprint, null, null)));
+        } catch (DataIntegrityViolationException | ConcurrencyFailureException e) {
+            StoredOutcome stored = idempotencyRecordRepository.findByUsernameAndIdempotencyKey(username, idempotencyKey)
+                    .map(StoredOutcome::of)
+                    .orElseThrow(() -> e);
+            return replay(cacheKey, stored, fingerprint, idempotencyKey);
+        }
+
+        String response;
+        try {
+            response = operation.get();
+        } catch (RuntimeException e) {
+            try {
+                transactionRetrier.run(() -> idempotencyRecordRepository.deleteById(reservation.getId()));
+            } catch (RuntimeException releaseFailure) {
+                log.error("Failed to release idempotency key {} of user {}", idempotencyKey, username, releaseFailure);
+            }
+            throw e;
+        }
+
+        try {
+            transactionRetrier.run(() -> idempotencyRecordRepository.complete(reservation.getId(), response));
+            cache.put(cacheKey, new StoredOutcome(fingerprint, response));
+        } catch (RuntimeException e) {
+            log.error("Failed to store the response for idempotency key {} of user {}; the key stays reserved",
+                    idempotencyKey, username, e);
+        }
+        return new IdempotentResult(response, false);
+    }
+
+    /**
+     * Deletes stored outcomes older than the configured retention.
+     */
+    @Transactional
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        int deleted = idempotencyRecordRepository.deleteCreatedBefore(
+                LocalDateTime.now().minus(idempotencyProperties.getRetention()));
+        log.debug("Purged {} expired idempotency keys", deleted);
+    }
+
+    private IdempotentResult replay(String cacheKey, StoredOutcome stored, String fingerprint, String idempotencyKey) {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            throw IDEMPOTENCY_KEY_REUSED.getAppException();
+        }
+        if (stored.response() == null) {
+            throw IDEMPOTENCY_KEY_IN_PROGRESS.getAppException();
+        }
+        cache.put(cacheKey, stored);
+        log.debug("Replaying stored response for idempotency key {}", idempotencyKey);
+        return new IdempotentResult(stored.response(), true);
+    }
+
+    private record StoredOutcome(String fingerprint, String response) {
+        static StoredOutcome of(IdempotencyRecord idempotencyRecord) {
+            return new StoredOutcome(idempotencyRecord.getFingerprint(), idempotencyRecord.getResponse());
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package ir.snapp.insurance.digitalwallet.service.idempotency;
+
+/**
+ * Outcome of an operation executed through {@link IdempotencyService}.
+ *
+ * @param response the response of the operation
+ * @param replayed whether the response was served from a previous execution with the same key
+ * @author Alireza Khodadoost
+ */
+public record IdempotentResult(
+        String response,
+        boolean replayed
+) {
+}
@@ -0,0 +1,117 @@
+package ir.snapp.insurance.digitalwallet.service.journal;
+
+import ir.snapp.insurance.digitalwallet.enums.TransactionType;
+import ir.snapp.insurance.digitalwallet.repository.LedgerJdbcRepository;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * A ledger operation as stored in the journal.
+ * <p>
+ * Each record takes {@value #SIZE} bytes, in big-endian order:
+ * </p>
+ * <pre>
+ * int   payload length ({@value #PAYLOAD_SIZE}); zero marks the end of the written part of a segment
+ * int   CRC-32C of the payload
+ * byte  operation type: 1 deposit, 2 withdrawal, 3 transfer
+ * long  transaction ID, most significant bits
+ * long  transaction ID, least significant bits
+ * long  source wallet ID, 0 for a deposit
+ * long  target wallet ID, 0 for a withdrawal
+ * long  amount in minor units
+ * long  time the record was journaled, in Unix milliseconds
+ * </pre>
+ *
+ * @author Alireza Khodadoost
+ */
+public record JournalRecord(
+        UUID id,
+        TransactionType type,
+        Long fromWalletId,
+        Long toWalletId,
+        long amount,
+        long timestamp
+) {
+
+    static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    static final int PAYLOAD_SIZE = Byte.BYTES + 6 * Long.BYTES;
+
+    static final int SIZE = HEADER_SIZE + PAYLOAD_SIZE;
+
+    public static JournalRecord of(LedgerJdbcRepository.Entry entry, long timestamp) {
+        return new JournalRecord(entry.id(), entry.type(), entry.fromWalletId(), entry.toWalletId(),
+                entry.amount(), timestamp);
+    }
+
+    public LedgerJdbcRepository.Entry toEntry() {
+        return new LedgerJdbcRepository.Entry(id, type, amount, fromWalletId, toWalletId);
+    }
+
+    /**
+     * Writes the record at the position of the buffer, advancing it by {@value #SIZE} bytes.
+     */
+    void writeTo(ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.position(start + HEADER_SIZE)
+                .put(typeCode(type))
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .putLong(fromWalletId != null ? fromWalletId : 0)
+                .putLong(toWalletId != null ? toWalletId : 0)
+                .putLong(amount)
+                .putLong(timestamp);
+        buffer.putInt(start, PAYLOAD_SIZE)
+                .putInt(start + Integer.BYTES, checksum(buffer, start + HEADER_SIZE));
+    }
+
+    /**
+     * Reads the record at the given offset of the buffer, after verifying its length and checksum.
+     *
+     * @throws IllegalStateException if the record is malformed or its checksum does not match
+     */
+    static JournalRecord readFrom(ByteBuffer buffer, int offset) {
+        int length = buffer.getInt(offset);
+        if (length != PAYLOAD_SIZE) {
+            throw new IllegalStateException("invalid record length " + length + " at offset " + offset);
+        }
+        int payload = offset + HEADER_SIZE;
+        if (buffer.getInt(offset + Integer.BYTES) != checksum(buffer, payload)) {
+            throw new IllegalStateException("checksum mismatch at offset " + offset);
+        }
+        long fromWalletId = buffer.getLong(payload + 17);
+        long toWalletId = buffer.getLong(payload + 25);
+        return new JournalRecord(
+                new UUID(buffer.getLong(payload + 1), buffer.getLong(payload + 9)),
+                typeOf(buffer.get(payload), offset),
+                fromWalletId != 0 ? fromWalletId : null,
+                toWalletId != 0 ? toWalletId : null,
+                buffer.getLong(payload + 33),
+                buffer.getLong(payload + 41));
+    }
+
+    private static int checksum(ByteBuffer buffer, int payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(payload, PAYLOAD_SIZE));
+        return (int) crc.getValue();
+    }
+
+    private static byte typeCode(TransactionType type) {
+        return switch (type) {
+            case DEPOSIT -> 1;
+            case WITHDRAW -> 2;
+            case TRANSFER -> 3;
+        };
+    }
+
+    private static TransactionType typeOf(byte code, int offset) {
+        return switch (code) {
+            case 1 -> TransactionType.DEPOSIT;
+            case 2 -> TransactionType.WITHDRAW;
+            case 3 -> TransactionType.TRANSFER;
+            default -> throw new IllegalStateException("unknown operation type " + code + " at offset " + offset);
+        };
+    }
+}
@@ -0,0 +1,90 @@
+package ir.snapp.insurance.digitalwallet.service.journal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Naming, listing and reading of journal segment files.
+ *
+ * @author Alireza Khodadoost
+ */
+public final class JournalSegments {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{16})\\.journal");
+
+    private JournalSegments() {
+    }
+
+    /**
+     * Returns the segment files of the directory in the order they were written.
+     */
+    public static List<Path> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> SEGMENT_NAME.matcher(file.getFileName().toString()).matches())
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    public static Path path(Path directory, long index) {
+        return directory.resolve("segment-%016d.journal".formatted(index));
+    }
+
+    public static long indexOf(Path segment) {
+        Matcher matcher = SEGMENT_NAME.matcher(segment.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("not a journal segment: " + segment);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    /**
+     * Reads the records of a segment in order, passing each one to the consumer.
+     * <p>
+     * Reading stops at the first zero length, which marks the end of the written part, or at the first record
+     * failing verification. A failing record at the end of the last segment is a write torn by a crash; it was
+     * never acknowledged.
+     * </p>
+     */
+    public static Scan read(Path segment, Consumer<JournalRecord> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int records = 0;
+            int offset = 0;
+            while (offset + JournalRecord.SIZE <= buffer.limit() && buffer.getInt(offset) != 0) {
+                JournalRecord journalRecord;
+                try {
+                    journalRecord = JournalRecord.readFrom(buffer, offset);
+                } catch (IllegalStateException e) {
+                    return new Scan(records, offset, e.getMessage());
+                }
+                consumer.accept(journalRecord);
+                records++;
+                offset += JournalRecord.SIZE;
+            }
+            return new Scan(records, offset, null);
+        }
+    }
+
+    /**
+     * The outcome of reading a segment.
+     *
+     * @param records the number of valid records read
+     * @param end     the offset following the last valid record
+     * @param problem why reading stopped early, or {@code null} if the segment was read to its end
+     */
+    public record Scan(int records, int end, String problem) {
+    }
+}
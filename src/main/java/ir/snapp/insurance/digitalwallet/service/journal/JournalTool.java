@@ -0,0 +1,68 @@
+package ir.snapp.insurance.digitalwallet.service.journal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Command-line tool to check and inspect the segments of a ledger journal, without starting the application.
+ * <pre>
+ * java -cp target/classes ir.snapp.insurance.digitalwallet.service.journal.JournalTool verify data/journal
+ * java -cp target/classes ir.snapp.insurance.digitalwallet.service.journal.JournalTool dump data/journal
+ * </pre>
+ * {@code verify} checks the length and checksum of every record and prints a summary per segment; it exits with
+ * status 1 if a record fails verification anywhere but at the end of the last segment, where it is a write torn
+ * by a crash. {@code dump} prints every valid record, one per line.
+ *
+ * @author Alireza Khodadoost
+ */
+public final class JournalTool {
+
+    private JournalTool() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 || !List.of("verify", "dump").contains(args[0])) {
+            System.err.println("Usage: JournalTool verify|dump <journal directory>");
+            System.exit(2);
+        }
+
+        boolean dump = args[0].equals("dump");
+        List<Path> segments = JournalSegments.list(Path.of(args[1]));
+        if (segments.isEmpty()) {
+            System.err.println("No journal segments in " + args[1]);
+        }
+
+        boolean corrupt = false;
+        long total = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            JournalSegments.Scan scan = JournalSegments.read(segment, journalRecord -> {
+                if (dump) {
+                    System.out.printf("%s %s %s %s %d %s%n",
+                            journalRecord.id(),
+                            journalRecord.type(),
+                            journalRecord.fromWalletId() != null ? journalRecord.fromWalletId() : "-",
+                            journalRecord.toWalletId() != null ? journalRecord.toWalletId() : "-",
+                            journalRecord.amount(),
+                            Instant.ofEpochMilli(journalRecord.timestamp()));
+                }
+            });
+            total += scan.records();
+
+            boolean last = i == segments.size() - 1;
+            if (scan.problem() == null) {
+                System.err.printf("%s: %d records, %d bytes%n", segment.getFileName(), scan.records(), scan.end());
+            } else if (last) {
+                System.err.printf("%s: %d records, torn write at the end: %s%n",
+                        segment.getFileName(), scan.records(), scan.problem());
+            } else {
+                System.err.printf("%s: %d records, CORRUPT: %s%n", segment.getFileName(), scan.records(), scan.problem());
+                corrupt = true;
+            }
+        }
+        System.err.printf("%d segments, %d records%n", segments.size(), total);
+        System.exit(corrupt ? 1 : 0);
+    }
+}
@@ -0,0 +1,389 @@
+package ir.snapp.insurance.digitalwallet.service.journal;
+
+import ir.snapp.insurance.digitalwallet.config.journal.JournalProperties;
+import ir.snapp.insurance.digitalwallet.repository.LedgerJdbcRepository;
+import ir.snapp.insurance.digitalwallet.service.ledger.LedgerWriteBehind;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static ir.snapp.insurance.digitalwallet.exception.PredefinedError.SERVER_ERROR;
+
+/**
+ * Append-only write-ahead journal of the operations applied by the in-memory ledger.
+ * <p>
+ * Records are appended to a memory-mapped segment file by the ledger partition threads, before the operation
+ * changes any balance, and an operation is acknowledged once its record is on disk. Disk writes are grouped: a
+ * single sync thread forces everything appended since its previous pass in one call, so concurrent operations
+ * share the cost of one sync instead of paying for one each. The sync thread then hands the synced operations to
+ * the {@link LedgerWriteBehind} in journal order, so the database never holds an operation the journal could lose.
+ * Full segments are sealed and a new one started; a sealed segment is deleted once every operation in it has been
+ * written to the database.
+ * </p>
+ * <p>
+ * On startup {@link #open()} replays the records of the remaining segments whose transaction is missing
+ * from the database, so operations acknowledged but not yet written before a crash are not lost. Records are
+ * replayed in apply order, so a debit is never replayed without the credits it was checked against. Replay is
+ * idempotent: it is keyed by transaction ID and can be repeated after a crash during replay.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = {"ledger.enabled", "journal.enabled"}, havingValue = "true")
+public class LedgerJournal {
+
+    private static final int REPLAY_BATCH_SIZE = 1000;
+
+    private final JournalProperties journalProperties;
+
+    private final LedgerJdbcRepository ledgerJdbcRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final LedgerWriteBehind writeBehind;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition appended = lock.newCondition();
+
+    private final Deque<SealedSegment> sealedSegments = new ArrayDeque<>();
+
+    /**
+     * Operations appended but not synced yet, in journal order.
+     */
+    private final Deque<Pending> pending = new ArrayDeque<>();
+
+    private final Thread syncer = Thread.ofPlatform().name("ledger-journal-sync").daemon(true).unstarted(this::syncLoop);
+
+    private Segment segment;
+
+    private long appendedSequence;
+
+    private long syncedSequence;
+
+    private boolean closed;
+
+    private RuntimeException failure;
+
+    public LedgerJournal(
+            JournalProperties journalProperties,
+            LedgerJdbcRepository ledgerJdbcRepository,
+            TransactionTemplate transactionTemplate,
+            LedgerWriteBehind writeBehind) {
+        this.journalProperties = journalProperties;
+        this.ledgerJdbcRepository = ledgerJdbcRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.writeBehind = writeBehind;
+    }
+
+    /**
+     * Replays the records missing from the database, deletes the replayed segments, and opens a new segment
+     * for appends. Must be called once, before any operation is applied.
+     */
+    public void open() {
+        try {
+            Path directory = journalProperties.getDirectory();
+            Files.createDirectories(directory);
+            List<Path> segments = JournalSegments.list(directory);
+
+            long replayed = 0;
+            for (Path file : segments) {
+                replayed += replay(file);
+            }
+            for (Path file : segments) {
+                Files.delete(file);
+            }
+
+            long nextIndex = segments.isEmpty() ? 0 : JournalSegments.indexOf(segments.getLast()) + 1;
+            segment = Segment.create(directory, nextIndex, segmentSize());
+            syncer.start();
+            log.info("Ledger journal replayed {} operations from {} segments into the database", replayed, segments.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the ledger journal", e);
+        }
+    }
+
+    /**
+     * Appends the record of an operation checked but not applied yet. Called by the ledger partition thread right
+     * before it applies the operation, so records are in apply order; returns without waiting for the disk.
+     *
+     * @return a future completing once the record is on disk and the operation queued to the write-behind, or
+     * failing if the journal cannot sync it
+     */
+    public CompletableFuture<Void> write(LedgerJdbcRepository.Entry entry) {
+        lock.lock();
+        try {
+            if (closed || failure != null) {
+                throw SERVER_ERROR.getAppException();
+            }
+            if (segment.buffer.remaining() < JournalRecord.SIZE) {
+                rotate();
+            }
+            JournalRecord.of(entry, System.currentTimeMillis()).writeTo(segment.buffer);
+            CompletableFuture<Void> durable = new CompletableFuture<>();
+            pending.addLast(new Pending(entry, durable));
+            appendedSequence++;
+            appended.signal();
+            return durable;
+        } catch (IOException e) {
+            failure = new UncheckedIOException(e);
+            appended.signal();
+            log.error("Ledger journal failed, rejecting operations", e);
+            throw SERVER_ERROR.getAppException();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the sealed segments whose operations have all been written to the database.
+     */
+    @Scheduled(fixedDelayString = "${journal.cleanup-interval:PT10S}")
+    public void deleteWrittenSegments() {
+        List<Path> deletable = new ArrayList<>();
+        lock.lock();
+        try {
+            while (!sealedSegments.isEmpty()
+                    && sealedSegments.peekFirst().appendedCount() <= writeBehind.writtenCount()) {
+                deletable.add(sealedSegments.pollFirst().path());
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Path file : deletable) {
+            try {
+                Files.deleteIfExists(file);
+                log.debug("Deleted written journal segment {}", file);
+            } catch (IOException e) {
+                log.warn("Failed to delete journal segment {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * Syncs the remaining records and closes the current segment.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException, IOException {
+        lock.lock();
+        try {
+            closed = true;
+            appended.signal();
+        } finally {
+            lock.unlock();
+        }
+        syncer.join();
+        if (segment != null) {
+            segment.channel.close();
+        }
+    }
+
+    /**
+     * Forces everything appended since the previous pass in one call, then hands the synced operations to the
+     * write-behind and completes their futures.
+     */
+    private void syncLoop() {
+        while (true) {
+            MappedByteBuffer buffer;
+            int from;
+            int to;
+            long target;
+            List<Pending> failed = null;
+            lock.lock();
+            try {
+                while (!closed && failure == null && syncedSequence == appendedSequence) {
+                    appended.awaitUninterruptibly();
+                }
+                if (failure != null) {
+                    failed = drainPending(pending.size());
+                } else if (syncedSequence == appendedSequence) {
+                    return;
+                }
+                buffer = segment.buffer;
+                from = segment.syncedPosition;
+                to = buffer.position();
+                target = appendedSequence;
+            } finally {
+                lock.unlock();
+            }
+            if (failed != null) {
+                failAll(failed);
+                return;
+            }
+
+            RuntimeException syncFailure = null;
+            try {
+                buffer.force(from, to - from);
+            } catch (RuntimeException e) {
+                syncFailure = e;
+            }
+
+            List<Pending> done;
+            lock.lock();
+            try {
+                if (syncFailure != null) {
+                    failure = syncFailure;
+                    log.error("Failed to sync the ledger journal, rejecting operations", syncFailure);
+                    done = drainPending(pending.size());
+                } else {
+                    if (segment.buffer == buffer) {
+                        segment.syncedPosition = to;
+                    }
+                    done = drainPending(Math.toIntExact(target - syncedSequence));
+                    syncedSequence = target;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (syncFailure != null) {
+                failAll(done);
+                return;
+            }
+            for (Pending synced : done) {
+                writeBehind.append(synced.entry());
+            }
+            for (Pending synced : done) {
+                synced.durable().complete(null);
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest pending operations. Called while holding the lock.
+     */
+    private List<Pending> drainPending(int count) {
+        List<Pending> drained = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            drained.add(pending.pollFirst());
+        }
+        return drained;
+    }
+
+    /**
+     * Fails the operations whose records may not be on disk. They are applied in memory but never written to the
+     * database by this instance; whether they happened is settled by the journal replay on the next start.
+     */
+    private static void failAll(List<Pending> operations) {
+        for (Pending operation : operations) {
+            operation.durable().completeExceptionally(SERVER_ERROR.getAppException());
+        }
+    }
+
+    /**
+     * Seals the current segment and starts a new one. Called while holding the lock.
+     */
+    private void rotate() throws IOException {
+        segment.buffer.force();
+        segment.channel.close();
+        // The sync thread queues every journaled operation to the write-behind, in journal order.
+        sealedSegments.addLast(new SealedSegment(segment.path, appendedSequence));
+        segment = Segment.create(journalProperties.getDirectory(), segment.index + 1, segmentSize());
+    }
+
+    /**
+     * Writes the records of a segment whose transaction is missing from the database.
+     *
+     * @return the number of records written
+     */
+    private long replay(Path file) throws IOException {
+        List<LedgerJdbcRepository.Entry> batch = new ArrayList<>(REPLAY_BATCH_SIZE);
+        long[] replayed = {0};
+        JournalSegments.Scan scan = JournalSegments.read(file, journalRecord -> {
+            batch.add(journalRecord.toEntry());
+            if (batch.size() == REPLAY_BATCH_SIZE) {
+                replayed[0] += replayMissing(batch);
+                batch.clear();
+            }
+        });
+        replayed[0] += replayMissing(batch);
+
+        if (scan.problem() != null) {
+            log.warn("Journal segment {} ends with an unreadable record after {} records: {}",
+                    file, scan.records(), scan.problem());
+        }
+        return replayed[0];
+    }
+
+    private int replayMissing(List<LedgerJdbcRepository.Entry> entries) {
+        Set<UUID> existing = ledgerJdbcRepository.findExistingTransactionIds(
+                entries.stream().map(LedgerJdbcRepository.Entry::id).toList());
+        List<LedgerJdbcRepository.Entry> missing = entries.stream()
+                .filter(entry -> !existing.contains(entry.id()))
+                .toList();
+        if (!missing.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> ledgerJdbcRepository.applyEntries(missing));
+        }
+        return missing.size();
+    }
+
+    private int segmentSize() {
+        return Math.toIntExact(journalProperties.getSegmentSize().toBytes());
+    }
+
+    /**
+     * The segment records are appended to. Its fields are only accessed while holding the lock.
+     */
+    private static final class Segment {
+        private final long index;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int syncedPosition;
+
+        private Segment(long index, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.index = index;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private static Segment create(Path directory, long index, int size) throws IOException {
+            Path path = JournalSegments.path(directory, index);
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                directoryChannel.force(true);
+            } catch (IOException e) {
+                // Not every platform allows syncing a directory; the segment is still created.
+                log.debug("Could not sync journal directory {}", directory, e);
+            }
+            return new Segment(index, path, channel, buffer);
+        }
+    }
+
+    /**
+     * A full segment, deletable once the write-behind has written {@code appendedCount} operations.
+     */
+    private record SealedSegment(Path path, long appendedCount) {
+    }
+
+    /**
+     * An operation appended to the journal, waiting for its record to be synced.
+     */
+    private record Pending(LedgerJdbcRepository.Entry entry, CompletableFuture<Void> durable) {
+    }
+}
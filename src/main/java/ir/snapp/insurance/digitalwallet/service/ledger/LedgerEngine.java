@@ -0,0 +1,387 @@
+package ir.snapp.insurance.digitalwallet.service.ledger;
+
+import ir.snapp.insurance.digitalwallet.config.ledger.LedgerProperties;
+import ir.snapp.insurance.digitalwallet.enums.Currency;
+import ir.snapp.insurance.digitalwallet.enums.TransactionType;
+import ir.snapp.insurance.digitalwallet.repository.LedgerJdbcRepository;
+import ir.snapp.insurance.digitalwallet.service.journal.LedgerJournal;
+import ir.snapp.insurance.digitalwallet.util.Money;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static ir.snapp.insurance.digitalwallet.exception.PredefinedError.*;
+
+/**
+ * Keeps wallet balances in memory and applies deposits, withdrawals and transfers to them without locks.
+ * <p>
+ * Wallets are spread over partitions by wallet ID. Each partition owns the balances of its wallets and has a
+ * single thread applying the operations queued to it one at a time, so no two threads ever change the same
+ * balance. A transfer between wallets of two partitions debits the source in its partition, then credits the
+ * target in the other one, and refunds the source if the credit fails.
+ * </p>
+ * <p>
+ * When the {@link LedgerJournal} is enabled, an operation is checked, then written to the journal by the partition
+ * thread, and only then applied, so the journal holds operations in the order they were applied. Its future
+ * completes once the record is on disk, and the journal hands it to the {@link LedgerWriteBehind} in journal order.
+ * Without the journal, an applied operation is handed to the write-behind directly. The debit of a transfer between
+ * two partitions is journaled with its credit; until then it only lowers the source balance, so replaying a journal
+ * that lacks it never leaves a balance below what was checked.
+ * </p>
+ * <p>
+ * On startup the operations journaled but not yet written are replayed into the database by the
+ * {@link LedgerJournal}, if enabled, then the balances of all wallets are loaded from the database; wallets created
+ * afterwards are loaded on first use. The engine must be the only writer of the balances, so it is meant for a single instance.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "ledger", name = "enabled", havingValue = "true")
+public class LedgerEngine {
+
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final CompletableFuture<Void> DURABLE = CompletableFuture.completedFuture(null);
+
+    private final LedgerJdbcRepository ledgerJdbcRepository;
+
+    private final LedgerWriteBehind writeBehind;
+
+    private final ObjectProvider<LedgerJournal> journal;
+
+    private final ConcurrentHashMap<Long, Account> accounts = new ConcurrentHashMap<>();
+
+    private final Partition[] partitions;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile boolean accepting = true;
+
+    private LedgerJournal ledgerJournal;
+
+    public LedgerEngine(
+            LedgerJdbcRepository ledgerJdbcRepository,
+            LedgerWriteBehind writeBehind,
+            ObjectProvider<LedgerJournal> journal,
+            LedgerProperties ledgerProperties) {
+        this.ledgerJdbcRepository = ledgerJdbcRepository;
+        this.writeBehind = writeBehind;
+        this.journal = journal;
+        this.partitions = new Partition[ledgerProperties.getPartitions()];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new Partition(i);
+        }
+    }
+
+    /**
+     * Replays the journal, rebuilds the balances from the database and starts the partition threads.
+     */
+    @PostConstruct
+    public void start() {
+        ledgerJournal = journal.getIfAvailable();
+        if (ledgerJournal != null) {
+            ledgerJournal.open();
+        }
+        ledgerJdbcRepository.findAllWalletBalances().forEach(balance -> accounts.put(balance.walletId(), new Account(balance)));
+        for (Partition partition : partitions) {
+            partition.thread.start();
+        }
+        log.info("Ledger engine loaded {} wallets into {} partitions", accounts.size(), partitions.length);
+    }
+
+    /**
+     * Stops accepting operations, waits for the ones in flight to complete, then stops the partition threads.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        accepting = false;
+        long deadline = System.nanoTime() + SHUTDOWN_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() - deadline < 0) {
+            Thread.sleep(10);
+        }
+        for (Partition partition : partitions) {
+            partition.stop();
+        }
+        for (Partition partition : partitions) {
+            partition.thread.join(SHUTDOWN_TIMEOUT);
+        }
+    }
+
+    /**
+     * Returns the in-memory balance of the wallet, if it is loaded.
+     */
+    public OptionalLong balanceOf(long walletId) {
+        Account account = accounts.get(walletId);
+        return account != null ? OptionalLong.of(account.balance) : OptionalLong.empty();
+    }
+
+    /**
+     * Checks that the wallet exists and is owned by the user.
+     */
+    public void requireOwned(String username, long walletId) {
+        ownedAccount(username, walletId);
+    }
+
+    /**
+     * Credits the user's wallet.
+     *
+     * @return a future completing with the applied entry once the deposit is applied
+     */
+    public CompletableFuture<LedgerJdbcRepository.Entry> deposit(String username, long walletId, long amount) {
+        Account account = ownedAccount(username, walletId);
+        var entry = LedgerJdbcRepository.Entry.of(TransactionType.DEPOSIT, amount, null, walletId);
+        return track(entry, () -> partitionOf(walletId).submit(() -> {
+            account.checkCredit(amount);
+            CompletableFuture<Void> durable = record(entry);
+            account.credit(amount);
+            return durable;
+        }).thenCompose(Function.identity()));
+    }
+
+    /**
+     * Debits the user's wallet.
+     *
+     * @return a future completing with the applied entry once the withdrawal is applied
+     */
+    public CompletableFuture<LedgerJdbcRepository.Entry> withdraw(String username, long walletId, long amount) {
+        Account account = ownedAccount(username, walletId);
+        var entry = LedgerJdbcRepository.Entry.of(TransactionType.WITHDRAW, amount, walletId, null);
+        return track(entry, () -> partitionOf(walletId).submit(() -> {
+            account.checkDebit(amount);
+            CompletableFuture<Void> durable = record(entry);
+            account.debit(amount);
+            return durable;
+        }).thenCompose(Function.identity()));
+    }
+
+    /**
+     * Moves the amount from the user's wallet to another wallet of the same currency.
+     *
+     * @return a future completing with the applied entry once both wallets are updated
+     */
+    public CompletableFuture<LedgerJdbcRepository.Entry> transfer(String username, long fromWalletId, long toWalletId, long amount) {
+        var entry = LedgerJdbcRepository.Entry.of(TransactionType.TRANSFER, amount, fromWalletId, toWalletId);
+        return track(entry, () -> transferBetween(username, entry));
+    }
+
+    private CompletableFuture<Void> transferBetween(String username, LedgerJdbcRepository.Entry entry) {
+        long fromWalletId = entry.fromWalletId();
+        long toWalletId = entry.toWalletId();
+        long amount = entry.amount();
+        Account from = ownedAccount(username, fromWalletId);
+        Account to = account(toWalletId);
+        if (to == null) {
+            throw TARGET_WALLET_NOT_FOUND.getAppException();
+        }
+        if (from.currency != to.currency) {
+            throw CURRENCY_MISMATCH.getAppException();
+        }
+
+        Partition source = partitionOf(fromWalletId);
+        Partition target = partitionOf(toWalletId);
+        if (source == target) {
+            return source.submit(() -> {
+                from.checkDebit(amount);
+                to.checkCredit(amount);
+                CompletableFuture<Void> durable = record(entry);
+                from.debit(amount);
+                to.credit(amount);
+                return durable;
+            }).thenCompose(Function.identity());
+        }
+
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        source.submit(() -> {
+            from.debit(amount);
+            return null;
+        }).whenComplete((debited, debitFailure) -> {
+            if (debitFailure != null) {
+                result.completeExceptionally(debitFailure);
+                return;
+            }
+            target.submit(() -> {
+                to.checkCredit(amount);
+                CompletableFuture<Void> durable = record(entry);
+                to.credit(amount);
+                return durable;
+            }).whenComplete((durable, creditFailure) -> {
+                if (creditFailure == null) {
+                    // Once journaled the transfer stands; a failing sync leaves its outcome to the journal replay.
+                    durable.whenComplete((synced, syncFailure) -> {
+                        if (syncFailure == null) {
+                            result.complete(null);
+                        } else {
+                            result.completeExceptionally(syncFailure);
+                        }
+                    });
+                    return;
+                }
+                source.submit(() -> {
+                    from.refund(amount);
+                    return null;
+                }).whenComplete((refunded, refundFailure) -> result.completeExceptionally(creditFailure));
+            });
+        });
+        return result;
+    }
+
+    /**
+     * Journals a checked operation, or hands it to the write-behind when the journal is disabled. Called by the
+     * partition thread right before applying the operation, so it is recorded in apply order.
+     *
+     * @return a future completing once the operation is durable
+     */
+    private CompletableFuture<Void> record(LedgerJdbcRepository.Entry entry) {
+        if (ledgerJournal != null) {
+            return ledgerJournal.write(entry);
+        }
+        writeBehind.append(entry);
+        return DURABLE;
+    }
+
+    /**
+     * Counts the operation as in flight until its future completes, so shutdown can wait for it.
+     */
+    private CompletableFuture<LedgerJdbcRepository.Entry> track(
+            LedgerJdbcRepository.Entry entry, Supplier<CompletableFuture<Void>> operation) {
+        if (!accepting) {
+            throw SERVER_ERROR.getAppException();
+        }
+        inFlight.incrementAndGet();
+        CompletableFuture<Void> future;
+        try {
+            future = operation.get();
+        } catch (RuntimeException e) {
+            inFlight.decrementAndGet();
+            throw e;
+        }
+        return future.whenComplete((result, failure) -> inFlight.decrementAndGet()).thenApply(applied -> entry);
+    }
+
+    private Account ownedAccount(String username, long walletId) {
+        Account account = account(walletId);
+        if (account == null || !account.username.equals(username)) {
+            throw WALLET_NOT_FOUND.getAppException();
+        }
+        return account;
+    }
+
+    /**
+     * Returns the account of the wallet, loading it from the database on first use.
+     * A wallet missing from memory has no pending writes, so its stored balance is current.
+     */
+    private Account account(long walletId) {
+        Account account = accounts.get(walletId);
+        if (account != null) {
+            return account;
+        }
+        return ledgerJdbcRepository.findWalletBalance(walletId)
+                .map(balance -> accounts.computeIfAbsent(walletId, id -> new Account(balance)))
+                .orElse(null);
+    }
+
+    private Partition partitionOf(long walletId) {
+        return partitions[(int) Math.floorMod(walletId, (long) partitions.length)];
+    }
+
+    /**
+     * The in-memory state of a wallet. The balance is only changed by the thread of the wallet's partition.
+     */
+    private static final class Account {
+        private final String username;
+        private final Currency currency;
+        private volatile long balance;
+
+        private Account(LedgerJdbcRepository.WalletBalance walletBalance) {
+            this.username = walletBalance.username();
+            this.currency = walletBalance.currency();
+            this.balance = walletBalance.balance();
+        }
+
+        private void checkCredit(long amount) {
+            Money.add(balance, amount);
+        }
+
+        private void credit(long amount) {
+            balance = Money.add(balance, amount);
+        }
+
+        private void checkDebit(long amount) {
+            if (balance < amount) {
+                throw INSUFFICIENT_FUNDS.getAppException();
+            }
+        }
+
+        private void debit(long amount) {
+            checkDebit(amount);
+            balance = balance - amount;
+        }
+
+        private void refund(long amount) {
+            balance = balance + amount;
+        }
+    }
+
+    /**
+     * A queue of operations applied one at a time by a dedicated thread.
+     */
+    private static final class Partition {
+        private static final Runnable STOP = () -> {
+        };
+
+        private final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+        private final Thread thread;
+
+        private Partition(int index) {
+            this.thread = Thread.ofPlatform()
+                    .name("ledger-partition-" + index)
+                    .daemon(true)
+                    .unstarted(this::run);
+        }
+
+        /**
+         * Queues the operation; the returned future completes with its result once it is applied, or with the
+         * error it threw.
+         */
+        private <T> CompletableFuture<T> submit(Supplier<T> operation) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            queue.add(() -> {
+                try {
+                    future.complete(operation.get());
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+            return future;
+        }
+
+        private void stop() {
+            queue.add(STOP);
+        }
+
+        private void run() {
+            try {
+                for (Runnable task = queue.take(); task != STOP; task = queue.take()) {
+                    task.run();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package ir.snapp.insurance.digitalwallet.service.ledger;
+
+import ir.snapp.insurance.digitalwallet.controller.wallet.dto.*;
+import ir.snapp.insurance.digitalwallet.exception.AppException;
+import ir.snapp.insurance.digitalwallet.service.journal.LedgerJournal;
+import ir.snapp.insurance.digitalwallet.service.metrics.OperationMetrics;
+import ir.snapp.insurance.digitalwallet.service.wallet.WalletService;
+import ir.snapp.insurance.digitalwallet.service.wallet.WalletServiceImpl;
+import ir.snapp.insurance.digitalwallet.util.Paginated;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static ir.snapp.insurance.digitalwallet.exception.PredefinedError.SAME_WALLET_TRANSFER;
+import static ir.snapp.insurance.digitalwallet.exception.PredefinedError.SERVER_ERROR;
+import static ir.snapp.insurance.digitalwallet.service.metrics.OperationMetrics.WALLET_OPERATIONS;
+
+/**
+ * Implementation of WalletService applying balance changes through the in-memory {@link LedgerEngine}.
+ * <p>
+ * Enabled with {@code ledger.enabled=true}. Wallet creation and transaction history are served by
+ * {@link WalletServiceImpl}; reported balances come from memory. Transaction history and the balances stored
+ * in the database trail the in-memory state by the write-behind delay. When the {@link LedgerJournal} is enabled,
+ * an operation returns only once the engine has it on disk in the journal.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Slf4j
+@Primary
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "ledger", name = "enabled", havingValue = "true")
+public class LedgerWalletService implements WalletService {
+
+    private final WalletServiceImpl walletServiceImpl;
+
+    private final LedgerEngine ledgerEngine;
+
+    private final OperationMetrics operationMetrics;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public WalletDto createWallet(String username, WalletCreationRequest request) {
+        return walletServiceImpl.createWallet(username, request);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<WalletDto> getWallets(String username) {
+        return walletServiceImpl.getWallets(username).stream()
+                .map(this::withLedgerBalance)
+                .toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public WalletDto getWallet(String username, Long walletId) {
+        return withLedgerBalance(walletServiceImpl.getWallet(username, walletId));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Paginated<TransactionDto> filterTransactions(String username, Long walletId, TransactionFilterCriteria criteria) {
+        return walletServiceImpl.filterTransactions(username, walletId, criteria);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public WalletStatementDto getStatement(String username, Long walletId, StatementCriteria criteria) {
+        return walletServiceImpl.getStatement(username, walletId, criteria);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StreamingResponseBody exportTransactions(String username, Long walletId, TransactionExportCriteria criteria) {
+        return walletServiceImpl.exportTransactions(username, walletId, criteria);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deposit(String username, Long walletId, long amount) {
+        operationMetrics.run(WALLET_OPERATIONS, "deposit", () -> {
+            await(ledgerEngine.deposit(username, walletId, amount));
+            log.debug("Deposited {} to wallet {} of user {}", amount, walletId, username);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void withdraw(String username, Long walletId, long amount) {
+        operationMetrics.run(WALLET_OPERATIONS, "withdraw", () -> {
+            await(ledgerEngine.withdraw(username, walletId, amount));
+            log.debug("Withdraw {} from wallet {} of user {}", amount, walletId, username);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void transfer(String username, Long fromWalletId, Long toWalletId, long amount) {
+        operationMetrics.run(WALLET_OPERATIONS, "transfer", () -> {
+            await(ledgerEngine.transfer(username, fromWalletId, toWalletId, amount));
+            log.debug("Transferred {} from wallet {} to wallet {} by user {}",
+                    amount, fromWalletId, toWalletId, username);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Items are applied and journaled one by one as separate transfers, so an accepted item is not undone when a
+     * later item is rejected. A journal failure aborts the batch, since the outcome of its item is unknown.
+     * </p>
+     */
+    @Override
+    public BatchTransferResult batchTransfer(String username, Long fromWalletId, List<TransferRequest> items) {
+        return operationMetrics.record(WALLET_OPERATIONS, "batch_transfer", () -> {
+            ledgerEngine.requireOwned(username, fromWalletId);
+
+            long totalDebited = 0;
+            int succeeded = 0;
+            List<BatchTransferItemResult> results = new ArrayList<>(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                TransferRequest item = items.get(i);
+                String error = null;
+                if (item.toWalletId().equals(fromWalletId)) {
+                    error = SAME_WALLET_TRANSFER.getErrorCode();
+                } else {
+                    try {
+                        await(ledgerEngine.transfer(username, fromWalletId, item.toWalletId(), item.amount()));
+                    } catch (AppException e) {
+                        if (e.getError() == SERVER_ERROR) {
+                            throw e;
+                        }
+                        error = e.getError().getErrorCode();
+                    }
+                }
+
+                if (error == null) {
+                    succeeded++;
+                    totalDebited += item.amount();
+                }
+                results.add(new BatchTransferItemResult(i, item.toWalletId(), item.amount(), error == null, error));
+            }
+
+            log.debug("Batch transferred {} from wallet {} in {} of {} items by user {}",
+                    totalDebited, fromWalletId, succeeded, items.size(), username);
+            return new BatchTransferResult(succeeded, items.size() - succeeded, totalDebited, results);
+        });
+    }
+
+    private WalletDto withLedgerBalance(WalletDto wallet) {
+        return wallet.withBalance(ledgerEngine.balanceOf(wallet.id()).orElse(wallet.balance()));
+    }
+
+    private static <T> T await(CompletableFuture<T> operation) {
+        try {
+            return operation.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package ir.snapp.insurance.digitalwallet.service.ledger;
+
+import ir.snapp.insurance.digitalwallet.config.ledger.LedgerProperties;
+import ir.snapp.insurance.digitalwallet.repository.LedgerJdbcRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes operations applied by the {@link LedgerEngine} to the {@code wallets} and {@code transactions}
+ * tables in the background.
+ * <p>
+ * Operations are queued once they are applied in memory, or once their journal record is synced when the journal
+ * is enabled, and written in batches: one transaction per batch,
+ * holding one balance delta update per wallet and one batched insert of the transaction rows. A batch that
+ * fails to be written is kept and retried on the next flush, so operations are never dropped or reordered.
+ * A failed write may still have committed, if only the acknowledgement of the commit was lost, so a retried batch
+ * first drops the operations whose transaction rows already exist.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "ledger", name = "enabled", havingValue = "true")
+public class LedgerWriteBehind {
+
+    private final LedgerJdbcRepository ledgerJdbcRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final LedgerProperties ledgerProperties;
+
+    private final ConcurrentLinkedQueue<LedgerJdbcRepository.Entry> queue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger backlog = new AtomicInteger();
+
+    private final AtomicLong appended = new AtomicLong();
+
+    private final AtomicLong written = new AtomicLong();
+
+    /**
+     * The batch being written; only touched while holding the lock of this object.
+     */
+    private final List<LedgerJdbcRepository.Entry> batch = new ArrayList<>();
+
+    /**
+     * Whether writing the current batch failed before; only touched while holding the lock of this object.
+     */
+    private boolean retrying;
+
+    /**
+     * Queues an operation applied in memory to be written to the database.
+     */
+    public void append(LedgerJdbcRepository.Entry entry) {
+        synchronized (queue) {
+            queue.add(entry);
+            appended.incrementAndGet();
+        }
+        backlog.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of operations queued since startup.
+     */
+    public long appendedCount() {
+        return appended.get();
+    }
+
+    /**
+     * Returns the number of operations written to the database since startup. Operations are counted and written
+     * in the order they were queued, so once this reaches an earlier {@link #appendedCount()}, every operation
+     * queued before that count was taken is in the database.
+     */
+    public long writtenCount() {
+        return written.get();
+    }
+
+    /**
+     * Returns the number of operations applied in memory but not yet written to the database.
+     */
+    public int backlog() {
+        return backlog.get();
+    }
+
+    /**
+     * Writes queued operations until the queue is empty or a write fails.
+     */
+    @Scheduled(fixedDelayString = "${ledger.flush-interval:PT0.01S}")
+    public void flush() {
+        try {
+            while (flushBatch()) {
+                // keep writing until the queue is drained
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to write {} ledger operations to the database, retrying on next flush",
+                    backlog.get(), e);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+        if (backlog.get() > 0) {
+            log.error("{} ledger operations could not be written to the database before shutdown", backlog.get());
+        }
+    }
+
+    /**
+     * Writes the current batch, filling it from the queue first.
+     *
+     * @return whether a batch was written
+     */
+    private synchronized boolean flushBatch() {
+        while (batch.size() < ledgerProperties.getFlushBatchSize()) {
+            LedgerJdbcRepository.Entry entry = queue.poll();
+            if (entry == null) {
+                break;
+            }
+            batch.add(entry);
+        }
+        if (batch.isEmpty()) {
+            return false;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (retrying) {
+                    dropWritten();
+                }
+                ledgerJdbcRepository.applyEntries(batch);
+            });
+        } catch (RuntimeException e) {
+            retrying = true;
+            throw e;
+        }
+        retrying = false;
+
+        log.debug("Wrote {} ledger operations", batch.size());
+        backlog.addAndGet(-batch.size());
+        written.addAndGet(batch.size());
+        batch.clear();
+        return true;
+    }
+
+    /**
+     * Removes the operations of the current batch that a previous, seemingly failed write did commit, counting
+     * them as written.
+     */
+    private void dropWritten() {
+        Set<UUID> existing = ledgerJdbcRepository.findExistingTransactionIds(
+                batch.stream().map(LedgerJdbcRepository.Entry::id).toList());
+        if (existing.isEmpty()) {
+            return;
+        }
+        int before = batch.size();
+        batch.removeIf(entry -> existing.contains(entry.id()));
+        int dropped = before - batch.size();
+        log.warn("Skipped {} ledger operations already written by a previous attempt", dropped);
+        backlog.addAndGet(-dropped);
+        written.addAndGet(dropped);
+    }
+}
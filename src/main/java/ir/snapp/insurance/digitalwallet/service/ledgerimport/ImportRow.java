@@ -0,0 +1,22 @@
+package ir.snapp.insurance.digitalwallet.service.ledgerimport;
+
+import ir.snapp.insurance.digitalwallet.enums.TransactionType;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A well-formed input line of a bulk ledger import, not yet checked against the database.
+ *
+ * @author Alireza Khodadoost
+ */
+public record ImportRow(
+        long lineNo,
+        UUID id,
+        TransactionType type,
+        long amount,
+        Long fromWalletId,
+        Long toWalletId,
+        LocalDateTime createdAt
+) {
+}
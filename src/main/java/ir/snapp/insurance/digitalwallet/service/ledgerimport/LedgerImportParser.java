@@ -0,0 +1,157 @@
+package ir.snapp.insurance.digitalwallet.service.ledgerimport;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ir.snapp.insurance.digitalwallet.enums.ImportFormat;
+import ir.snapp.insurance.digitalwallet.enums.TransactionType;
+import ir.snapp.insurance.digitalwallet.util.TimeOrderedUuids;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.UUID;
+
+/**
+ * Parses and checks the format of single input lines of a bulk ledger import.
+ * <p>
+ * Only what can be checked on a line alone is checked here: field formats, a positive amount, and wallet IDs
+ * matching the transaction type. Wallet existence and currencies are checked set-wise in the database.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+public class LedgerImportParser {
+
+    private static final String CSV_HEADER_PREFIX = "id,type";
+
+    private final ImportFormat format;
+
+    private final ObjectMapper objectMapper;
+
+    public LedgerImportParser(ImportFormat format, ObjectMapper objectMapper) {
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Whether the line carries no row: a blank line or the CSV header.
+     */
+    public boolean isSkipped(String line) {
+        return line.isBlank() || (format == ImportFormat.CSV && line.startsWith(CSV_HEADER_PREFIX));
+    }
+
+    /**
+     * Parses the line.
+     *
+     * @throws IllegalArgumentException with the rejection reason if the line is malformed
+     */
+    public ImportRow parse(long lineNo, String line) {
+        String[] fields = format == ImportFormat.CSV ? csvFields(line) : jsonFields(line);
+        TransactionType type = parseType(fields[1]);
+        Long fromWalletId = parseWalletId(fields[3]);
+        Long toWalletId = parseWalletId(fields[4]);
+        checkWallets(type, fromWalletId, toWalletId);
+        return new ImportRow(lineNo, parseId(fields[0]), type, parseAmount(fields[2]), fromWalletId, toWalletId,
+                parseDate(fields[5]));
+    }
+
+    private static String[] csvFields(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 6) {
+            throw new IllegalArgumentException("line.column_count");
+        }
+        for (int i = 0; i < fields.length; i++) {
+            String field = fields[i].strip();
+            if (field.length() >= 2 && field.startsWith("\"") && field.endsWith("\"")) {
+                field = field.substring(1, field.length() - 1);
+            }
+            fields[i] = field;
+        }
+        return fields;
+    }
+
+    private String[] jsonFields(String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("line.json_invalid");
+        }
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("line.json_invalid");
+        }
+        return new String[]{
+                node.path("id").asText(""),
+                node.path("type").asText(""),
+                node.path("amount").asText(""),
+                node.path("fromWalletId").asText(""),
+                node.path("toWalletId").asText(""),
+                node.path("transactionDate").asText("")
+        };
+    }
+
+    private static UUID parseId(String value) {
+        if (value.isEmpty()) {
+            return TimeOrderedUuids.next();
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("id.invalid");
+        }
+    }
+
+    private static TransactionType parseType(String value) {
+        try {
+            return TransactionType.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("type.invalid");
+        }
+    }
+
+    private static long parseAmount(String value) {
+        try {
+            long amount = Long.parseLong(value);
+            if (amount > 0) {
+                return amount;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("amount.invalid");
+    }
+
+    private static Long parseWalletId(String value) {
+        if (value.isEmpty() || value.equals("null")) {
+            return null;
+        }
+        try {
+            long walletId = Long.parseLong(value);
+            if (walletId > 0) {
+                return walletId;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("walletId.invalid");
+    }
+
+    private static LocalDateTime parseDate(String value) {
+        try {
+            return LocalDateTime.parse(value.replace(' ', 'T'));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("transactionDate.invalid");
+        }
+    }
+
+    private static void checkWallets(TransactionType type, Long fromWalletId, Long toWalletId) {
+        boolean valid = switch (type) {
+            case DEPOSIT -> fromWalletId == null && toWalletId != null;
+            case WITHDRAW -> fromWalletId != null && toWalletId == null;
+            case TRANSFER -> fromWalletId != null && toWalletId != null && !fromWalletId.equals(toWalletId);
+        };
+        if (!valid) {
+            throw new IllegalArgumentException("walletIds.mismatch_type");
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ir.snapp.insurance.digitalwallet.service.ledgerimport;
+
+import ir.snapp.insurance.digitalwallet.enums.ImportFormat;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Runs a ledger import from the command line and exits, for files too large to upload.
+ * <p>
+ * Started with {@code --import-ledger=<file>}, optionally {@code --import-format=CSV|NDJSON} (guessed from the
+ * file name otherwise) and {@code --import-id=<id>} to resume an interrupted import. Files ending in
+ * {@code .gz} are decompressed while reading.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LedgerImportRunner implements ApplicationRunner {
+
+    private final LedgerImportService ledgerImportService;
+
+    private final ApplicationContext applicationContext;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        String file = option(args, "import-ledger");
+        if (file == null) {
+            return;
+        }
+        Path path = Path.of(file);
+        String format = option(args, "import-format");
+        String importId = option(args, "import-id");
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+
+        int exitCode;
+        try (InputStream input = name.endsWith(".gz")
+                ? new GZIPInputStream(Files.newInputStream(path), 1 << 16)
+                : Files.newInputStream(path)) {
+            var result = ledgerImportService.importTransactions(
+                    importId == null ? null : UUID.fromString(importId),
+                    format != null ? ImportFormat.valueOf(format.toUpperCase(Locale.ROOT))
+                            : name.contains(".ndjson") || name.contains(".jsonl") ? ImportFormat.NDJSON : ImportFormat.CSV,
+                    path.toAbsolutePath().toString(),
+                    input);
+            log.info("Ledger import {} {}: {} rows imported, {} rejected",
+                    result.id(), result.status(), result.rowsImported(), result.rowsRejected());
+            exitCode = 0;
+        } catch (Exception e) {
+            log.error("Ledger import of {} failed", path, e);
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(applicationContext, () -> code));
+    }
+
+    private static String option(ApplicationArguments args, String name) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() ? null : values.getFirst();
+    }
+}
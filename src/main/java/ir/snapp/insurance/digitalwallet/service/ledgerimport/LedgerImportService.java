@@ -0,0 +1,40 @@
+package ir.snapp.insurance.digitalwallet.service.ledgerimport;
+
+import ir.snapp.insurance.digitalwallet.controller.admin.dto.LedgerImportDto;
+import ir.snapp.insurance.digitalwallet.enums.ImportFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+
+/**
+ * Service interface for bulk imports of historical ledger transactions.
+ *
+ * @author Alireza Khodadoost
+ */
+public interface LedgerImportService {
+
+    /**
+     * Imports the transactions read from the input, then recomputes the balances of the wallets they touch.
+     * <p>
+     * The input is processed in chunks of lines, each committed on its own. Called again with the ID of an
+     * interrupted import and the same input, it skips the chunks already completed.
+     * </p>
+     *
+     * @param importId the ID of the import to resume, or {@code null} to start a new one
+     * @param format   the format of the input
+     * @param source   a description of the input, such as a file name, kept for reference
+     * @param input    the input, in UTF-8
+     * @return the state of the import once the input is fully processed
+     */
+    LedgerImportDto importTransactions(UUID importId, ImportFormat format, String source, InputStream input)
+            throws IOException;
+
+    /**
+     * Retrieves the progress of an import, with the first rejected lines.
+     *
+     * @param importId the ID of the import
+     * @return the state of the import
+     */
+    LedgerImportDto getImport(UUID importId);
+}
@@ -0,0 +1,207 @@
+package ir.snapp.insurance.digitalwallet.service.ledgerimport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ir.snapp.insurance.digitalwallet.config.ledgerimport.LedgerImportProperties;
+import ir.snapp.insurance.digitalwallet.controller.admin.dto.LedgerImportDto;
+import ir.snapp.insurance.digitalwallet.controller.admin.dto.LedgerImportErrorDto;
+import ir.snapp.insurance.digitalwallet.enums.ImportFormat;
+import ir.snapp.insurance.digitalwallet.enums.ImportStatus;
+import ir.snapp.insurance.digitalwallet.repository.LedgerImportRepository;
+import ir.snapp.insurance.digitalwallet.service.partition.TransactionPartitionManager;
+import ir.snapp.insurance.digitalwallet.service.wallet.WalletCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static ir.snapp.insurance.digitalwallet.exception.PredefinedError.LEDGER_IMPORT_FORMAT_MISMATCH;
+import static ir.snapp.insurance.digitalwallet.exception.PredefinedError.LEDGER_IMPORT_NOT_FOUND;
+
+/**
+ * Implementation of LedgerImportService loading chunks through {@link LedgerImportRepository}.
+ * <p>
+ * Lines are parsed and format-checked while streaming the input; each chunk is then loaded with {@code COPY}
+ * and committed together with its progress record, so a chunk is either fully imported or not at all.
+ * Balances are recomputed once, after the last chunk. Imports are meant to run while no other writes touch
+ * the imported wallets.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LedgerImportServiceImpl implements LedgerImportService {
+
+    private final LedgerImportRepository ledgerImportRepository;
+
+    private final TransactionPartitionManager transactionPartitionManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final LedgerImportProperties ledgerImportProperties;
+
+    private final ObjectMapper objectMapper;
+
+    private final WalletCache walletCache;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LedgerImportDto importTransactions(UUID importId, ImportFormat format, String source, InputStream input)
+            throws IOException {
+        LedgerImportRepository.ImportState state = startOrResume(importId, format, source);
+        try {
+            load(state, input);
+            int wallets = transactionTemplate.execute(status -> ledgerImportRepository.recomputeBalances(state.id()));
+            walletCache.clear();
+            ledgerImportRepository.updateStatus(state.id(), ImportStatus.COMPLETED, null);
+            log.info("Ledger import {} completed, recomputed the balances of {} wallets", state.id(), wallets);
+        } catch (IOException | RuntimeException e) {
+            ledgerImportRepository.updateStatus(state.id(), ImportStatus.FAILED, abbreviate(e.toString()));
+            log.error("Ledger import {} failed: {}", state.id(), e.getMessage(), e);
+            throw e;
+        }
+        return getImport(state.id());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LedgerImportDto getImport(UUID importId) {
+        var state = ledgerImportRepository.findImport(importId)
+                .orElseThrow(LEDGER_IMPORT_NOT_FOUND::getAppException);
+        var errors = ledgerImportRepository.findErrors(importId, ledgerImportProperties.getMaxReportedErrors())
+                .stream()
+                .map(error -> new LedgerImportErrorDto(error.lineNo(), error.reason()))
+                .toList();
+        return new LedgerImportDto(state.id(), state.format(), state.source(), state.status(), state.chunkSize(),
+                state.chunksDone(), state.rowsImported(), state.rowsRejected(), state.error(),
+                state.createdAt(), state.updatedAt(), errors);
+    }
+
+    private LedgerImportRepository.ImportState startOrResume(UUID importId, ImportFormat format, String source) {
+        if (importId == null) {
+            UUID id = UUID.randomUUID();
+            ledgerImportRepository.createImport(id, format, source, ledgerImportProperties.getChunkSize());
+            return ledgerImportRepository.findImport(id).orElseThrow();
+        }
+        var state = ledgerImportRepository.findImport(importId)
+                .orElseThrow(LEDGER_IMPORT_NOT_FOUND::getAppException);
+        if (state.format() != format) {
+            throw LEDGER_IMPORT_FORMAT_MISMATCH.getAppException();
+        }
+        ledgerImportRepository.updateStatus(importId, ImportStatus.RUNNING, null);
+        return state;
+    }
+
+    /**
+     * Streams the input in chunks of {@code chunkSize} lines, skipping the chunks already completed.
+     */
+    private void load(LedgerImportRepository.ImportState state, InputStream input) throws IOException {
+        Set<Integer> completed = ledgerImportRepository.findCompletedChunks(state.id());
+        var parser = new LedgerImportParser(state.format(), objectMapper);
+        var reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+
+        var chunk = new Chunk(state.id(), parser);
+        long lineNo = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            lineNo++;
+            int chunkNo = (int) ((lineNo - 1) / state.chunkSize());
+            if (chunkNo != chunk.chunkNo) {
+                flush(chunk, completed);
+                chunk = new Chunk(state.id(), parser);
+                chunk.chunkNo = chunkNo;
+                chunk.firstLine = lineNo;
+            }
+            chunk.lastLine = lineNo;
+            if (!completed.contains(chunkNo)) {
+                chunk.add(lineNo, line);
+            }
+        }
+        flush(chunk, completed);
+    }
+
+    private void flush(Chunk chunk, Set<Integer> completed) {
+        if (chunk.lastLine == 0 || completed.contains(chunk.chunkNo)) {
+            return;
+        }
+        if (chunk.minCreatedAt != null) {
+            ensurePartitions(YearMonth.from(chunk.minCreatedAt), YearMonth.from(chunk.maxCreatedAt));
+        }
+        var outcome = transactionTemplate.execute(status -> ledgerImportRepository.importChunk(
+                chunk.importId, chunk.chunkNo, chunk.firstLine, chunk.lastLine, chunk.rows, chunk.rejected));
+        log.info("Ledger import {} chunk {} (lines {}-{}): {} imported, {} rejected",
+                chunk.importId, chunk.chunkNo, chunk.firstLine, chunk.lastLine, outcome.imported(), outcome.rejected());
+    }
+
+    /**
+     * Creates the monthly partitions the chunk falls into, so historical rows do not pile up in the default one.
+     */
+    private void ensurePartitions(YearMonth from, YearMonth to) {
+        try {
+            transactionPartitionManager.ensurePartitions(from, to);
+        } catch (RuntimeException e) {
+            log.warn("Could not create transaction partitions for {} to {}, rows go to the default partition: {}",
+                    from, to, e.getMessage());
+        }
+    }
+
+    private static String abbreviate(String message) {
+        return message.length() <= 1024 ? message : message.substring(0, 1024);
+    }
+
+    /**
+     * The lines of one chunk, parsed.
+     */
+    private static final class Chunk {
+        private final UUID importId;
+        private final LedgerImportParser parser;
+        private final List<ImportRow> rows = new ArrayList<>();
+        private final Map<Long, String> rejected = new HashMap<>();
+        private int chunkNo;
+        private long firstLine = 1;
+        private long lastLine;
+        private LocalDateTime minCreatedAt;
+        private LocalDateTime maxCreatedAt;
+
+        private Chunk(UUID importId, LedgerImportParser parser) {
+            this.importId = importId;
+            this.parser = parser;
+        }
+
+        private void add(long lineNo, String line) {
+            if (parser.isSkipped(line)) {
+                return;
+            }
+            try {
+                ImportRow row = parser.parse(lineNo, line);
+                rows.add(row);
+                if (minCreatedAt == null || row.createdAt().isBefore(minCreatedAt)) {
+                    minCreatedAt = row.createdAt();
+                }
+                if (maxCreatedAt == null || row.createdAt().isAfter(maxCreatedAt)) {
+                    maxCreatedAt = row.createdAt();
+                }
+            } catch (IllegalArgumentException e) {
+                rejected.put(lineNo, e.getMessage());
+            }
+        }
+    }
+}
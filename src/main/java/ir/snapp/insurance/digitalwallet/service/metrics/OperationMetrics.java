@@ -0,0 +1,105 @@
+package ir.snapp.insurance.digitalwallet.service.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import ir.snapp.insurance.digitalwallet.exception.AppException;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Records how long service operations take and how they end, as timers with percentile histograms, and counts
+ * the transient database failures behind retries.
+ * <p>
+ * Timers are tagged with the operation and its outcome: {@code success}, the error code of an
+ * {@link AppException}, {@code conflict} for a concurrency failure left after all retries, or the name of any
+ * other exception.
+ * </p>
+ *
+ * @author Alireza Khodadoust
+ */
+@Component
+public class OperationMetrics {
+
+    public static final String WALLET_OPERATIONS = "wallet.operations";
+    public static final String AUTH_OPERATIONS = "auth.operations";
+    public static final String TOKEN_VERIFICATIONS = "auth.token.verifications";
+
+    private static final String SUCCESS = "success";
+    private static final String CONFLICT = "conflict";
+
+    private final MeterRegistry registry;
+    private final Map<String, Meter.MeterProvider<Timer>> timers = new ConcurrentHashMap<>();
+    private final Meter.MeterProvider<Counter> transientFailures;
+    private final Meter.MeterProvider<Counter> retries;
+
+    public OperationMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.transientFailures = Counter.builder("transaction.transient.failures")
+                .description("Transactions failed with a deadlock, lock or serialization conflict")
+                .withRegistry(registry);
+        this.retries = Counter.builder("transaction.retries")
+                .description("Transactions retried after a transient failure")
+                .withRegistry(registry);
+    }
+
+    /**
+     * Runs the action and records its duration and outcome under the given timer and operation, and as the
+     * service phase of the current request.
+     */
+    public <T> T record(String timer, String operation, Supplier<T> action) {
+        long start = System.nanoTime();
+        String outcome = SUCCESS;
+        try {
+            return action.get();
+        } catch (AppException e) {
+            outcome = e.getError().getErrorCode();
+            throw e;
+        } catch (ConcurrencyFailureException e) {
+            outcome = CONFLICT;
+            throw e;
+        } catch (RuntimeException | Error e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            record(timer, operation, outcome, elapsed);
+            RequestTiming.record(RequestTiming.Phase.SERVICE, elapsed);
+        }
+    }
+
+    /**
+     * Runs the action and records its duration and outcome under the given timer and operation.
+     */
+    public void run(String timer, String operation, Runnable action) {
+        record(timer, operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public void record(String timer, String operation, String outcome, long nanos) {
+        timers.computeIfAbsent(timer, name -> Timer.builder(name)
+                        .publishPercentileHistogram()
+                        .withRegistry(registry))
+                .withTags("operation", operation, "outcome", outcome)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts a transaction failed with a transient error, and whether it is retried.
+     */
+    public void recordTransientFailure(RuntimeException cause, boolean retried) {
+        String causeName = cause.getClass().getSimpleName();
+        transientFailures.withTag("cause", causeName).increment();
+        if (retried) {
+            retries.withTag("cause", causeName).increment();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package ir.snapp.insurance.digitalwallet.service.metrics;
+
+import java.util.Locale;
+
+/**
+ * Time spent in each phase of the request being handled on the current thread, when that request is sampled for
+ * timing.
+ * <p>
+ * Phases are recorded where they happen, through {@link #record(Phase, long)}, which does nothing when the
+ * request is not sampled. Phases may overlap; the service phase, for example, includes the database time of the
+ * statements it runs.
+ * </p>
+ *
+ * @author Alireza Khodadoust
+ */
+public final class RequestTiming {
+
+    public enum Phase {
+        JWT("jwt"),
+        USER("user"),
+        AUTHZ("authz"),
+        SERVICE("service"),
+        POOL("pool"),
+        DB("db");
+
+        private final String metricName;
+
+        Phase(String metricName) {
+            this.metricName = metricName;
+        }
+    }
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+    private static final Phase[] PHASES = Phase.values();
+
+    private final long startNanos = System.nanoTime();
+    private final long[] nanos = new long[PHASES.length];
+    private final int[] counts = new int[PHASES.length];
+
+    private RequestTiming() {
+    }
+
+    /**
+     * Starts timing the request handled on the current thread.
+     */
+    public static RequestTiming start() {
+        RequestTiming timing = new RequestTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    /**
+     * Stops timing on the current thread.
+     */
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Whether the request handled on the current thread is being timed.
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Adds the duration to the phase of the request handled on the current thread, if it is being timed.
+     */
+    public static void record(Phase phase, long durationNanos) {
+        RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.nanos[phase.ordinal()] += durationNanos;
+            timing.counts[phase.ordinal()]++;
+        }
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Formats the recorded phases and the elapsed time as the value of a {@code Server-Timing} header.
+     */
+    public String toHeader() {
+        StringBuilder header = new StringBuilder(128);
+        for (Phase phase : PHASES) {
+            if (counts[phase.ordinal()] == 0) {
+                continue;
+            }
+            header.append(phase.metricName).append(";dur=").append(millis(nanos[phase.ordinal()]));
+            if (phase == Phase.DB) {
+                header.append(";desc=\"").append(counts[phase.ordinal()]).append(" statements\"");
+            }
+            header.append(", ");
+        }
+        return header.append("total;dur=").append(millis(elapsedNanos())).toString();
+    }
+
+    /**
+     * Formats the recorded phases and the elapsed time as {@code key=value} pairs, durations in milliseconds.
+     */
+    public String toLogFields() {
+        StringBuilder fields = new StringBuilder(128).append("total=").append(millis(elapsedNanos()));
+        for (Phase phase : PHASES) {
+            if (counts[phase.ordinal()] != 0) {
+                fields.append(' ').append(phase.metricName).append('=').append(millis(nanos[phase.ordinal()]));
+            }
+        }
+        return fields.append(" statements=").append(counts[Phase.DB.ordinal()]).toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+}
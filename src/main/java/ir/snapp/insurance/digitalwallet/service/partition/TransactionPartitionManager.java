@@ -0,0 +1,94 @@
+package ir.snapp.insurance.digitalwallet.service.partition;
+
+import ir.snapp.insurance.digitalwallet.config.partition.PartitionProperties;
+import ir.snapp.insurance.digitalwallet.repository.TransactionPartitionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.util.HashSet;
+
+/**
+ * Keeps the monthly partitions of the {@code transactions} table in shape: partitions for the upcoming
+ * months are created ahead of time, and partitions older than the retention are detached.
+ * <p>
+ * Runs once on startup and then periodically. Detaching a month is a metadata-only operation,
+ * which replaces bulk deletes for retention. Each month is detached in its own transaction, together with
+ * carrying its net amounts forward to the wallets. Each month is likewise created in its own transaction,
+ * together with moving its rows out of the default partition.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Slf4j
+@Service
+public class TransactionPartitionManager {
+
+    private final TransactionPartitionRepository transactionPartitionRepository;
+    private final PartitionProperties partitionProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    public TransactionPartitionManager(
+            TransactionPartitionRepository transactionPartitionRepository,
+            PartitionProperties partitionProperties,
+            PlatformTransactionManager transactionManager) {
+        this.transactionPartitionRepository = transactionPartitionRepository;
+        this.partitionProperties = partitionProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${partitioning.cron:0 0 3 * * *}")
+    public void maintainPartitions() {
+        if (!partitionProperties.isEnabled()) {
+            return;
+        }
+        try {
+            createUpcomingPartitions(YearMonth.now());
+            detachExpiredPartitions(YearMonth.now());
+        } catch (RuntimeException e) {
+            log.error("Failed to maintain transaction partitions: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Makes sure a partition exists for every month in the given range.
+     *
+     * @throws IllegalStateException if a month of the range was detached and its table kept
+     */
+    public void ensurePartitions(YearMonth from, YearMonth to) {
+        var attached = new HashSet<>(transactionPartitionRepository.findAttachedMonths());
+        for (var month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            if (!attached.contains(month)) {
+                var created = month;
+                Integer moved = transactionTemplate.execute(status ->
+                        transactionPartitionRepository.createPartition(created));
+                log.info("Created transaction partition {} ({} rows moved from the default partition)",
+                        TransactionPartitionRepository.partitionName(month), moved);
+            }
+        }
+    }
+
+    private void createUpcomingPartitions(YearMonth currentMonth) {
+        ensurePartitions(currentMonth, currentMonth.plusMonths(partitionProperties.getMonthsAhead()));
+    }
+
+    private void detachExpiredPartitions(YearMonth currentMonth) {
+        if (partitionProperties.getRetentionMonths() == 0) {
+            return;
+        }
+        var oldestRetained = currentMonth.minusMonths(partitionProperties.getRetentionMonths());
+        for (var month : transactionPartitionRepository.findAttachedMonths()) {
+            if (month.isBefore(oldestRetained)) {
+                transactionTemplate.executeWithoutResult(status ->
+                        transactionPartitionRepository.detachPartition(month));
+                log.info("Detached expired transaction partition {}", TransactionPartitionRepository.partitionName(month));
+            }
+        }
+    }
+}
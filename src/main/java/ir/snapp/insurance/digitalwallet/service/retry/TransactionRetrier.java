@@ -0,0 +1,93 @@
+package ir.snapp.insurance.digitalwallet.service.retry;
+
+import ir.snapp.insurance.digitalwallet.config.wallet.WalletProperties;
+import ir.snapp.insurance.digitalwallet.service.metrics.OperationMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs an action in its own transaction and retries it when the transaction fails with a transient
+ * database error, such as a deadlock, a serialization failure, or an optimistic lock conflict.
+ * <p>
+ * The number of attempts is bounded by {@code wallet.retry.max-attempts}. Before each retry the caller
+ * sleeps for a random delay between zero and an exponentially growing bound ("full jitter"), so
+ * conflicting requests do not collide again in lockstep. When a transaction is already active the action
+ * runs directly in it, since only the outermost caller can roll back and start over.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TransactionRetrier {
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final WalletProperties walletProperties;
+
+    private final OperationMetrics operationMetrics;
+
+    /**
+     * Runs the action in a transaction, retrying it on transient database errors.
+     *
+     * @return the result of the successful attempt
+     * @throws TransientDataAccessException the error of the last attempt once all attempts failed
+     */
+    public <T> T execute(Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+
+        WalletProperties.Retry retry = walletProperties.getRetry();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (TransientDataAccessException e) {
+                boolean retried = attempt < retry.getMaxAttempts();
+                operationMetrics.recordTransientFailure(e, retried);
+                if (!retried) {
+                    throw e;
+                }
+                long delayNanos = backoffNanos(retry, attempt);
+                log.debug("Transaction attempt {} failed with {}, retrying in {} µs",
+                        attempt, e.getClass().getSimpleName(), TimeUnit.NANOSECONDS.toMicros(delayNanos));
+                sleep(delayNanos, e);
+            }
+        }
+    }
+
+    /**
+     * Runs the action in a transaction, retrying it on transient database errors.
+     */
+    public void run(Runnable action) {
+        execute(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private static long backoffNanos(WalletProperties.Retry retry, int attempt) {
+        long bound = Math.min(
+                retry.getMaxBackoff().toNanos(),
+                retry.getInitialBackoff().toNanos() << Math.min(attempt - 1, 20));
+        return bound > 0 ? ThreadLocalRandom.current().nextLong(bound + 1) : 0;
+    }
+
+    private static void sleep(long nanos, TransientDataAccessException cause) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
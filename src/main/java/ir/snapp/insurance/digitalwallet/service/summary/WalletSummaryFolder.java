@@ -0,0 +1,103 @@
+package ir.snapp.insurance.digitalwallet.service.summary;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import ir.snapp.insurance.digitalwallet.config.summary.SummaryProperties;
+import ir.snapp.insurance.digitalwallet.repository.WalletSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Folds new transactions into the per-wallet daily summaries.
+ * <p>
+ * Transactions are folded by insertion time, which the database sets when a row is inserted. Each run moves the
+ * watermark from where the previous one stopped up to the fold horizon: the start of the oldest transaction
+ * still open in the database that has written anything or waits for a lock, or {@code summary.lag} before now if
+ * that is earlier. Read-only transactions, however long, do not hold folding back. Every row inserted before
+ * the horizon is committed or rolled back, so no row can commit behind the watermark, however late its
+ * creation time, whether it comes from a long transaction, a write-behind retry or a bulk import.
+ * </p>
+ * <p>
+ * The watermark moves in windows of at most {@code summary.fold-window}, each folded and committed together
+ * with the new watermark. The watermark row is locked while folding, so several instances can run the job
+ * without counting a transaction twice. How far the watermark trails the present is published as
+ * {@code wallet.summary.lag}.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WalletSummaryFolder implements MeterBinder {
+
+    private final WalletSummaryRepository walletSummaryRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final SummaryProperties summaryProperties;
+
+    private volatile LocalDateTime watermark;
+
+    @Scheduled(fixedDelayString = "${summary.interval:PT10S}")
+    public void fold() {
+        if (!summaryProperties.isEnabled()) {
+            return;
+        }
+        try {
+            boolean behind;
+            do {
+                behind = foldWindow();
+            } while (behind);
+        } catch (RuntimeException e) {
+            log.error("Failed to fold transactions into wallet summaries: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("wallet.summary.lag", this, folder -> folder.lag().toMillis() / 1000.0)
+                .baseUnit("seconds")
+                .description("How far the wallet summaries trail the present.")
+                .register(registry);
+    }
+
+    /**
+     * Folds the next window.
+     *
+     * @return whether further windows are due
+     */
+    private boolean foldWindow() {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            LocalDateTime from = walletSummaryRepository.lockWatermark();
+            LocalDateTime limit = walletSummaryRepository.findFoldHorizon(summaryProperties.getLag());
+            if (!from.isBefore(limit)) {
+                watermark = from;
+                return false;
+            }
+            LocalDateTime to = from.plus(summaryProperties.getFoldWindow());
+            if (to.isAfter(limit)) {
+                to = limit;
+            }
+            int rows = walletSummaryRepository.fold(from, to);
+            watermark = to;
+            log.debug("Folded transactions from {} to {} into {} wallet summary rows", from, to, rows);
+            return to.isBefore(limit);
+        }));
+    }
+
+    private Duration lag() {
+        LocalDateTime current = watermark;
+        if (current == null) {
+            current = watermark = walletSummaryRepository.findWatermark();
+        }
+        return Duration.between(current, LocalDateTime.now());
+    }
+}
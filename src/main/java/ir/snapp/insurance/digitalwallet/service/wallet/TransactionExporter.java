@@ -0,0 +1,183 @@
+package ir.snapp.insurance.digitalwallet.service.wallet;
+
+import ir.snapp.insurance.digitalwallet.config.wallet.WalletProperties;
+import ir.snapp.insurance.digitalwallet.controller.wallet.dto.TransactionDto;
+import ir.snapp.insurance.digitalwallet.controller.wallet.dto.TransactionExportCriteria;
+import ir.snapp.insurance.digitalwallet.enums.ExportFormat;
+import ir.snapp.insurance.digitalwallet.repository.TransactionExportRepository;
+import ir.snapp.insurance.digitalwallet.service.archive.ArchiveCatalog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+
+import static ir.snapp.insurance.digitalwallet.exception.PredefinedError.EXPORT_LIMIT_REACHED;
+
+/**
+ * Streams the transaction history of a wallet as CSV or NDJSON, writing each row to the response as it is read
+ * from the database cursor.
+ * <p>
+ * An export holds a database connection until the client has read all of it, so the number of exports running
+ * at once is capped by {@code wallet.export.max-concurrent}; further requests are rejected right away.
+ * </p>
+ * <p>
+ * Archived transactions are streamed from their segments first. Archived months are older than the ones kept
+ * in the database, so the output stays ordered by creation time.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Slf4j
+@Component
+public class TransactionExporter {
+
+    private static final String CSV_HEADER = "id,type,amount,fromWalletId,toWalletId,transactionDate\n";
+
+    private final TransactionExportRepository transactionExportRepository;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final WalletProperties walletProperties;
+    private final ArchiveCatalog archiveCatalog;
+    private final Semaphore permits;
+
+    public TransactionExporter(
+            TransactionExportRepository transactionExportRepository,
+            ArchiveCatalog archiveCatalog,
+            PlatformTransactionManager transactionManager,
+            WalletProperties walletProperties) {
+        this.transactionExportRepository = transactionExportRepository;
+        this.archiveCatalog = archiveCatalog;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.walletProperties = walletProperties;
+        this.permits = new Semaphore(walletProperties.getExport().getMaxConcurrent());
+    }
+
+    /**
+     * Reserves a slot for the export and returns the body writing it.
+     *
+     * @throws ir.snapp.insurance.digitalwallet.exception.AppException if too many exports are running
+     */
+    public StreamingResponseBody export(long walletId, TransactionExportCriteria criteria) {
+        if (!permits.tryAcquire()) {
+            throw EXPORT_LIMIT_REACHED.getAppException();
+        }
+        return outputStream -> {
+            try {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 1 << 16);
+                RowWriter rowWriter = criteria.getFormat() == ExportFormat.CSV
+                        ? new CsvRowWriter(writer)
+                        : new NdjsonRowWriter(writer);
+                rowWriter.start();
+                archiveCatalog.forEachWalletTransaction(walletId, criteria.getFrom(), criteria.getTo(),
+                        rowWriter::writeUnchecked);
+                readOnlyTransactionTemplate.executeWithoutResult(status ->
+                        transactionExportRepository.streamWalletTransactions(walletId, criteria.getFrom(),
+                                criteria.getTo(), walletProperties.getExport().getFetchSize(),
+                                rs -> rowWriter.writeUnchecked(toTransaction(rs))));
+                writer.flush();
+            } catch (UncheckedIOException e) {
+                log.debug("Export of wallet {} aborted: {}", walletId, e.getMessage());
+                throw e.getCause();
+            } finally {
+                permits.release();
+            }
+        };
+    }
+
+    private static TransactionDto toTransaction(ResultSet rs) throws SQLException {
+        long fromWalletId = rs.getLong("from_wallet_id");
+        Long from = rs.wasNull() ? null : fromWalletId;
+        long toWalletId = rs.getLong("to_wallet_id");
+        Long to = rs.wasNull() ? null : toWalletId;
+        return new TransactionDto(rs.getObject("id", UUID.class), rs.getString("type"), rs.getLong("amount"),
+                from, to, rs.getObject("created_at", LocalDateTime.class));
+    }
+
+    private interface RowWriter {
+        void start() throws IOException;
+
+        void write(TransactionDto transaction) throws IOException;
+
+        default void writeUnchecked(TransactionDto transaction) {
+            try {
+                write(transaction);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private record CsvRowWriter(Writer writer) implements RowWriter {
+        @Override
+        public void start() throws IOException {
+            writer.write(CSV_HEADER);
+        }
+
+        @Override
+        public void write(TransactionDto transaction) throws IOException {
+            writer.write(transaction.id().toString());
+            writer.write(',');
+            writer.write(transaction.type());
+            writer.write(',');
+            writer.write(Long.toString(transaction.amount()));
+            writer.write(',');
+            writeNullableLong(transaction.fromWalletId());
+            writer.write(',');
+            writeNullableLong(transaction.toWalletId());
+            writer.write(',');
+            writer.write(transaction.transactionDate().toString());
+            writer.write('\n');
+        }
+
+        private void writeNullableLong(Long value) throws IOException {
+            if (value != null) {
+                writer.write(value.toString());
+            }
+        }
+    }
+
+    /**
+     * Writes objects with the fields of {@code TransactionDto}. All values are UUIDs, enum names, numbers or ISO
+     * date-times, so none needs escaping.
+     */
+    private record NdjsonRowWriter(Writer writer) implements RowWriter {
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void write(TransactionDto transaction) throws IOException {
+            writer.write("{\"id\":\"");
+            writer.write(transaction.id().toString());
+            writer.write("\",\"type\":\"");
+            writer.write(transaction.type());
+            writer.write("\",\"amount\":");
+            writer.write(Long.toString(transaction.amount()));
+            writeNullableLong(",\"fromWalletId\":", transaction.fromWalletId());
+            writeNullableLong(",\"toWalletId\":", transaction.toWalletId());
+            writer.write(",\"transactionDate\":\"");
+            writer.write(transaction.transactionDate().toString());
+            writer.write("\"}\n");
+        }
+
+        private void writeNullableLong(String prefix, Long value) throws IOException {
+            if (value != null) {
+                writer.write(prefix);
+                writer.write(value.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package ir.snapp.insurance.digitalwallet.service.wallet;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import ir.snapp.insurance.digitalwallet.config.wallet.WalletProperties;
+import ir.snapp.insurance.digitalwallet.controller.wallet.dto.WalletDto;
+import ir.snapp.insurance.digitalwallet.util.BoundedCache;
+import ir.snapp.insurance.digitalwallet.util.BoundedLongMap;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of wallet details, per wallet and per user.
+ * <p>
+ * A user's wallet list is cached as wallet IDs, resolved through the per-wallet entries, so a balance change
+ * only invalidates the wallet it touches. Writers invalidate entries once their transaction commits. A read
+ * racing with a commit could otherwise put the value it read just before the commit back; each wallet has a
+ * generation bumped on invalidation, and a read only caches its value if the generation did not move meanwhile.
+ * Each user's wallet list has a generation of its own, so a list loaded before a wallet was created is not put
+ * back either. A list load can only snapshot the generations of the wallets it already knew; a wallet it finds
+ * that it did not know is cached only if no wallet at all was invalidated during the load.
+ * </p>
+ * <p>
+ * Hits and misses are published as the {@code cache.gets} metric, tagged with {@code cache=wallet} or
+ * {@code cache=wallets}.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Component
+public class WalletCache implements MeterBinder {
+
+    private final BoundedCache<Long, OwnedWallet> wallets;
+    private final BoundedCache<String, List<Long>> walletIds;
+    private final BoundedLongMap generations;
+    private final BoundedCache<String, Long> userGenerations;
+    private final AtomicLong evictions = new AtomicLong();
+    private final LongAdder walletHits = new LongAdder();
+    private final LongAdder walletMisses = new LongAdder();
+    private final LongAdder listHits = new LongAdder();
+    private final LongAdder listMisses = new LongAdder();
+
+    public WalletCache(WalletProperties walletProperties) {
+        var cache = walletProperties.getCache();
+        this.wallets = new BoundedCache<>(cache.getSize(), cache.getTtl());
+        this.walletIds = new BoundedCache<>(cache.getSize(), cache.getTtl());
+        this.generations = new BoundedLongMap(cache.getSize());
+        this.userGenerations = new BoundedCache<>(cache.getSize(), null);
+    }
+
+    /**
+     * Returns the cached wallet if it belongs to the user, or loads and caches it.
+     *
+     * @param loader loads the wallet, verifying it belongs to the user
+     */
+    public WalletDto getWallet(String username, long walletId, Supplier<OwnedWallet> loader) {
+        OwnedWallet cached = wallets.get(walletId);
+        if (cached != null && cached.owner().equals(username)) {
+            walletHits.increment();
+            return cached.wallet();
+        }
+        walletMisses.increment();
+
+        long generation = generations.get(walletId, 0);
+        OwnedWallet loaded = loader.get();
+        putIfCurrent(generation, loaded);
+        return loaded.wallet();
+    }
+
+    /**
+     * Returns the user's cached wallets, or loads and caches them.
+     */
+    public List<WalletDto> getWallets(String username, Supplier<List<OwnedWallet>> loader) {
+        List<Long> ids = walletIds.get(username);
+        if (ids != null) {
+            List<WalletDto> found = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                OwnedWallet cached = wallets.get(id);
+                if (cached == null) {
+                    break;
+                }
+                found.add(cached.wallet());
+            }
+            if (found.size() == ids.size()) {
+                listHits.increment();
+                return found;
+            }
+        }
+        listMisses.increment();
+
+        Long userGeneration = userGenerations.get(username);
+        long evictionsBefore = evictions.get();
+        Map<Long, Long> generationsBefore = new HashMap<>();
+        if (ids != null) {
+            ids.forEach(id -> generationsBefore.put(id, generations.get(id, 0)));
+        }
+
+        List<OwnedWallet> loaded = loader.get();
+        for (OwnedWallet wallet : loaded) {
+            Long generation = generationsBefore.get(wallet.wallet().id());
+            if (generation != null) {
+                putIfCurrent(generation, wallet);
+            } else if (evictions.get() == evictionsBefore) {
+                wallets.put(wallet.wallet().id(), wallet);
+                if (evictions.get() != evictionsBefore) {
+                    wallets.remove(wallet.wallet().id());
+                }
+            }
+        }
+        if (Objects.equals(userGenerations.get(username), userGeneration)) {
+            walletIds.put(username, loaded.stream().map(w -> w.wallet().id()).toList());
+            if (!Objects.equals(userGenerations.get(username), userGeneration)) {
+                walletIds.remove(username);
+            }
+        }
+        return loaded.stream().map(OwnedWallet::wallet).toList();
+    }
+
+    /**
+     * Invalidates the wallets once the current transaction commits, or right away outside a transaction.
+     */
+    public void evictAfterCommit(Collection<Long> walletIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            walletIds.forEach(this::evict);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                walletIds.forEach(WalletCache.this::evict);
+            }
+        });
+    }
+
+    /**
+     * Invalidates the user's wallet list once the current transaction commits, or right away outside a transaction.
+     */
+    public void evictUserAfterCommit(String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictUser(username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictUser(username);
+            }
+        });
+    }
+
+    /**
+     * Drops every cached entry, after balances changed in bulk.
+     */
+    public void clear() {
+        wallets.clear();
+        walletIds.clear();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindCache(registry, "wallet", walletHits, walletMisses, wallets);
+        bindCache(registry, "wallets", listHits, listMisses, walletIds);
+    }
+
+    private void evict(Long walletId) {
+        evictions.incrementAndGet();
+        generations.put(walletId, generations.get(walletId, 0) + 1);
+        wallets.remove(walletId);
+    }
+
+    private void evictUser(String username) {
+        Long generation = userGenerations.get(username);
+        userGenerations.put(username, generation == null ? 1 : generation + 1);
+        walletIds.remove(username);
+    }
+
+    private void putIfCurrent(long generation, OwnedWallet loaded) {
+        long walletId = loaded.wallet().id();
+        wallets.put(walletId, loaded);
+        if (generations.get(walletId, 0) != generation) {
+            wallets.remove(walletId);
+        }
+    }
+
+    private static void bindCache(MeterRegistry registry, String name, LongAdder hits, LongAdder misses,
+                                  BoundedCache<?, ?> cache) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tags("cache", name, "result", "hit")
+                .description("The number of times cache lookup methods have returned a cached value.")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tags("cache", name, "result", "miss")
+                .description("The number of times cache lookup methods have not returned a cached value.")
+                .register(registry);
+        Gauge.builder("cache.size", cache, BoundedCache::size)
+                .tags("cache", name)
+                .description("The number of entries in this cache.")
+                .register(registry);
+    }
+
+    /**
+     * A wallet together with the username of its owner.
+     */
+    public record OwnedWallet(String owner, WalletDto wallet) {
+    }
+}
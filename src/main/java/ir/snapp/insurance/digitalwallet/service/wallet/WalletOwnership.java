@@ -0,0 +1,75 @@
+package ir.snapp.insurance.digitalwallet.service.wallet;
+
+import ir.snapp.insurance.digitalwallet.config.wallet.WalletProperties;
+import ir.snapp.insurance.digitalwallet.model.Wallet;
+import ir.snapp.insurance.digitalwallet.repository.WalletRepository;
+import ir.snapp.insurance.digitalwallet.util.BoundedLongMap;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-memory index of wallet owners, mapping wallet IDs to the IDs of the users owning them.
+ * <p>
+ * Wallets never change owner, so entries never go stale. The index is filled as wallets are created, loaded, or
+ * looked up, and bounded by {@code wallet.ownership-cache-size}; a wallet missing from it costs one primary-key
+ * query.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Component
+public class WalletOwnership {
+
+    private static final long UNKNOWN = 0;
+
+    private final WalletRepository walletRepository;
+    private final BoundedLongMap owners;
+
+    public WalletOwnership(WalletRepository walletRepository, WalletProperties walletProperties) {
+        this.walletRepository = walletRepository;
+        this.owners = new BoundedLongMap(walletProperties.getOwnershipCacheSize());
+    }
+
+    /**
+     * Checks whether the wallet exists and is owned by the user.
+     */
+    public boolean isOwner(long walletId, long userId) {
+        long ownerId = owners.get(walletId, UNKNOWN);
+        if (ownerId == UNKNOWN) {
+            Long found = walletRepository.findOwnerIdById(walletId);
+            if (found == null) {
+                return false;
+            }
+            ownerId = found;
+            owners.put(walletId, ownerId);
+        }
+        return ownerId == userId;
+    }
+
+    /**
+     * Records the owner of a loaded or newly created wallet.
+     */
+    public void register(Wallet wallet) {
+        owners.put(wallet.getId(), wallet.getUser().getId());
+    }
+
+    /**
+     * Records the owner of a newly created wallet once the current transaction commits, or right away outside a
+     * transaction.
+     */
+    public void registerAfterCommit(Wallet wallet) {
+        long walletId = wallet.getId();
+        long ownerId = wallet.getUser().getId();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            owners.put(walletId, ownerId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                owners.put(walletId, ownerId);
+            }
+        });
+    }
+}
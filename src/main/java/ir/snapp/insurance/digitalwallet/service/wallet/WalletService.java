@@ -2,6 +2,7 @@ package ir.snapp.insurance.digitalwallet.service.wallet;
 
 import ir.snapp.insurance.digitalwallet.controller.wallet.dto.*;
 import ir.snapp.insurance.digitalwallet.util.Paginated;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -48,23 +49,43 @@ public interface WalletService {
      */
     Paginated<TransactionDto> filterTransactions(String username, Long walletId, TransactionFilterCriteria criteria);
 
+    /**
+     * Builds a statement of the specified wallet, summing its activity per day, week or month.
+     *
+     * @param username the username of the wallet owner
+     * @param walletId the ID of the wallet
+     * @param criteria the date range and period length of the statement
+     * @return the statement with the opening and closing balance of the range
+     */
+    WalletStatementDto getStatement(String username, Long walletId, StatementCriteria criteria);
+
+    /**
+     * Prepares an export of the transactions of the specified wallet, streamed as it is written.
+     *
+     * @param username the username of the wallet owner
+     * @param walletId the ID of the wallet
+     * @param criteria the date range and format of the export
+     * @return the body writing the export
+     */
+    StreamingResponseBody exportTransactions(String username, Long walletId, TransactionExportCriteria criteria);
+
     /**
      * Deposits a specified amount into the user's wallet.
      *
      * @param username the username of the wallet owner
      * @param walletId the ID of the wallet
-     * @param amount   the amount to deposit
+     * @param amount   the amount to deposit, in minor units
      */
-    void deposit(String username, Long walletId, Double amount);
+    void deposit(String username, Long walletId, long amount);
 
     /**
      * Withdraws a specified amount from the user's wallet.
      *
      * @param username the username of the wallet owner
      * @param walletId the ID of the wallet
-     * @param amount   the amount to withdraw
+     * @param amount   the amount to withdraw, in minor units
      */
-    void withdraw(String username, Long walletId, Double amount);
+    void withdraw(String username, Long walletId, long amount);
 
     /**
      * Transfers a specified amount from one wallet to another.
@@ -72,7 +93,21 @@ public interface WalletService {
      * @param username     the username of the wallet owner
      * @param fromWalletId the ID of the wallet to transfer from
      * @param toWalletId   the ID of the wallet to transfer to
-     * @param amount       the amount to transfer
+     * @param amount       the amount to transfer, in minor units
+     */
+    void transfer(String username, Long fromWalletId, Long toWalletId, long amount);
+
+    /**
+     * Transfers amounts from one wallet to many wallets in a single transaction.
+     * <p>
+     * Items are validated in order against the remaining balance of the source wallet; rejected items
+     * are reported and skipped without failing the rest of the batch.
+     * </p>
+     *
+     * @param username     the username of the wallet owner
+     * @param fromWalletId the ID of the wallet to transfer from
+     * @param items        the destination wallet IDs and amounts
+     * @return the per-item outcome of the batch
      */
-    void transfer(String username, Long fromWalletId, Long toWalletId, Double amount);
+    BatchTransferResult batchTransfer(String username, Long fromWalletId, List<TransferRequest> items);
 }
@@ -1,29 +1,45 @@
 package ir.snapp.insurance.digitalwallet.service.wallet;
 
-import ir.snapp.insurance.digitalwallet.controller.wallet.dto.TransactionDto;
-import ir.snapp.insurance.digitalwallet.controller.wallet.dto.TransactionFilterCriteria;
-import ir.snapp.insurance.digitalwallet.controller.wallet.dto.WalletCreationRequest;
-import ir.snapp.insurance.digitalwallet.controller.wallet.dto.WalletDto;
+import ir.snapp.insurance.digitalwallet.config.wallet.WalletProperties;
+import ir.snapp.insurance.digitalwallet.controller.wallet.dto.*;
 import ir.snapp.insurance.digitalwallet.enums.Currency;
 import ir.snapp.insurance.digitalwallet.enums.TransactionType;
 import ir.snapp.insurance.digitalwallet.model.Transaction;
 import ir.snapp.insurance.digitalwallet.model.User;
 import ir.snapp.insurance.digitalwallet.model.Wallet;
+import ir.snapp.insurance.digitalwallet.model.WalletStripe;
+import ir.snapp.insurance.digitalwallet.exception.PredefinedError;
+import ir.snapp.insurance.digitalwallet.repository.LedgerJdbcRepository;
 import ir.snapp.insurance.digitalwallet.repository.TransactionRepository;
 import ir.snapp.insurance.digitalwallet.repository.UserRepository;
 import ir.snapp.insurance.digitalwallet.repository.WalletRepository;
+import ir.snapp.insurance.digitalwallet.repository.WalletStripeRepository;
+import ir.snapp.insurance.digitalwallet.repository.WalletSummaryRepository;
+import ir.snapp.insurance.digitalwallet.service.archive.ArchiveCatalog;
+import ir.snapp.insurance.digitalwallet.service.metrics.OperationMetrics;
+import ir.snapp.insurance.digitalwallet.service.retry.TransactionRetrier;
+import ir.snapp.insurance.digitalwallet.util.Money;
 import ir.snapp.insurance.digitalwallet.util.Paginated;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static ir.snapp.insurance.digitalwallet.exception.PredefinedError.*;
+import static ir.snapp.insurance.digitalwallet.service.metrics.OperationMetrics.WALLET_OPERATIONS;
+import static ir.snapp.insurance.digitalwallet.util.Constants.MAX_PAGE_OFFSET;
 
 /**
  * Implementation of WalletService to handle wallet operations such as deposit, withdraw, and transfer.
@@ -41,31 +57,68 @@ public class WalletServiceImpl implements WalletService {
 
     private final TransactionRepository transactionRepository;
 
+    private final WalletStripeRepository walletStripeRepository;
+
+    private final LedgerJdbcRepository ledgerJdbcRepository;
+
+    private final WalletProperties walletProperties;
+
+    private final WalletWriteCoalescer walletWriteCoalescer;
+
+    private final TransactionRetrier transactionRetrier;
+
+    private final WalletOwnership walletOwnership;
+
+    private final WalletCache walletCache;
+
+    private final WalletSummaryRepository walletSummaryRepository;
+
+    private final TransactionExporter transactionExporter;
+
+    private final ArchiveCatalog archiveCatalog;
+
+    private final OperationMetrics operationMetrics;
+
+    private final AtomicLong stripeCounter = new AtomicLong();
+
     /**
      * {@inheritDoc}
      */
     @Override
+    @Transactional
     public WalletDto createWallet(String username, WalletCreationRequest request) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(USER_NOT_FOUND::getAppException);
-
-        walletRepository.findByUserUsername(username).stream()
-                .filter(w -> w.getName().equals(request.getName()))
-                .findAny()
-                .ifPresent(w -> {
-                    throw WALLET_ALREADY_EXISTS.getAppException();
-                });
-
-        Wallet wallet = new Wallet();
-        wallet.setName(request.getName());
-        wallet.setCurrency(request.getCurrency() != null ? request.getCurrency() : Currency.IRR);
-        wallet.setBalance(0.0);
-        wallet.setUser(user);
-
-        walletRepository.save(wallet);
-
-        log.debug("Created wallet: {} for user: {}", wallet, username);
-        return WalletDto.fromEntity(wallet);
+        return operationMetrics.record(WALLET_OPERATIONS, "create_wallet", () -> {
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(USER_NOT_FOUND::getAppException);
+
+            walletRepository.findByUserUsername(username).stream()
+                    .filter(w -> w.getName().equals(request.getName()))
+                    .findAny()
+                    .ifPresent(w -> {
+                        throw WALLET_ALREADY_EXISTS.getAppException();
+                    });
+
+            Wallet wallet = new Wallet();
+            wallet.setName(request.getName());
+            wallet.setCurrency(request.getCurrency() != null ? request.getCurrency() : Currency.IRR);
+            wallet.setBalance(0);
+            wallet.setStripes(request.getStripes() != null ? request.getStripes() : 1);
+            wallet.setUser(user);
+
+            walletRepository.save(wallet);
+
+            if (wallet.isStriped()) {
+                walletStripeRepository.saveAll(IntStream.range(0, wallet.getStripes())
+                        .mapToObj(slot -> new WalletStripe(null, wallet, slot, 0))
+                        .toList());
+            }
+
+            walletOwnership.registerAfterCommit(wallet);
+            walletCache.evictUserAfterCommit(username);
+
+            log.debug("Created wallet: {} for user: {}", wallet, username);
+            return WalletDto.fromEntity(wallet);
+        });
     }
 
     /**
@@ -73,10 +126,12 @@ public class WalletServiceImpl implements WalletService {
      */
     @Override
     public List<WalletDto> getWallets(String username) {
-        return walletRepository.findByUserUsername(username)
-                .stream()
-                .map(WalletDto::fromEntity)
-                .toList();
+        return operationMetrics.record(WALLET_OPERATIONS, "get_wallets", () ->
+                walletCache.getWallets(username, () -> walletRepository.findByUserUsername(username)
+                        .stream()
+                        .peek(walletOwnership::register)
+                        .map(wallet -> new WalletCache.OwnedWallet(username, WalletDto.fromEntity(wallet)))
+                        .toList()));
     }
 
     /**
@@ -84,119 +139,481 @@ public class WalletServiceImpl implements WalletService {
      */
     @Override
     public WalletDto getWallet(String username, Long walletId) {
-        Wallet wallet = findUserWallet(username, walletId);
-        return WalletDto.fromEntity(wallet);
+        return operationMetrics.record(WALLET_OPERATIONS, "get_wallet", () ->
+                walletCache.getWallet(username, walletId, () -> new WalletCache.OwnedWallet(
+                        username, WalletDto.fromEntity(findUserWallet(username, walletId)))));
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
+    @Transactional(readOnly = true)
     public Paginated<TransactionDto> filterTransactions(String username, Long walletId, TransactionFilterCriteria criteria) {
-        Wallet wallet = findUserWallet(username, walletId);
+        return operationMetrics.record(WALLET_OPERATIONS, "filter_transactions", () -> {
+            Wallet wallet = findUserWallet(username, walletId);
+            if (criteria.isCursorMode()) {
+                return filterTransactionsByCursor(wallet, criteria);
+            }
+
+            long rowOffset = (long) criteria.getPage() * criteria.getSize();
+            long archivedCount = archiveCatalog.countWalletTransactions(
+                    wallet.getId(), criteria.getFrom(), criteria.getTo());
+            List<TransactionDto> transactions = archivedCount == 0
+                    ? findWalletPage(wallet.getId(), criteria.getFrom(), criteria.getTo(), rowOffset, criteria.getSize())
+                    : findMergedPage(wallet.getId(), criteria, rowOffset, archivedCount);
+
+            var totalElements = archivedCount + transactionRepository.countWalletTransactions(
+                    wallet.getId(),
+                    criteria.getFrom(),
+                    criteria.getTo()
+            );
+
+            return new Paginated<>(criteria.getPage(), criteria.getSize(), totalElements, transactions);
+        });
+    }
 
-        Pageable pageable = PageRequest.of(criteria.getPage(),
-                criteria.getSize(),
-                Sort.by(Sort.Direction.ASC, "createdAt"));
+    /**
+     * Archived transactions normally all precede the ones in the database, so a page is read from the archive at
+     * its offset and continued from the database at the offset past the archived rows. Only transactions
+     * imported into a month after it was archived fall among the archived ones; while the wallet has any, its
+     * pages are merged from the start, and only pages starting at most {@code MAX_PAGE_OFFSET} rows in are served
+     * this way; deeper ones are left to cursor mode.
+     */
+    private List<TransactionDto> findMergedPage(long walletId, TransactionFilterCriteria criteria, long rowOffset,
+                                                long archivedCount) {
+        int size = criteria.getSize();
+        LocalDateTime archivedUntil = archiveCatalog.getArchivedUntil().orElse(criteria.getFrom());
+        LocalDateTime overlapEnd = archivedUntil.isBefore(criteria.getTo()) ? archivedUntil : criteria.getTo();
+        if (transactionRepository.countWalletTransactions(walletId, criteria.getFrom(), overlapEnd) > 0) {
+            if (rowOffset > MAX_PAGE_OFFSET) {
+                throw PAGE_TOO_DEEP.getAppException();
+            }
+            int limit = Math.toIntExact(rowOffset + size);
+            return slice(merge(
+                    archiveCatalog.findWalletTransactions(walletId, criteria.getFrom(), criteria.getTo(), 0, limit),
+                    findWalletPage(walletId, criteria.getFrom(), criteria.getTo(), 0, limit)), rowOffset, size);
+        }
 
-        var transactions = transactionRepository.findByFromWalletIdOrToWalletIdAndCreatedAtBetween(
-                        wallet.getId(),
+        List<TransactionDto> transactions = new ArrayList<>(archiveCatalog.findWalletTransactions(
+                walletId, criteria.getFrom(), criteria.getTo(), rowOffset, size));
+        if (transactions.size() < size) {
+            // Database rows have microsecond precision, so this excludes exactly the archived range.
+            LocalDateTime liveFrom = archivedUntil.plusNanos(1_000);
+            transactions.addAll(findWalletPage(walletId,
+                    liveFrom.isAfter(criteria.getFrom()) ? liveFrom : criteria.getFrom(), criteria.getTo(),
+                    Math.max(0, rowOffset - archivedCount), size - transactions.size()));
+        }
+        return transactions;
+    }
+
+    private List<TransactionDto> findWalletPage(long walletId, LocalDateTime start, LocalDateTime end, long rowOffset,
+                                                int rowLimit) {
+        return transactionRepository.findWalletPage(walletId, start, end, rowOffset, rowLimit).stream()
+                .map(TransactionDto::fromEntity)
+                .toList();
+    }
+
+    /**
+     * Keyset pagination: seeks directly to the cursor position and fetches one extra row to detect
+     * a next page, so neither skipped rows nor a total count are computed.
+     */
+    private Paginated<TransactionDto> filterTransactionsByCursor(Wallet wallet, TransactionFilterCriteria criteria) {
+        TransactionCursor after = criteria.getCursor() != null
+                ? TransactionCursor.decode(criteria.getCursor())
+                : TransactionCursor.before(criteria.getFrom());
+
+        var transactions = transactionRepository.findPageAfter(
                         wallet.getId(),
                         criteria.getFrom(),
                         criteria.getTo(),
-                        pageable).stream()
+                        after.createdAt(),
+                        after.id(),
+                        criteria.getSize() + 1).stream()
                 .map(TransactionDto::fromEntity)
                 .toList();
 
-        log.debug("trx size : {}", transactions);
+        List<TransactionDto> archived = archiveCatalog.findWalletTransactionsAfter(
+                wallet.getId(), criteria.getFrom(), criteria.getTo(), after, criteria.getSize() + 1);
+        if (!archived.isEmpty()) {
+            transactions = slice(merge(archived, transactions), 0, criteria.getSize() + 1);
+        }
 
-        var totalElements = transactionRepository.countByFromWalletIdOrToWalletIdAndCreatedAtBetween(
-                wallet.getId(),
-                wallet.getId(),
-                criteria.getFrom(),
-                criteria.getTo()
-        );
+        return Paginated.ofCursor(criteria.getSize(), transactions, criteria.getCursor() != null,
+                transaction -> TransactionCursor.after(transaction).encode());
+    }
 
-        return new Paginated<>(criteria.getPage(), criteria.getSize(), totalElements, transactions);
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Reads the daily summaries, plus the transactions not folded into them yet.
+     * </p>
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public WalletStatementDto getStatement(String username, Long walletId, StatementCriteria criteria) {
+        return operationMetrics.record(WALLET_OPERATIONS, "statement", () -> {
+            Wallet wallet = findUserWallet(username, walletId);
+            List<WalletSummaryRepository.PeriodSummary> summaries = walletSummaryRepository.findStatement(
+                    wallet.getId(), criteria.getFrom(), criteria.getTo(), criteria.getGranularity());
+
+            long openingBalance = 0;
+            List<StatementPeriodDto> periods = new ArrayList<>(summaries.size());
+            for (var summary : summaries) {
+                if (summary.period() == null) {
+                    openingBalance = summary.closingBalance();
+                } else {
+                    periods.add(new StatementPeriodDto(summary.period(), summary.inflow(), summary.outflow(),
+                            summary.transactionCount(), summary.closingBalance()));
+                }
+            }
+            long closingBalance = periods.isEmpty() ? openingBalance : periods.getLast().closingBalance();
+            return new WalletStatementDto(wallet.getId(), criteria.getFrom(), criteria.getTo(),
+                    criteria.getGranularity(), openingBalance, closingBalance, periods);
+        });
     }
 
     /**
      * {@inheritDoc}
      */
-    @Transactional
-    public void deposit(String username, Long walletId, Double amount) {
+    @Override
+    public StreamingResponseBody exportTransactions(String username, Long walletId, TransactionExportCriteria criteria) {
         Wallet wallet = findUserWallet(username, walletId);
-        wallet.setBalance(wallet.getBalance() + amount);
+        return transactionExporter.export(wallet.getId(), criteria);
+    }
 
-        Transaction transaction = new Transaction();
-        transaction.setType(TransactionType.DEPOSIT);
-        transaction.setAmount(amount);
-        transaction.setToWallet(wallet);
+    /**
+     * {@inheritDoc}
+     */
+    public void deposit(String username, Long walletId, long amount) {
+        operationMetrics.run(WALLET_OPERATIONS, "deposit", () -> {
+            walletWriteCoalescer.run(false, () -> {
+                if (walletRepository.creditIfOwned(walletId, username, amount) == 0
+                        && walletStripeRepository.creditIfOwned(walletId, username, stripeSelector(), amount) == 0) {
+                    findUserWallet(username, walletId);
+                    throw AMOUNT_OUT_OF_RANGE.getAppException();
+                }
+
+                recordTransaction(TransactionType.DEPOSIT, amount, null, walletId);
+                walletCache.evictAfterCommit(List.of(walletId));
+            });
+
+            log.debug("Deposited {} to wallet {} of user {}", amount, walletId, username);
+        });
+    }
 
-        transactionRepository.save(transaction);
-        walletRepository.save(wallet);
+    /**
+     * {@inheritDoc}
+     */
+    public void withdraw(String username, Long walletId, long amount) {
+        operationMetrics.run(WALLET_OPERATIONS, "withdraw", () -> {
+            walletWriteCoalescer.run(false, () -> {
+                debitUserWallet(username, walletId, amount);
 
-        log.debug("Deposited {} {} to wallet {} of user {}", amount, wallet.getCurrency(), walletId, username);
+                recordTransaction(TransactionType.WITHDRAW, amount, walletId, null);
+                walletCache.evictAfterCommit(List.of(walletId));
+            });
+
+            log.debug("Withdraw {} from wallet {} of user {}", amount, walletId, username);
+        });
     }
 
     /**
      * {@inheritDoc}
+     * <p>
+     * Both wallets are always written in ascending ID order, whatever the direction of the transfer, so two
+     * opposite transfers between the same wallets cannot deadlock. Transient failures are retried.
+     * </p>
      */
-    @Transactional
-    public void withdraw(String username, Long walletId, Double amount) {
-        Wallet wallet = findUserWallet(username, walletId);
-        if (wallet.getBalance() < amount) {
-            throw INSUFFICIENT_FUNDS.getAppException();
+    public void transfer(String username, Long fromWalletId, Long toWalletId, long amount) {
+        operationMetrics.run(WALLET_OPERATIONS, "transfer", () -> {
+            walletWriteCoalescer.run(true, () -> {
+                switch (walletProperties.getTransferStrategy()) {
+                    case ATOMIC -> transferAtomically(username, fromWalletId, toWalletId, amount);
+                    case PESSIMISTIC -> transferWithLocks(username, fromWalletId, toWalletId, amount);
+                }
+
+                recordTransaction(TransactionType.TRANSFER, amount, fromWalletId, toWalletId);
+                walletCache.evictAfterCommit(List.of(fromWalletId, toWalletId));
+            });
+
+            log.debug("Transferred {} from wallet {} to wallet {} by user {}",
+                    amount, fromWalletId, toWalletId, username);
+        });
+    }
+
+    /**
+     * Moves the funds with one conditional update per wallet, the lower wallet ID first.
+     */
+    private void transferAtomically(String username, Long fromWalletId, Long toWalletId, long amount) {
+        if (toWalletId < fromWalletId) {
+            creditTargetWallet(username, fromWalletId, toWalletId, amount);
+            debitUserWallet(username, fromWalletId, amount);
+        } else {
+            debitUserWallet(username, fromWalletId, amount);
+            creditTargetWallet(username, fromWalletId, toWalletId, amount);
         }
-        wallet.setBalance(wallet.getBalance() - amount);
+    }
 
-        Transaction transaction = new Transaction();
-        transaction.setType(TransactionType.WITHDRAW);
-        transaction.setAmount(amount);
-        transaction.setFromWallet(wallet);
+    /**
+     * Locks both wallet rows in one ordered {@code SELECT ... FOR UPDATE}, then checks and moves the funds.
+     */
+    private void transferWithLocks(String username, Long fromWalletId, Long toWalletId, long amount) {
+        Map<Long, Wallet> wallets = walletRepository.findAllByIdForUpdate(List.of(fromWalletId, toWalletId))
+                .stream()
+                .collect(Collectors.toMap(Wallet::getId, Function.identity()));
 
-        transactionRepository.save(transaction);
-        walletRepository.save(wallet);
+        Wallet fromWallet = wallets.get(fromWalletId);
+        if (fromWallet == null || !fromWallet.getUser().getUsername().equals(username)) {
+            throw WALLET_NOT_FOUND.getAppException();
+        }
+        Wallet toWallet = wallets.get(toWalletId);
+        if (toWallet == null) {
+            throw TARGET_WALLET_NOT_FOUND.getAppException();
+        }
+        if (!fromWallet.getCurrency().equals(toWallet.getCurrency())) {
+            throw CURRENCY_MISMATCH.getAppException();
+        }
 
-        log.debug("Withdraw {} {} from wallet {} of user {}", amount, wallet.getCurrency(), walletId, username);
+        debit(fromWallet, amount);
+        credit(toWallet, amount);
     }
 
     /**
-     * {@inheritDoc}
+     * Credits the target wallet of a transfer with a single conditional update. Only when that update
+     * matches no row are the wallets loaded to report why.
      */
-    @Transactional
-    public void transfer(String username, Long fromWalletId, Long toWalletId, Double amount) {
-        Wallet fromWallet = findUserWallet(username, fromWalletId);
+    private void creditTargetWallet(String username, Long fromWalletId, Long toWalletId, long amount) {
+        if (walletRepository.creditIfSameCurrency(toWalletId, fromWalletId, amount) == 1
+                || walletStripeRepository.creditIfSameCurrency(toWalletId, fromWalletId, stripeSelector(), amount) == 1) {
+            return;
+        }
+
         Wallet toWallet = walletRepository.findById(toWalletId)
                 .orElseThrow(TARGET_WALLET_NOT_FOUND::getAppException);
-
+        Wallet fromWallet = findUserWallet(username, fromWalletId);
         if (!fromWallet.getCurrency().equals(toWallet.getCurrency())) {
             throw CURRENCY_MISMATCH.getAppException();
         }
+        throw AMOUNT_OUT_OF_RANGE.getAppException();
+    }
 
-        if (fromWallet.getBalance() < amount)
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The source and target wallets are locked together in ascending ID order, like a pessimistic transfer, so
+     * batches crossing each other or single transfers cannot deadlock, and the batch is retried as a whole on
+     * transient database errors. Only the source wallet is loaded as an entity; the targets are locked and
+     * checked through a projection of their currency and slots, so their owners are never loaded.
+     * </p>
+     */
+    public BatchTransferResult batchTransfer(String username, Long fromWalletId, List<TransferRequest> items) {
+        return operationMetrics.record(WALLET_OPERATIONS, "batch_transfer", () -> transactionRetrier.execute(() -> {
+            Set<Long> walletIds = items.stream().map(TransferRequest::toWalletId).collect(Collectors.toSet());
+            walletIds.add(fromWalletId);
+            Map<Long, LedgerJdbcRepository.LockedWallet> targets = ledgerJdbcRepository.lockWallets(walletIds).stream()
+                    .collect(Collectors.toMap(LedgerJdbcRepository.LockedWallet::walletId, Function.identity()));
+            Wallet fromWallet = targets.containsKey(fromWalletId)
+                    ? walletRepository.findById(fromWalletId).orElse(null)
+                    : null;
+            if (fromWallet == null || !fromWallet.getUser().getUsername().equals(username)) {
+                throw WALLET_NOT_FOUND.getAppException();
+            }
+
+            long remaining = fromWallet.getTotalBalance();
+            long totalDebited = 0;
+            List<BatchTransferItemResult> results = new ArrayList<>(items.size());
+            List<LedgerJdbcRepository.Entry> entries = new ArrayList<>(items.size());
+            Map<Long, Long> walletCredits = new HashMap<>();
+            Map<Long, Long> stripedCredits = new HashMap<>();
+
+            for (int i = 0; i < items.size(); i++) {
+                TransferRequest item = items.get(i);
+                LedgerJdbcRepository.LockedWallet toWallet = targets.get(item.toWalletId());
+                PredefinedError error = null;
+                if (toWallet == null) {
+                    error = TARGET_WALLET_NOT_FOUND;
+                } else if (toWallet.walletId() == fromWalletId) {
+                    error = SAME_WALLET_TRANSFER;
+                } else if (!fromWallet.getCurrency().equals(toWallet.currency())) {
+                    error = CURRENCY_MISMATCH;
+                } else if (remaining < item.amount()) {
+                    error = INSUFFICIENT_FUNDS;
+                }
+
+                if (error != null) {
+                    results.add(new BatchTransferItemResult(
+                            i, item.toWalletId(), item.amount(), false, error.getErrorCode()));
+                    continue;
+                }
+
+                remaining -= item.amount();
+                totalDebited += item.amount();
+                (toWallet.isStriped() ? stripedCredits : walletCredits)
+                        .merge(toWallet.walletId(), item.amount(), Money::add);
+                entries.add(LedgerJdbcRepository.Entry.of(
+                        TransactionType.TRANSFER, item.amount(), fromWallet.getId(), toWallet.walletId()));
+                results.add(new BatchTransferItemResult(i, item.toWalletId(), item.amount(), true, null));
+            }
+
+            if (!entries.isEmpty()) {
+                debit(fromWallet, totalDebited);
+                List<LedgerJdbcRepository.StripeCredit> stripeCredits = stripedCredits.entrySet().stream()
+                        .map(credit -> new LedgerJdbcRepository.StripeCredit(credit.getKey(),
+                                selectStripe(targets.get(credit.getKey()).stripes()), credit.getValue()))
+                        .toList();
+                if (!ledgerJdbcRepository.addToWalletBalances(walletCredits)
+                        || !ledgerJdbcRepository.addToStripeBalances(stripeCredits)) {
+                    throw AMOUNT_OUT_OF_RANGE.getAppException();
+                }
+                ledgerJdbcRepository.insertTransactions(entries);
+
+                List<Long> touched = new ArrayList<>(walletCredits.keySet());
+                touched.addAll(stripedCredits.keySet());
+                touched.add(fromWalletId);
+                walletCache.evictAfterCommit(touched);
+            }
+
+            log.debug("Batch transferred {} {} from wallet {} in {} of {} items by user {}",
+                    totalDebited, fromWallet.getCurrency(), fromWalletId, entries.size(), items.size(), username);
+            return new BatchTransferResult(entries.size(), items.size() - entries.size(), totalDebited, results);
+        }));
+    }
+
+    /**
+     * Debits the user's wallet with a single conditional update. Only when that update matches no row is
+     * the wallet loaded, either to report why or to pull the funds from the slots of a striped wallet.
+     */
+    private void debitUserWallet(String username, Long walletId, long amount) {
+        if (walletRepository.debitIfSufficient(walletId, username, amount) == 1) {
+            return;
+        }
+
+        Wallet wallet = findUserWallet(username, walletId);
+        if (!wallet.isStriped()) {
             throw INSUFFICIENT_FUNDS.getAppException();
+        }
+        debit(wallet, amount);
+    }
 
-        fromWallet.setBalance(fromWallet.getBalance() - amount);
-        toWallet.setBalance(toWallet.getBalance() + amount);
+    /**
+     * Records a transaction row. The wallets are referenced by ID only, without being loaded.
+     * Within a coalesced batch the row is inserted together with the rest of the batch.
+     */
+    private void recordTransaction(TransactionType type, long amount, Long fromWalletId, Long toWalletId) {
+        if (walletWriteCoalescer.isBatching()) {
+            walletWriteCoalescer.record(LedgerJdbcRepository.Entry.of(type, amount, fromWalletId, toWalletId));
+            return;
+        }
 
         Transaction transaction = new Transaction();
-        transaction.setType(TransactionType.TRANSFER);
+        transaction.setType(type);
         transaction.setAmount(amount);
-        transaction.setFromWallet(fromWallet);
-        transaction.setToWallet(toWallet);
+        transaction.setFromWallet(fromWalletId != null ? walletRepository.getReferenceById(fromWalletId) : null);
+        transaction.setToWallet(toWalletId != null ? walletRepository.getReferenceById(toWalletId) : null);
 
         transactionRepository.save(transaction);
-        walletRepository.save(fromWallet);
-        walletRepository.save(toWallet);
+    }
 
-        log.debug("Transferred {} {} from wallet {} to wallet {} by user {}",
-                amount, fromWallet.getCurrency(), fromWalletId, toWalletId, username);
+    /**
+     * Adds the amount to the wallet. Striped wallets receive it in one of their slots through a single
+     * increment statement, leaving the {@code wallets} row and its version untouched.
+     */
+    private void credit(Wallet wallet, long amount) {
+        if (wallet.isStriped()) {
+            if (walletStripeRepository.credit(wallet.getId(), selectStripe(wallet.getStripes()), amount) == 0) {
+                throw AMOUNT_OUT_OF_RANGE.getAppException();
+            }
+            return;
+        }
+
+        wallet.setBalance(Money.add(wallet.getBalance(), amount));
+        walletRepository.save(wallet);
+    }
+
+    /**
+     * Removes the amount from the wallet. For striped wallets the own balance is used first and the rest
+     * is pulled from the slots in slot order.
+     */
+    private void debit(Wallet wallet, long amount) {
+        if (!wallet.isStriped()) {
+            if (wallet.getBalance() < amount) {
+                throw INSUFFICIENT_FUNDS.getAppException();
+            }
+            wallet.setBalance(wallet.getBalance() - amount);
+            walletRepository.save(wallet);
+            return;
+        }
+
+        List<WalletStripe> stripes = walletStripeRepository.findAllForUpdate(wallet.getId());
+        long available = wallet.getBalance() + stripes.stream().mapToLong(WalletStripe::getBalance).sum();
+        if (available < amount) {
+            throw INSUFFICIENT_FUNDS.getAppException();
+        }
+
+        long remaining = amount;
+        long fromOwnBalance = Math.min(Math.max(wallet.getBalance(), 0), remaining);
+        if (fromOwnBalance > 0) {
+            wallet.setBalance(wallet.getBalance() - fromOwnBalance);
+            walletRepository.save(wallet);
+            remaining -= fromOwnBalance;
+        }
+
+        for (WalletStripe stripe : stripes) {
+            if (remaining <= 0) {
+                break;
+            }
+            long taken = Math.min(stripe.getBalance(), remaining);
+            if (taken > 0) {
+                stripe.setBalance(stripe.getBalance() - taken);
+                remaining -= taken;
+            }
+        }
     }
 
+    private int selectStripe(int stripes) {
+        return (int) (stripeSelector() % stripes);
+    }
+
+    /**
+     * Returns a non-negative number picking the slot a credit lands in, as {@code selector mod stripes}.
+     */
+    private long stripeSelector() {
+        return switch (walletProperties.getStripeSelection()) {
+            case HASH -> (Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L) >>> 1;
+            case ROUND_ROBIN -> stripeCounter.getAndIncrement() & Long.MAX_VALUE;
+        };
+    }
+
+    /**
+     * Loads the user's wallet by its primary key. The owner is loaded together with the wallet, so checking it
+     * costs no further query.
+     */
     private Wallet findUserWallet(String username, Long walletId) {
-        return walletRepository.findByIdAndUserUsername(walletId, username)
+        Wallet wallet = walletRepository.findById(walletId)
+                .filter(found -> found.getUser().getUsername().equals(username))
                 .orElseThrow(WALLET_NOT_FOUND::getAppException);
+        walletOwnership.register(wallet);
+        return wallet;
+    }
+
+    /**
+     * Merges two lists of transactions, each ordered by creation time and ID, into one.
+     */
+    private static List<TransactionDto> merge(List<TransactionDto> left, List<TransactionDto> right) {
+        List<TransactionDto> merged = new ArrayList<>(left.size() + right.size());
+        int l = 0;
+        int r = 0;
+        while (l < left.size() && r < right.size()) {
+            merged.add(TransactionCursor.ORDER.compare(left.get(l), right.get(r)) <= 0 ? left.get(l++) : right.get(r++));
+        }
+        merged.addAll(left.subList(l, left.size()));
+        merged.addAll(right.subList(r, right.size()));
+        return merged;
     }
-}
 
+    private static List<TransactionDto> slice(List<TransactionDto> transactions, long offset, int size) {
+        int from = (int) Math.min(offset, transactions.size());
+        return transactions.subList(from, Math.min(from + size, transactions.size()));
+    }
+}
@@ -0,0 +1,228 @@
+package ir.snapp.insurance.digitalwallet.service.wallet;
+
+import ir.snapp.insurance.digitalwallet.config.wallet.WalletProperties;
+import ir.snapp.insurance.digitalwallet.exception.AppException;
+import ir.snapp.insurance.digitalwallet.repository.LedgerJdbcRepository;
+import ir.snapp.insurance.digitalwallet.service.retry.TransactionRetrier;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups concurrent wallet writes into shared database transactions.
+ * <p>
+ * When {@code wallet.coalescing.enabled} is set, an operation is queued and its caller waits. A dispatcher
+ * thread takes the first queued operation, waits up to {@code max-wait} for up to {@code max-batch-size}
+ * operations, and applies them one after the other in a single transaction. The transaction rows recorded by
+ * the batch are inserted with one JDBC batch right before the commit, and each caller is completed with its
+ * own outcome once the commit is done.
+ * </p>
+ * <p>
+ * An operation failing with an application error does not affect the others: operations changing several
+ * rows run under a savepoint that is rolled back on failure, and the rows it recorded are dropped. If the
+ * shared transaction itself fails, for example on a deadlock, every operation of the batch is run again in its
+ * own transaction through the {@link TransactionRetrier}.
+ * </p>
+ * <p>
+ * Operations called inside an existing transaction, such as requests carrying an {@code Idempotency-Key},
+ * run directly in that transaction; so do all operations when coalescing is disabled.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WalletWriteCoalescer {
+
+    private final WalletProperties walletProperties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransactionRetrier transactionRetrier;
+
+    private final LedgerJdbcRepository ledgerJdbcRepository;
+
+    private final EntityManager entityManager;
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+
+    private final List<Thread> dispatchers = new ArrayList<>();
+
+    /**
+     * The transaction rows recorded by the batch the current dispatcher thread is applying, if any.
+     */
+    private final ThreadLocal<List<LedgerJdbcRepository.Entry>> batchEntries = new ThreadLocal<>();
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        WalletProperties.Coalescing coalescing = walletProperties.getCoalescing();
+        if (!coalescing.isEnabled()) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < coalescing.getDispatchers(); i++) {
+            Thread dispatcher = Thread.ofPlatform().name("wallet-write-coalescer-" + i).daemon(true).start(this::dispatch);
+            dispatchers.add(dispatcher);
+        }
+        log.info("Coalescing wallet writes in batches of up to {} operations with {} dispatchers",
+                coalescing.getMaxBatchSize(), coalescing.getDispatchers());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread dispatcher : dispatchers) {
+            dispatcher.join();
+        }
+    }
+
+    /**
+     * Applies the operation, as part of a shared transaction when coalescing, and waits for its commit.
+     *
+     * @param multiStatement whether the operation may fail after writing, so it needs a savepoint
+     */
+    public void run(boolean multiStatement, Runnable operation) {
+        if (!running || TransactionSynchronizationManager.isActualTransactionActive()) {
+            transactionRetrier.run(operation);
+            return;
+        }
+
+        Pending pending = new Pending(multiStatement, operation, new CompletableFuture<>());
+        queue.add(pending);
+        try {
+            pending.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Whether the current thread is applying a batch. Transaction rows are then recorded with
+     * {@link #record(LedgerJdbcRepository.Entry)} to be inserted together.
+     */
+    public boolean isBatching() {
+        return batchEntries.get() != null;
+    }
+
+    /**
+     * Records a transaction row to be inserted with the rest of the current batch.
+     */
+    public void record(LedgerJdbcRepository.Entry entry) {
+        batchEntries.get().add(entry);
+    }
+
+    private void dispatch() {
+        WalletProperties.Coalescing coalescing = walletProperties.getCoalescing();
+        List<Pending> batch = new ArrayList<>(coalescing.getMaxBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + coalescing.getMaxWait().toNanos();
+                while (batch.size() < coalescing.getMaxBatchSize()) {
+                    Pending next = queue.poll(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                apply(batch);
+                return;
+            }
+
+            apply(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Applies the batch in one transaction, or each operation in its own one if that transaction fails.
+     */
+    private void apply(List<Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<RuntimeException> failures = new ArrayList<>(batch.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<LedgerJdbcRepository.Entry> entries = new ArrayList<>();
+                batchEntries.set(entries);
+                try {
+                    for (Pending pending : batch) {
+                        int recorded = entries.size();
+                        Object savepoint = pending.multiStatement() ? status.createSavepoint() : null;
+                        try {
+                            pending.operation().run();
+                            entityManager.flush();
+                            failures.add(null);
+                        } catch (AppException e) {
+                            if (savepoint != null) {
+                                status.rollbackToSavepoint(savepoint);
+                                savepoint = null;
+                            }
+                            entityManager.clear();
+                            entries.subList(recorded, entries.size()).clear();
+                            failures.add(e);
+                        } finally {
+                            if (savepoint != null) {
+                                status.releaseSavepoint(savepoint);
+                            }
+                        }
+                    }
+                    ledgerJdbcRepository.insertTransactions(entries);
+                } finally {
+                    batchEntries.remove();
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Coalesced batch of {} operations failed, applying them one by one: {}", batch.size(), e.getMessage());
+            batch.forEach(this::applyAlone);
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            if (failures.get(i) == null) {
+                batch.get(i).result().complete(null);
+            } else {
+                batch.get(i).result().completeExceptionally(failures.get(i));
+            }
+        }
+        log.debug("Applied coalesced batch of {} operations", batch.size());
+    }
+
+    private void applyAlone(Pending pending) {
+        try {
+            transactionRetrier.run(pending.operation());
+            pending.result().complete(null);
+        } catch (RuntimeException e) {
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    private record Pending(boolean multiStatement, Runnable operation, CompletableFuture<Void> result) {
+    }
+}
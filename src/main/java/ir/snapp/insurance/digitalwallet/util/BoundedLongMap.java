@@ -0,0 +1,118 @@
+package ir.snapp.insurance.digitalwallet.util;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A thread-safe map from {@code long} keys to {@code long} values with a fixed capacity, storing both in
+ * primitive arrays so lookups allocate nothing.
+ * <p>
+ * The map is split into segments, each an open-addressing table guarded by its own {@link StampedLock};
+ * reads are optimistic and only take the lock when they race with a write. It behaves like a cache: once the
+ * few slots a key may occupy are taken, putting it overwrites one of them, so a value put earlier may be
+ * missing later. Zero is reserved and cannot be used as a key.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+public class BoundedLongMap {
+
+    private static final int SEGMENTS = 16;
+    private static final int MAX_PROBES = 8;
+    private static final long FREE = 0;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final int slotMask;
+
+    /**
+     * @param capacity maximum number of entries kept in memory, rounded up to a power of two
+     */
+    public BoundedLongMap(int capacity) {
+        int slots = Integer.highestOneBit(Math.max(capacity / SEGMENTS - 1, MAX_PROBES - 1)) << 1;
+        this.slotMask = slots - 1;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(slots);
+        }
+    }
+
+    /**
+     * Returns the value for the key, or {@code missing} if it is absent.
+     */
+    public long get(long key, long missing) {
+        long hash = mix(key);
+        Segment segment = segments[(int) (hash >>> 60)];
+        int home = (int) hash & slotMask;
+
+        long stamp = segment.lock.tryOptimisticRead();
+        long value = segment.find(key, home, slotMask, missing);
+        if (!segment.lock.validate(stamp)) {
+            stamp = segment.lock.readLock();
+            try {
+                value = segment.find(key, home, slotMask, missing);
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Associates the value with the key, evicting another key if its slots are all taken.
+     */
+    public void put(long key, long value) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("Zero is not a valid key");
+        }
+        long hash = mix(key);
+        Segment segment = segments[(int) (hash >>> 60)];
+        int home = (int) hash & slotMask;
+
+        long stamp = segment.lock.writeLock();
+        try {
+            int target = home;
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                int slot = (home + probe) & slotMask;
+                if (segment.keys[slot] == key || segment.keys[slot] == FREE) {
+                    target = slot;
+                    break;
+                }
+            }
+            segment.values[target] = value;
+            segment.keys[target] = key;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Spreads the bits of the key, so sequential IDs land in different segments and slots.
+     */
+    private static long mix(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 32);
+    }
+
+    private static final class Segment {
+        private final StampedLock lock = new StampedLock();
+        private final long[] keys;
+        private final long[] values;
+
+        private Segment(int slots) {
+            this.keys = new long[slots];
+            this.values = new long[slots];
+        }
+
+        private long find(long key, int home, int slotMask, long missing) {
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                int slot = (home + probe) & slotMask;
+                long found = keys[slot];
+                if (found == key) {
+                    return values[slot];
+                }
+                if (found == FREE) {
+                    return missing;
+                }
+            }
+            return missing;
+        }
+    }
+}
@@ -12,4 +12,12 @@ public class Constants {
 
     public final static LocalDateTime MIN_DATE = LocalDateTime.of(1970, 1, 1, 0, 0);
     public final static LocalDateTime MAX_DATE = LocalDateTime.of(2100, 12, 31, 23, 59);
+
+    public final static int MAX_WALLET_STRIPES = 64;
+
+    public final static int MAX_BATCH_TRANSFER_ITEMS = 5000;
+
+    public final static int MAX_PAGE_SIZE = 1000;
+
+    public final static int MAX_PAGE_OFFSET = 10_000;
 }
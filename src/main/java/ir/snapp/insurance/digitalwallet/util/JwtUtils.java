@@ -1,11 +1,14 @@
 package ir.snapp.insurance.digitalwallet.util;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import ir.snapp.insurance.digitalwallet.config.jwt.JwtProperties;
-import org.springframework.security.core.userdetails.UserDetails;
+import ir.snapp.insurance.digitalwallet.repository.UserRepository;
+import ir.snapp.insurance.digitalwallet.service.auth.AuthenticatedUser;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
@@ -13,30 +16,52 @@ import java.util.Date;
 
 /**
  * Utility class for generating and validating JWT tokens.
+ * <p>
+ * Tokens carry the user ID, username and token version as signed claims, so a request is authenticated from its
+ * token alone. Recently verified tokens are kept in a bounded cache, and each token is parsed at most once
+ * while cached.
+ * </p>
+ * <p>
+ * A token is revoked once the user's token version in the database has moved past it. The current version of each
+ * user is read from the database and trusted for {@code jwt.revocation-check-interval}, so a revocation reaches
+ * every instance within that interval and survives restarts; the instance revoking the tokens applies it at once.
+ * </p>
  *
  * @author Alireza Khodadoust
  */
 @Component
 public class JwtUtils {
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String TOKEN_VERSION_CLAIM = "tv";
+
     private final JwtProperties jwtProperties;
+    private final UserRepository userRepository;
     private final Key secretKey;
     private final JwtParser parser;
+    private final BoundedCache<String, VerifiedToken> verifiedTokens;
+    private final BoundedCache<Long, Integer> currentVersions;
 
-    public JwtUtils(JwtProperties jwtProperties) {
+    public JwtUtils(JwtProperties jwtProperties, UserRepository userRepository) {
         this.jwtProperties = jwtProperties;
+        this.userRepository = userRepository;
         this.secretKey = Keys.hmacShaKeyFor(jwtProperties.getSecret().getBytes());
         this.parser = Jwts.parserBuilder().setSigningKey(secretKey).build();
+        this.verifiedTokens = new BoundedCache<>(jwtProperties.getVerifiedCacheSize(), jwtProperties.getExpiration());
+        this.currentVersions = new BoundedCache<>(
+                jwtProperties.getVerifiedCacheSize(), jwtProperties.getRevocationCheckInterval());
     }
 
     /**
-     * Generates a JWT token for the given user details.
+     * Generates a JWT token for the given user.
      *
-     * @param username the username
+     * @param user the authenticated user
      * @return the generated JWT token
      */
-    public String generateToken(String username) {
+    public String generateToken(AuthenticatedUser user) {
         return Jwts.builder()
-                .setSubject(username)
+                .setSubject(user.getUsername())
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(TOKEN_VERSION_CLAIM, user.getTokenVersion())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + jwtProperties.getExpiration().toMillis()))
                 .signWith(secretKey, SignatureAlgorithm.HS256)
@@ -44,41 +69,61 @@ public class JwtUtils {
     }
 
     /**
-     * Extracts the username from the given JWT token.
+     * Verifies the given JWT token and builds the principal from its claims.
      *
      * @param token the JWT token
-     * @return the extracted username
+     * @return the user the token was issued to
+     * @throws JwtException if the token is malformed, wrongly signed, expired or revoked
      */
-    public String extractUsername(String token) {
-        return parser
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+    public AuthenticatedUser verify(String token) {
+        VerifiedToken verified = verifiedTokens.get(token);
+        if (verified == null) {
+            verified = parse(token);
+            verifiedTokens.put(token, verified);
+        } else if (verified.expiresAt() <= System.currentTimeMillis()) {
+            verifiedTokens.remove(token);
+            throw new JwtException("JWT expired");
+        }
+
+        if (verified.user().getTokenVersion() < currentVersion(verified.user().getId())) {
+            throw new JwtException("JWT revoked");
+        }
+        return verified.user();
     }
 
     /**
-     * Validates the given JWT token against the provided user details.
+     * Stops accepting the tokens of the user issued with the given version or an older one on this instance at
+     * once. The new token version must already be stored, for the other instances to pick it up.
      *
-     * @param token       the JWT token
-     * @param userDetails the user details
-     * @return true if the token is valid, false otherwise
+     * @param userId       the ID of the user
+     * @param tokenVersion the latest revoked token version
      */
-    public boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return username.equals(userDetails.getUsername()) && !isExpired(token);
+    public void revokeTokens(long userId, int tokenVersion) {
+        currentVersions.put(userId, tokenVersion + 1);
     }
 
-    /**
-     * Checks if the given JWT token is expired.
-     *
-     * @param token the JWT token
-     * @return true if the token is expired, false otherwise
-     */
-    private boolean isExpired(String token) {
-        return parser
-                .parseClaimsJws(token)
-                .getBody()
-                .getExpiration()
-                .before(new Date());
+    private int currentVersion(long userId) {
+        Integer version = currentVersions.get(userId);
+        if (version == null) {
+            version = userRepository.findTokenVersionById(userId)
+                    .orElseThrow(() -> new JwtException("JWT user not found"));
+            currentVersions.put(userId, version);
+        }
+        return version;
+    }
+
+    private VerifiedToken parse(String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        Long userId = claims.get(USER_ID_CLAIM, Long.class);
+        Integer tokenVersion = claims.get(TOKEN_VERSION_CLAIM, Integer.class);
+        if (userId == null || tokenVersion == null || claims.getSubject() == null) {
+            throw new JwtException("JWT lacks user claims");
+        }
+        return new VerifiedToken(
+                new AuthenticatedUser(userId, claims.getSubject(), tokenVersion),
+                claims.getExpiration().getTime());
+    }
+
+    private record VerifiedToken(AuthenticatedUser user, long expiresAt) {
     }
 }
@@ -0,0 +1,38 @@
+package ir.snapp.insurance.digitalwallet.util;
+
+import java.math.BigDecimal;
+
+import static ir.snapp.insurance.digitalwallet.exception.PredefinedError.AMOUNT_OUT_OF_RANGE;
+
+/**
+ * Exact arithmetic on amounts held as {@code long} minor units.
+ *
+ * @author Alireza Khodadoost
+ */
+public final class Money {
+
+    private Money() {
+    }
+
+    /**
+     * Adds two amounts, rejecting results that do not fit into a {@code long}.
+     */
+    public static long add(long amount, long other) {
+        try {
+            return Math.addExact(amount, other);
+        } catch (ArithmeticException e) {
+            throw AMOUNT_OUT_OF_RANGE.getAppException();
+        }
+    }
+
+    /**
+     * Adds an amount held as a {@code numeric} sum, rejecting results that do not fit into a {@code long}.
+     */
+    public static long add(long amount, BigDecimal other) {
+        try {
+            return BigDecimal.valueOf(amount).add(other).longValueExact();
+        } catch (ArithmeticException e) {
+            throw AMOUNT_OUT_OF_RANGE.getAppException();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import lombok.ToString;
 
 import java.util.List;
+import java.util.function.Function;
 
 import static com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility.ANY;
 
@@ -18,9 +19,9 @@ import static com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility.ANY;
 public class Paginated<T> {
 
     /**
-     * The current 1-index page number.
+     * The current 1-index page number. Absent for cursor-based pages.
      */
-    private final int pageNumber;
+    private final Integer pageNumber;
 
     /**
      * The size of current page.
@@ -28,7 +29,7 @@ public class Paginated<T> {
     private final int size;
 
     /**
-     * Total number of elements.
+     * Total number of elements. Absent for cursor-based pages.
      */
     private final Long numberOfElements;
 
@@ -42,6 +43,11 @@ public class Paginated<T> {
      */
     private final boolean hasPrevious;
 
+    /**
+     * Opaque cursor to request the page after this one. Only present for cursor-based pages with a next page.
+     */
+    private final String nextCursor;
+
     /**
      * The actual paginated elements.
      */
@@ -54,19 +60,44 @@ public class Paginated<T> {
                 countAll,
                 (long) page * size + elements.size() < countAll,
                 page > 1,
+                null,
                 getElements(size, elements)
         );
     }
 
-    private Paginated(int pageNumber, int size, Long numberOfElements, boolean hasNext, boolean hasPrevious, List<T> elements) {
+    private Paginated(Integer pageNumber, int size, Long numberOfElements, boolean hasNext, boolean hasPrevious,
+                      String nextCursor, List<T> elements) {
         this.pageNumber = pageNumber;
         this.size = size;
         this.numberOfElements = numberOfElements;
         this.hasNext = hasNext;
         this.hasPrevious = hasPrevious;
+        this.nextCursor = nextCursor;
         this.elements = elements;
     }
 
+    /**
+     * Creates a cursor-based page.
+     *
+     * @param size        the size of the page
+     * @param elements    up to {@code size + 1} elements; the extra element only signals that a next page exists
+     * @param hasPrevious whether the page was requested with a cursor
+     * @param cursorOf    computes the cursor pointing after a given element
+     */
+    public static <T> Paginated<T> ofCursor(int size, List<T> elements, boolean hasPrevious, Function<T, String> cursorOf) {
+        var page = getElements(size, elements);
+        var hasNext = elements.size() > size;
+        return new Paginated<>(
+                null,
+                size,
+                null,
+                hasNext,
+                hasPrevious,
+                hasNext ? cursorOf.apply(page.getLast()) : null,
+                page
+        );
+    }
+
     private static <T> List<T> getElements(int pageSize, List<T> elements) {
         return elements.size() > pageSize ? elements.subList(0, pageSize) : elements;
     }
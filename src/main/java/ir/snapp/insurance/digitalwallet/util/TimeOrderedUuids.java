@@ -0,0 +1,57 @@
+package ir.snapp.insurance.digitalwallet.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generator of time-ordered UUIDs following the version 7 layout of RFC 9562.
+ * <p>
+ * The 48-bit Unix millisecond timestamp is followed by a 12-bit counter in {@code rand_a}, which keeps IDs
+ * strictly increasing within this JVM even when many are generated in the same millisecond. When the counter
+ * overflows, the timestamp is borrowed from the next millisecond. The remaining 62 bits are random.
+ * </p>
+ * <p>
+ * Generation is lock-free and allocates nothing besides the returned {@link UUID}. Since consecutive IDs
+ * sort by creation time, inserts append to the right edge of the primary key index.
+ * </p>
+ *
+ * @author Alireza Khodadoost
+ */
+public final class TimeOrderedUuids {
+
+    private static final int COUNTER_BITS = 12;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+    private static final long VERSION_7 = 0x7000L;
+    private static final long VARIANT_MASK = 0x3FFFFFFFFFFFFFFFL;
+    private static final long VARIANT_RFC_9562 = 0x8000000000000000L;
+
+    /**
+     * The last issued timestamp and counter, packed as {@code millis << 12 | counter}.
+     */
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private TimeOrderedUuids() {
+    }
+
+    public static UUID next() {
+        long candidate = System.currentTimeMillis() << COUNTER_BITS;
+        long previous;
+        long next;
+        do {
+            previous = LAST.get();
+            next = Math.max(candidate, previous + 1);
+        } while (!LAST.compareAndSet(previous, next));
+
+        long mostSigBits = (next >>> COUNTER_BITS) << 16 | VERSION_7 | (next & COUNTER_MASK);
+        long leastSigBits = ThreadLocalRandom.current().nextLong() & VARIANT_MASK | VARIANT_RFC_9562;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    /**
+     * Returns the Unix millisecond timestamp embedded in a UUID created by {@link #next()}.
+     */
+    public static long timestampOf(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+}
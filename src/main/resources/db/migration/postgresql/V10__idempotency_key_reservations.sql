@@ -0,0 +1,2 @@
+-- A key reserved before its operation runs has no response until the operation completes.
+ALTER TABLE idempotency_keys ALTER COLUMN response DROP NOT NULL;
@@ -0,0 +1,34 @@
+-- Net amount of each wallet's transactions moved out of the transactions table by detaching monthly partitions,
+-- so balances recomputed from the remaining transactions still account for the detached and archived ones.
+CREATE TABLE wallet_carried_balances
+(
+    wallet_id BIGINT NOT NULL PRIMARY KEY REFERENCES wallets (id) ON DELETE CASCADE,
+    net       BIGINT NOT NULL DEFAULT 0
+);
+
+-- Partitions detached before this migration are carried forward now.
+DO
+$$
+    DECLARE
+        detached NAME;
+    BEGIN
+        FOR detached IN SELECT c.relname
+                        FROM pg_class c
+                        WHERE c.relkind = 'r'
+                          AND c.relname LIKE 'transactions\_p%'
+                          AND c.relnamespace = current_schema()::regnamespace
+                          AND NOT EXISTS (SELECT 1 FROM pg_inherits i WHERE i.inhrelid = c.oid)
+            LOOP
+                EXECUTE format('INSERT INTO wallet_carried_balances (wallet_id, net)
+                                SELECT wallet_id, SUM(net)
+                                FROM (SELECT to_wallet_id AS wallet_id, amount AS net FROM %1$I
+                                      WHERE to_wallet_id IS NOT NULL
+                                      UNION ALL
+                                      SELECT from_wallet_id, -amount FROM %1$I
+                                      WHERE from_wallet_id IS NOT NULL) moved
+                                GROUP BY wallet_id
+                                ON CONFLICT (wallet_id) DO UPDATE
+                                    SET net = wallet_carried_balances.net + EXCLUDED.net', detached);
+            END LOOP;
+    END
+$$;
@@ -0,0 +1,26 @@
+-- When each row was inserted, by the database clock. Summaries are folded by insertion time rather than creation
+-- time: creation times come from the application and may lag behind the commit, insertion times are bounded by
+-- the start of the inserting transaction. Existing rows keep NULL, so adding the column does not rewrite the table.
+ALTER TABLE transactions ADD COLUMN inserted_at TIMESTAMP;
+ALTER TABLE transactions ALTER COLUMN inserted_at SET DEFAULT clock_timestamp();
+
+CREATE INDEX idx_transactions_inserted_at_brin ON transactions USING BRIN (inserted_at);
+
+-- Fold the rows not folded yet by creation time, then move the watermark over to insertion times. The ALTER TABLE
+-- above keeps other writers out until this migration commits, so every later row is inserted after the watermark.
+INSERT INTO wallet_daily_summary (wallet_id, day, inflow, outflow, transaction_count)
+SELECT wallet_id, day, SUM(inflow), SUM(outflow), COUNT(*)
+FROM (SELECT t.to_wallet_id AS wallet_id, CAST(t.created_at AS DATE) AS day, t.amount AS inflow, 0 AS outflow
+      FROM transactions t, wallet_summary_watermark m
+      WHERE t.to_wallet_id IS NOT NULL AND t.created_at >= m.folded_until
+      UNION ALL
+      SELECT t.from_wallet_id, CAST(t.created_at AS DATE), 0, t.amount
+      FROM transactions t, wallet_summary_watermark m
+      WHERE t.from_wallet_id IS NOT NULL AND t.created_at >= m.folded_until) folded
+GROUP BY wallet_id, day
+ON CONFLICT (wallet_id, day) DO UPDATE
+    SET inflow            = wallet_daily_summary.inflow + EXCLUDED.inflow,
+        outflow           = wallet_daily_summary.outflow + EXCLUDED.outflow,
+        transaction_count = wallet_daily_summary.transaction_count + EXCLUDED.transaction_count;
+
+UPDATE wallet_summary_watermark SET folded_until = clock_timestamp() WHERE id = 1;
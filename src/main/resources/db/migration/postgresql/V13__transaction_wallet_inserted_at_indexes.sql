@@ -0,0 +1,4 @@
+-- Statements read the transactions not folded into the summaries yet, those inserted past the watermark, one branch
+-- per direction; these keep that an index range scan over the unfolded tail instead of the wallet's whole history.
+CREATE INDEX idx_transactions_from_wallet_inserted_at ON transactions (from_wallet_id, inserted_at);
+CREATE INDEX idx_transactions_to_wallet_inserted_at ON transactions (to_wallet_id, inserted_at);
@@ -0,0 +1,12 @@
+ALTER TABLE wallets
+    ADD COLUMN stripes INT NOT NULL DEFAULT 1;
+
+CREATE TABLE wallet_stripes
+(
+    id        BIGSERIAL PRIMARY KEY,
+    wallet_id BIGINT           NOT NULL,
+    slot      INT              NOT NULL,
+    balance   DOUBLE PRECISION NOT NULL DEFAULT 0,
+    CONSTRAINT fk_stripe_wallet FOREIGN KEY (wallet_id) REFERENCES wallets (id),
+    CONSTRAINT uq_wallet_stripe_slot UNIQUE (wallet_id, slot)
+);
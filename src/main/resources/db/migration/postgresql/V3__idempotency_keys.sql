@@ -0,0 +1,12 @@
+CREATE TABLE idempotency_keys
+(
+    id              BIGSERIAL PRIMARY KEY,
+    username        VARCHAR(255)  NOT NULL,
+    idempotency_key VARCHAR(255)  NOT NULL,
+    fingerprint     VARCHAR(512)  NOT NULL,
+    response        VARCHAR(1024) NOT NULL,
+    created_at      TIMESTAMP     NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uq_idempotency_user_key UNIQUE (username, idempotency_key)
+);
+
+CREATE INDEX idx_idempotency_keys_created_at ON idempotency_keys (created_at);
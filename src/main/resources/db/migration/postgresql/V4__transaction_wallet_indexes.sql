@@ -0,0 +1,4 @@
+-- History queries scan one branch per direction; the trailing id matches the (created_at, id) ordering,
+-- so pages are read straight from the index without a sort.
+CREATE INDEX idx_transactions_from_wallet_created_at ON transactions (from_wallet_id, created_at, id);
+CREATE INDEX idx_transactions_to_wallet_created_at ON transactions (to_wallet_id, created_at, id);
@@ -0,0 +1,51 @@
+-- Converts transactions into a table range-partitioned by month on created_at.
+-- Future partitions are created ahead of time by TransactionPartitionManager.
+
+ALTER TABLE transactions RENAME TO transactions_legacy;
+ALTER TABLE transactions_legacy RENAME CONSTRAINT transactions_pkey TO transactions_legacy_pkey;
+DROP INDEX idx_transactions_from_wallet_created_at;
+DROP INDEX idx_transactions_to_wallet_created_at;
+
+CREATE TABLE transactions
+(
+    id             UUID             NOT NULL DEFAULT gen_random_uuid(),
+    type           VARCHAR(50)      NOT NULL,
+    amount         DOUBLE PRECISION NOT NULL,
+    from_wallet_id BIGINT,
+    to_wallet_id   BIGINT,
+    created_at     TIMESTAMP        NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT transactions_pkey PRIMARY KEY (id, created_at),
+    CONSTRAINT fk_from_wallet FOREIGN KEY (from_wallet_id) REFERENCES wallets (id),
+    CONSTRAINT fk_to_wallet FOREIGN KEY (to_wallet_id) REFERENCES wallets (id)
+) PARTITION BY RANGE (created_at);
+
+CREATE INDEX idx_transactions_from_wallet_created_at ON transactions (from_wallet_id, created_at, id);
+CREATE INDEX idx_transactions_to_wallet_created_at ON transactions (to_wallet_id, created_at, id);
+CREATE INDEX idx_transactions_created_at_brin ON transactions USING BRIN (created_at);
+
+DO
+$$
+    DECLARE
+        partition_month DATE := date_trunc('month', coalesce((SELECT min(created_at) FROM transactions_legacy),
+                                                             CURRENT_TIMESTAMP))::date;
+        last_month      DATE := (date_trunc('month', CURRENT_TIMESTAMP) + INTERVAL '3 months')::date;
+    BEGIN
+        WHILE partition_month <= last_month
+            LOOP
+                EXECUTE format('CREATE TABLE %I PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+                               'transactions_p' || to_char(partition_month, 'YYYYMM'),
+                               partition_month,
+                               (partition_month + INTERVAL '1 month')::date);
+                partition_month := (partition_month + INTERVAL '1 month')::date;
+            END LOOP;
+    END
+$$;
+
+-- Catches rows outside every monthly partition instead of failing the insert; expected to stay empty.
+CREATE TABLE transactions_default PARTITION OF transactions DEFAULT;
+
+INSERT INTO transactions (id, type, amount, from_wallet_id, to_wallet_id, created_at)
+SELECT id, type, amount, from_wallet_id, to_wallet_id, created_at
+FROM transactions_legacy;
+
+DROP TABLE transactions_legacy;
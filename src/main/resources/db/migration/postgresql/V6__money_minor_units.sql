@@ -0,0 +1,11 @@
+-- Amounts are stored as whole minor units of the wallet currency.
+-- IRR, the only supported currency, has a scale of zero, so stored values are whole rials.
+
+ALTER TABLE wallets
+    ALTER COLUMN balance TYPE BIGINT USING round(balance)::BIGINT;
+
+ALTER TABLE wallet_stripes
+    ALTER COLUMN balance TYPE BIGINT USING round(balance)::BIGINT;
+
+ALTER TABLE transactions
+    ALTER COLUMN amount TYPE BIGINT USING round(amount)::BIGINT;
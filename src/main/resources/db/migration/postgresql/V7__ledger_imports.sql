@@ -0,0 +1,44 @@
+-- Bookkeeping of bulk ledger imports, so an interrupted import can be resumed chunk by chunk.
+
+CREATE TABLE ledger_imports
+(
+    id            UUID PRIMARY KEY,
+    format        VARCHAR(10)  NOT NULL,
+    source        VARCHAR(255),
+    status        VARCHAR(20)  NOT NULL,
+    chunk_size    INT          NOT NULL,
+    chunks_done   INT          NOT NULL DEFAULT 0,
+    rows_imported BIGINT       NOT NULL DEFAULT 0,
+    rows_rejected BIGINT       NOT NULL DEFAULT 0,
+    error         VARCHAR(1024),
+    created_at    TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at    TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE ledger_import_chunks
+(
+    import_id     UUID      NOT NULL REFERENCES ledger_imports (id) ON DELETE CASCADE,
+    chunk_no      INT       NOT NULL,
+    first_line    BIGINT    NOT NULL,
+    last_line     BIGINT    NOT NULL,
+    rows_imported INT       NOT NULL,
+    rows_rejected INT       NOT NULL,
+    completed_at  TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (import_id, chunk_no)
+);
+
+CREATE TABLE ledger_import_errors
+(
+    import_id UUID         NOT NULL REFERENCES ledger_imports (id) ON DELETE CASCADE,
+    line_no   BIGINT       NOT NULL,
+    reason    VARCHAR(255) NOT NULL,
+    PRIMARY KEY (import_id, line_no)
+);
+
+-- Wallets touched by an import, whose balances are recomputed from their transactions once the import completes.
+CREATE TABLE ledger_import_wallets
+(
+    import_id UUID   NOT NULL REFERENCES ledger_imports (id) ON DELETE CASCADE,
+    wallet_id BIGINT NOT NULL,
+    PRIMARY KEY (import_id, wallet_id)
+);
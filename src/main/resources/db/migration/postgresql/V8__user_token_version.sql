@@ -0,0 +1,3 @@
+-- Incremented whenever the password changes; tokens carrying an older version are no longer accepted.
+ALTER TABLE users
+    ADD COLUMN token_version INT NOT NULL DEFAULT 0;
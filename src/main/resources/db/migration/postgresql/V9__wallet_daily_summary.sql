@@ -0,0 +1,21 @@
+-- Per-wallet daily totals, folded from transactions by a background job, so statements read O(days) rows.
+CREATE TABLE wallet_daily_summary
+(
+    wallet_id         BIGINT NOT NULL REFERENCES wallets (id) ON DELETE CASCADE,
+    day               DATE   NOT NULL,
+    inflow            BIGINT NOT NULL DEFAULT 0,
+    outflow           BIGINT NOT NULL DEFAULT 0,
+    transaction_count INT    NOT NULL DEFAULT 0,
+    PRIMARY KEY (wallet_id, day)
+);
+
+-- Transactions created before folded_until are included in wallet_daily_summary; later ones are not yet.
+CREATE TABLE wallet_summary_watermark
+(
+    id            INT PRIMARY KEY CHECK (id = 1),
+    folded_until  TIMESTAMP NOT NULL
+);
+
+INSERT INTO wallet_summary_watermark (id, folded_until)
+SELECT 1, COALESCE(date_trunc('day', MIN(created_at)), date_trunc('day', CURRENT_TIMESTAMP))
+FROM transactions;
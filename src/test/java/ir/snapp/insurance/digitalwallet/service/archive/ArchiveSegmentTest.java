@@ -0,0 +1,156 @@
+package ir.snapp.insurance.digitalwallet.service.archive;
+
+import ir.snapp.insurance.digitalwallet.controller.wallet.dto.TransactionDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for writing segment files and reading wallet histories back through their wallet index.
+ *
+ * @author Alireza Khodadoust
+ */
+class ArchiveSegmentTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2024, 3);
+    private static final LocalDateTime MONTH_START = MONTH.atDay(1).atStartOfDay();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsEachWalletHistoryWithinARange() throws IOException {
+        List<TransactionDto> rows = rows(5_000, 40, 7);
+        ArchiveSegment segment = write(rows);
+
+        assertThat(segment.verify()).isEqualTo(rows.size());
+        assertThat(segment.getBlockFirstMicros()).hasSize(5);
+        for (long walletId = 1; walletId <= 41; walletId++) {
+            for (LocalDateTime[] range : List.of(
+                    new LocalDateTime[]{MONTH_START, MONTH_START.plusMonths(1)},
+                    new LocalDateTime[]{MONTH_START.plusMinutes(700), MONTH_START.plusMinutes(2_600)},
+                    new LocalDateTime[]{MONTH_START.plusMinutes(1_000), MONTH_START.plusMinutes(1_000)})) {
+                List<TransactionDto> expected = history(rows, walletId, range[0], range[1]);
+                assertThat(segment.countWalletTransactions(walletId, range[0], range[1]))
+                        .isEqualTo(expected.size());
+                assertThat(read(segment, walletId, range[0], range[1], 0, Integer.MAX_VALUE)).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void seeksToAnOffsetAndStopsAtALimit() throws IOException {
+        List<TransactionDto> rows = rows(5_000, 3, 11);
+        ArchiveSegment segment = write(rows);
+        List<TransactionDto> expected = history(rows, 2, MONTH_START, MONTH_START.plusMonths(1));
+
+        assertThat(read(segment, 2, MONTH_START, MONTH_START.plusMonths(1), 1_500, 20))
+                .isEqualTo(expected.subList(1_500, 1_520));
+        assertThat(read(segment, 2, MONTH_START, MONTH_START.plusMonths(1), expected.size(), 20)).isEmpty();
+    }
+
+    @Test
+    void indexesRowsAcrossSeveralSortRuns() throws IOException {
+        // More wallet rows than fit in one sort run, so the index is merged from several run files.
+        List<TransactionDto> rows = rows(600_000, 5_000, 13);
+        ArchiveSegment segment = write(rows);
+
+        assertThat(segment.verify()).isEqualTo(rows.size());
+        for (long walletId : new long[]{1, 2_500, 5_000}) {
+            assertThat(read(segment, walletId, MONTH_START, MONTH_START.plusMonths(1), 0, Integer.MAX_VALUE))
+                    .isEqualTo(history(rows, walletId, MONTH_START, MONTH_START.plusMonths(1)));
+        }
+        try (var files = Files.list(directory)) {
+            assertThat(files.map(file -> file.getFileName().toString()))
+                    .containsExactly(ArchiveSegment.pathOf(directory, MONTH).getFileName().toString());
+        }
+    }
+
+    @Test
+    void rejectsATruncatedFile() throws IOException {
+        ArchiveSegment segment = write(rows(2_000, 10, 17));
+        byte[] bytes = Files.readAllBytes(segment.getPath());
+        Files.write(segment.getPath(), Arrays.copyOf(bytes, bytes.length - 4));
+
+        assertThatThrownBy(() -> ArchiveSegment.open(segment.getPath(), MONTH)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void namesPendingSegmentsApartFromPublishedOnes() {
+        Path pending = ArchiveSegment.pendingPathOf(directory, MONTH);
+
+        assertThat(ArchiveSegment.monthOf(pending)).isEmpty();
+        assertThat(ArchiveSegment.pendingMonthOf(pending)).contains(MONTH);
+        assertThat(ArchiveSegment.pendingMonthOf(ArchiveSegment.pathOf(directory, MONTH))).isEmpty();
+        assertThat(ArchiveSegment.pendingPathOf(directory, MONTH)).isNotEqualTo(pending);
+    }
+
+    /**
+     * Rows of random wallets, with runs of equal creation times that cross block boundaries, and some deposits,
+     * withdrawals and transfers from a wallet to itself.
+     */
+    private static List<TransactionDto> rows(int count, int wallets, long seed) {
+        var random = new Random(seed);
+        List<TransactionDto> rows = new ArrayList<>(count);
+        LocalDateTime createdAt = MONTH_START;
+        for (int i = 0; i < count; i++) {
+            if (random.nextInt(4) == 0) {
+                createdAt = createdAt.plusNanos(1_000L * (1 + random.nextInt(60_000_000)));
+            }
+            Long from = random.nextInt(5) == 0 ? null : 1L + random.nextInt(wallets);
+            Long to = from != null && random.nextInt(5) == 0 ? null : 1L + random.nextInt(wallets);
+            if (i % 997 == 0) {
+                to = from;
+            }
+            rows.add(new TransactionDto(new UUID(i, random.nextLong()), from == null ? "DEPOSIT" : "TRANSFER",
+                    random.nextInt(1_000_000), from, to, createdAt));
+        }
+        return rows;
+    }
+
+    private ArchiveSegment write(List<TransactionDto> rows) throws IOException {
+        Path path = ArchiveSegment.pathOf(directory, MONTH);
+        try (var writer = new ArchiveSegment.Writer(path)) {
+            for (TransactionDto row : rows) {
+                writer.append(row.id(), row.type(), row.amount(), row.fromWalletId(), row.toWalletId(),
+                        row.transactionDate());
+            }
+            writer.finish();
+        }
+        return ArchiveSegment.open(path, MONTH);
+    }
+
+    private static List<TransactionDto> history(List<TransactionDto> rows, long walletId, LocalDateTime start,
+                                                LocalDateTime end) {
+        return rows.stream()
+                .filter(row -> Objects.equals(row.fromWalletId(), walletId) || Objects.equals(row.toWalletId(), walletId))
+                .filter(row -> !row.transactionDate().isBefore(start) && !row.transactionDate().isAfter(end))
+                .toList();
+    }
+
+    private static List<TransactionDto> read(ArchiveSegment segment, long walletId, LocalDateTime start,
+                                             LocalDateTime end, long skip, int limit) throws IOException {
+        List<TransactionDto> read = new ArrayList<>();
+        if (limit > 0) {
+            segment.forEachWalletTransaction(walletId, start, end, skip, transaction -> {
+                read.add(transaction);
+                return read.size() < limit;
+            });
+        }
+        return read;
+    }
+}
@@ -0,0 +1,60 @@
+package ir.snapp.insurance.digitalwallet.service.journal;
+
+import ir.snapp.insurance.digitalwallet.enums.TransactionType;
+import ir.snapp.insurance.digitalwallet.repository.LedgerJdbcRepository;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for the binary layout of {@link JournalRecord}.
+ *
+ * @author Alireza Khodadoust
+ */
+class JournalRecordTest {
+
+    @Test
+    void roundTripsEveryOperationType() {
+        var deposit = LedgerJdbcRepository.Entry.of(TransactionType.DEPOSIT, 1_000, null, 7L);
+        var withdrawal = LedgerJdbcRepository.Entry.of(TransactionType.WITHDRAW, 250, 7L, null);
+        var transfer = LedgerJdbcRepository.Entry.of(TransactionType.TRANSFER, Long.MAX_VALUE, 7L, 8L);
+        ByteBuffer buffer = ByteBuffer.allocate(3 * JournalRecord.SIZE);
+
+        for (var entry : new LedgerJdbcRepository.Entry[]{deposit, withdrawal, transfer}) {
+            JournalRecord.of(entry, 1_700_000_000_000L).writeTo(buffer);
+        }
+
+        assertThat(buffer.position()).isEqualTo(3 * JournalRecord.SIZE);
+        assertThat(JournalRecord.readFrom(buffer, 0).toEntry()).isEqualTo(deposit);
+        assertThat(JournalRecord.readFrom(buffer, JournalRecord.SIZE).toEntry()).isEqualTo(withdrawal);
+        JournalRecord read = JournalRecord.readFrom(buffer, 2 * JournalRecord.SIZE);
+        assertThat(read.toEntry()).isEqualTo(transfer);
+        assertThat(read.timestamp()).isEqualTo(1_700_000_000_000L);
+    }
+
+    @Test
+    void rejectsCorruptedPayload() {
+        ByteBuffer buffer = ByteBuffer.allocate(JournalRecord.SIZE);
+        JournalRecord.of(LedgerJdbcRepository.Entry.of(TransactionType.DEPOSIT, 5, null, 1L), 0).writeTo(buffer);
+        int amountOffset = JournalRecord.HEADER_SIZE + 33;
+        buffer.putLong(amountOffset, buffer.getLong(amountOffset) + 1);
+
+        assertThatThrownBy(() -> JournalRecord.readFrom(buffer, 0))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("checksum mismatch");
+    }
+
+    @Test
+    void rejectsInvalidLength() {
+        ByteBuffer buffer = ByteBuffer.allocate(JournalRecord.SIZE);
+        JournalRecord.of(LedgerJdbcRepository.Entry.of(TransactionType.DEPOSIT, 5, null, 1L), 0).writeTo(buffer);
+        buffer.putInt(0, JournalRecord.PAYLOAD_SIZE + 1);
+
+        assertThatThrownBy(() -> JournalRecord.readFrom(buffer, 0))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("invalid record length");
+    }
+}
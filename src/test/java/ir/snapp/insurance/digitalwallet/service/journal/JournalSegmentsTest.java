@@ -0,0 +1,91 @@
+package ir.snapp.insurance.digitalwallet.service.journal;
+
+import ir.snapp.insurance.digitalwallet.enums.TransactionType;
+import ir.snapp.insurance.digitalwallet.repository.LedgerJdbcRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for reading journal segment files, including segments ending with a torn record.
+ *
+ * @author Alireza Khodadoust
+ */
+class JournalSegmentsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsRecordsUpToTheEndOfTheWrittenPart() throws IOException {
+        List<LedgerJdbcRepository.Entry> entries = entries(3);
+        Path segment = writeSegment(entries, 5);
+
+        List<LedgerJdbcRepository.Entry> read = new ArrayList<>();
+        JournalSegments.Scan scan = JournalSegments.read(segment, journalRecord -> read.add(journalRecord.toEntry()));
+
+        assertThat(read).isEqualTo(entries);
+        assertThat(scan).isEqualTo(new JournalSegments.Scan(3, 3 * JournalRecord.SIZE, null));
+    }
+
+    @Test
+    void stopsAtATornRecord() throws IOException {
+        List<LedgerJdbcRepository.Entry> entries = entries(3);
+        Path segment = writeSegment(entries, 3);
+        byte[] bytes = Files.readAllBytes(segment);
+        // A crash in the middle of the last record: its header is written but the payload is not.
+        int torn = 2 * JournalRecord.SIZE + JournalRecord.HEADER_SIZE;
+        Arrays.fill(bytes, torn, bytes.length, (byte) 0);
+        Files.write(segment, bytes);
+
+        List<LedgerJdbcRepository.Entry> read = new ArrayList<>();
+        JournalSegments.Scan scan = JournalSegments.read(segment, journalRecord -> read.add(journalRecord.toEntry()));
+
+        assertThat(read).isEqualTo(entries.subList(0, 2));
+        assertThat(scan.records()).isEqualTo(2);
+        assertThat(scan.end()).isEqualTo(2 * JournalRecord.SIZE);
+        assertThat(scan.problem()).contains("checksum mismatch");
+    }
+
+    @Test
+    void listsSegmentsInWriteOrder() throws IOException {
+        Files.createFile(JournalSegments.path(directory, 10));
+        Files.createFile(JournalSegments.path(directory, 2));
+        Files.createFile(directory.resolve("notes.txt"));
+
+        List<Path> segments = JournalSegments.list(directory);
+
+        assertThat(segments).containsExactly(JournalSegments.path(directory, 2), JournalSegments.path(directory, 10));
+        assertThat(JournalSegments.indexOf(segments.getLast())).isEqualTo(10);
+        assertThatThrownBy(() -> JournalSegments.indexOf(directory.resolve("notes.txt")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Path writeSegment(List<LedgerJdbcRepository.Entry> entries, int capacity) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(capacity * JournalRecord.SIZE);
+        for (var entry : entries) {
+            JournalRecord.of(entry, System.currentTimeMillis()).writeTo(buffer);
+        }
+        Path segment = JournalSegments.path(directory, 0);
+        Files.write(segment, buffer.array());
+        return segment;
+    }
+
+    static List<LedgerJdbcRepository.Entry> entries(int count) {
+        List<LedgerJdbcRepository.Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(LedgerJdbcRepository.Entry.of(TransactionType.TRANSFER, 100 + i, 1L, 2L + i));
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,152 @@
+package ir.snapp.insurance.digitalwallet.service.journal;
+
+import ir.snapp.insurance.digitalwallet.config.journal.JournalProperties;
+import ir.snapp.insurance.digitalwallet.repository.LedgerJdbcRepository;
+import ir.snapp.insurance.digitalwallet.service.ledger.LedgerWriteBehind;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for appending to, rotating and replaying the {@link LedgerJournal}.
+ *
+ * @author Alireza Khodadoust
+ */
+class LedgerJournalTest {
+
+    private static final int RECORDS_PER_SEGMENT = 3;
+
+    @TempDir
+    Path directory;
+
+    private final LedgerJdbcRepository ledgerJdbcRepository = mock(LedgerJdbcRepository.class);
+
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+    private final LedgerWriteBehind writeBehind = mock(LedgerWriteBehind.class);
+
+    private final JournalProperties journalProperties = new JournalProperties();
+
+    @BeforeEach
+    void setUp() {
+        journalProperties.setDirectory(directory);
+        journalProperties.setSegmentSize(DataSize.ofBytes((long) RECORDS_PER_SEGMENT * JournalRecord.SIZE));
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void acknowledgesWritesOnceSyncedAndQueuesThemInJournalOrder() throws Exception {
+        List<LedgerJdbcRepository.Entry> entries = JournalSegmentsTest.entries(7);
+        LedgerJournal journal = open();
+
+        writeAll(journal, entries);
+        journal.close();
+
+        InOrder inOrder = inOrder(writeBehind);
+        entries.forEach(entry -> inOrder.verify(writeBehind).append(entry));
+        assertThat(JournalSegments.list(directory)).containsExactly(
+                JournalSegments.path(directory, 0), JournalSegments.path(directory, 1), JournalSegments.path(directory, 2));
+    }
+
+    @Test
+    void deletesSealedSegmentsOnceTheirOperationsAreWritten() throws Exception {
+        LedgerJournal journal = open();
+        writeAll(journal, JournalSegmentsTest.entries(7));
+
+        when(writeBehind.writtenCount()).thenReturn(5L);
+        journal.deleteWrittenSegments();
+        assertThat(JournalSegments.list(directory)).containsExactly(
+                JournalSegments.path(directory, 1), JournalSegments.path(directory, 2));
+
+        when(writeBehind.writtenCount()).thenReturn(6L);
+        journal.deleteWrittenSegments();
+        assertThat(JournalSegments.list(directory)).containsExactly(JournalSegments.path(directory, 2));
+        journal.close();
+    }
+
+    @Test
+    void replaysTheRecordsMissingFromTheDatabaseInJournalOrder() throws Exception {
+        List<LedgerJdbcRepository.Entry> entries = JournalSegmentsTest.entries(7);
+        LedgerJournal journal = open();
+        writeAll(journal, entries);
+        journal.close();
+        existingInDatabase(entries.get(0).id(), entries.get(1).id());
+
+        LedgerJournal reopened = open();
+
+        assertThat(replayed()).isEqualTo(entries.subList(2, 7));
+        assertThat(JournalSegments.list(directory)).containsExactly(JournalSegments.path(directory, 3));
+        reopened.close();
+    }
+
+    @Test
+    void replayStopsAtATornRecordAtTheEndOfTheJournal() throws Exception {
+        List<LedgerJdbcRepository.Entry> entries = JournalSegmentsTest.entries(7);
+        LedgerJournal journal = open();
+        writeAll(journal, entries);
+        journal.close();
+        existingInDatabase();
+        try (FileChannel channel = FileChannel.open(JournalSegments.path(directory, 2), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(JournalRecord.PAYLOAD_SIZE), JournalRecord.HEADER_SIZE);
+        }
+
+        LedgerJournal reopened = open();
+
+        assertThat(replayed()).isEqualTo(entries.subList(0, 6));
+        reopened.close();
+    }
+
+    private LedgerJournal open() {
+        LedgerJournal journal = new LedgerJournal(journalProperties, ledgerJdbcRepository, transactionTemplate, writeBehind);
+        journal.open();
+        return journal;
+    }
+
+    private static void writeAll(LedgerJournal journal, List<LedgerJdbcRepository.Entry> entries) throws Exception {
+        List<CompletableFuture<Void>> durable = entries.stream().map(journal::write).toList();
+        CompletableFuture.allOf(durable.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+    }
+
+    private void existingInDatabase(UUID... ids) {
+        Set<UUID> existing = Set.of(ids);
+        when(ledgerJdbcRepository.findExistingTransactionIds(any())).thenAnswer(invocation ->
+                invocation.<Collection<UUID>>getArgument(0).stream()
+                        .filter(existing::contains)
+                        .collect(Collectors.toSet()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<LedgerJdbcRepository.Entry> replayed() {
+        ArgumentCaptor<List<LedgerJdbcRepository.Entry>> batches = ArgumentCaptor.forClass(List.class);
+        verify(ledgerJdbcRepository, atLeastOnce()).applyEntries(batches.capture());
+        List<LedgerJdbcRepository.Entry> replayed = new ArrayList<>();
+        batches.getAllValues().forEach(replayed::addAll);
+        return replayed;
+    }
+}